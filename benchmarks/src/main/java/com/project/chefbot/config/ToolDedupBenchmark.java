@@ -0,0 +1,53 @@
+package com.project.chefbot.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name-based de-duplication of MCP tool callbacks (formerly done in the ChefAiService constructor).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolDedupBenchmark {
+
+    @Param({"8", "64"})
+    public int tools;
+
+    private List<ToolCallback> callbacks;
+
+    @Setup
+    public void setup() {
+        callbacks = new ArrayList<>();
+        // Every tool is registered twice, as happens when auto-configured and explicit clients overlap
+        for (int copy = 0; copy < 2; copy++) {
+            for (int i = 0; i < tools; i++) {
+                ToolDefinition definition = ToolDefinition.builder()
+                        .name("tool_" + i)
+                        .description("Benchmark tool " + i)
+                        .inputSchema("{\"type\":\"object\"}")
+                        .build();
+                callbacks.add(new ToolCallback() {
+                    @Override
+                    public ToolDefinition getToolDefinition() { return definition; }
+
+                    @Override
+                    public String call(String toolInput) { return toolInput; }
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ToolCallback> dedupeByName() {
+        return McpConnectionRegistry.dedupeByName(callbacks);
+    }
+}
@@ -0,0 +1,65 @@
+package com.project.chefbot.etl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the model's extraction reply, in one piece and fed in token-sized chunks as during a stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScraperParsingBenchmark {
+
+    @Param({"10", "40", "150"})
+    public int steps;
+
+    private ObjectMapper objectMapper;
+    private ScraperService scraperService;
+    private String modelReply;
+    private List<String> streamChunks;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        scraperService = new ScraperService(null, objectMapper, null);
+
+        StringBuilder json = new StringBuilder("Sure! Here is the recipe:\n```json\n{\"title\": \"Chocolate Cake\", \"ingredients\": [");
+        for (int i = 0; i < steps / 2 + 1; i++) {
+            json.append(i == 0 ? "" : ", ").append("\"").append(i * 10).append("g of ingredient ").append(i).append("\"");
+        }
+        json.append("], \"instructions\": [");
+        for (int i = 0; i < steps; i++) {
+            json.append(i == 0 ? "" : ", ").append("\"Step ").append(i).append(": mix gently and let it rest for a few minutes.\"");
+        }
+        json.append("], \"diet\": \"Vegetarian\"}\n```\nEnjoy!");
+        modelReply = json.toString();
+
+        // Roughly one model token per chunk
+        streamChunks = new ArrayList<>();
+        for (int i = 0; i < modelReply.length(); i += 4) {
+            streamChunks.add(modelReply.substring(i, Math.min(modelReply.length(), i + 4)));
+        }
+    }
+
+    @Benchmark
+    public ExtractedRecipe parseExtraction() throws Exception {
+        return scraperService.parseExtraction(modelReply);
+    }
+
+    @Benchmark
+    public ExtractedRecipe parseStream() {
+        StreamingRecipeParser parser = new StreamingRecipeParser(objectMapper);
+        for (String chunk : streamChunks) {
+            if (parser.feed(chunk) != StreamingRecipeParser.State.PARSING) break;
+        }
+        return parser.getResult();
+    }
+}
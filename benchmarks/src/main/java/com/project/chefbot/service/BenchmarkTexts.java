@@ -0,0 +1,32 @@
+package com.project.chefbot.service;
+
+/**
+ * Realistic-looking chat content for the benchmarks.
+ */
+public final class BenchmarkTexts {
+
+    private BenchmarkTexts() {}
+
+    public static String recipeReply(int seed) {
+        StringBuilder sb = new StringBuilder("Right, listen up! Here's a STUNNING mushroom risotto (variant ").append(seed).append(")\n\n");
+        sb.append("## Ingredients\n");
+        for (int i = 1; i <= 12; i++) {
+            sb.append("- ").append(i * 25).append("g ingredient number ").append(i).append(", finely chopped\n");
+        }
+        sb.append("\n## Steps\n");
+        for (int i = 1; i <= 15; i++) {
+            sb.append(i).append(". Stir constantly over medium heat for ").append(i).append(" minutes until creamy and glossy.\n");
+        }
+        sb.append("\nSource: https://example.com/recipes/risotto-").append(seed);
+        return sb.toString();
+    }
+
+    public static String transcript(int turns) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < turns; i++) {
+            sb.append("USER: Can you give me a vegetarian dinner idea number ").append(i).append("?\n");
+            sb.append("AI: ").append(recipeReply(i)).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.transformers.TransformersEmbeddingModel;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding one batch of recipe-sized chunks: in-process ONNX (OnnxEmbeddingModel) against the Ollama
+ * HTTP API with nomic-embed-text, as used by the app. The ollama backend needs a running Ollama
+ * (-Dchefbot.ollama.url, default http://localhost:11434); the onnx backend downloads the model once
+ * (-Dchefbot.onnx.model-uri / -Dchefbot.onnx.tokenizer-uri override the defaults).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingBackendBenchmark {
+
+    private static final String NOMIC = "https://huggingface.co/nomic-ai/nomic-embed-text-v1.5/resolve/main/";
+
+    @Param({"onnx", "ollama"})
+    public String backend;
+
+    @Param({"1", "16"})
+    public int batchSize;
+
+    private List<String> texts;
+    private OnnxEmbeddingModel onnx;
+    private HttpClient http;
+    private ObjectMapper objectMapper;
+    private URI ollamaEmbed;
+
+    @Setup
+    public void setup() throws Exception {
+        texts = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) texts.add(BenchmarkTexts.recipeReply(i));
+
+        if (backend.equals("onnx")) {
+            TransformersEmbeddingModel transformers = new TransformersEmbeddingModel();
+            transformers.setModelResource(System.getProperty("chefbot.onnx.model-uri", NOMIC + "onnx/model.onnx"));
+            transformers.setTokenizerResource(System.getProperty("chefbot.onnx.tokenizer-uri", NOMIC + "tokenizer.json"));
+            transformers.setResourceCacheDirectory(System.getProperty("java.io.tmpdir") + "/chefbot-onnx");
+            transformers.setTokenizerOptions(Map.of("maxLength", "2048", "truncation", "true"));
+            transformers.afterPropertiesSet();
+            onnx = new OnnxEmbeddingModel(transformers, 768, 2, 16, 512, 5, 60_000, new ChefMetrics(new SimpleMeterRegistry()));
+            onnx.warmUp();
+        } else {
+            http = HttpClient.newHttpClient();
+            objectMapper = new ObjectMapper();
+            ollamaEmbed = URI.create(System.getProperty("chefbot.ollama.url", "http://localhost:11434") + "/api/embed");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (onnx != null) onnx.shutdown();
+    }
+
+    @Benchmark
+    public List<float[]> embedBatch() throws Exception {
+        return backend.equals("onnx") ? onnx.embed(texts) : embedWithOllama();
+    }
+
+    // Same request the Ollama embedding client sends: one HTTP round trip with a JSON body each way
+    private List<float[]> embedWithOllama() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "model", "nomic-embed-text",
+                "input", texts,
+                "options", Map.of("num_ctx", 8192)));
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(ollamaEmbed)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        List<float[]> vectors = new ArrayList<>();
+        for (JsonNode embedding : objectMapper.readTree(response.body()).path("embeddings")) {
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) vector[i] = (float) embedding.get(i).asDouble();
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,31 @@
+package com.project.chefbot.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markdown to sanitized HTML for one AI reply, the work done once per saved chat message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MarkdownRenderBenchmark {
+
+    private MarkdownRenderer renderer;
+    private String reply;
+
+    @Setup
+    public void setup() {
+        renderer = new MarkdownRenderer();
+        reply = BenchmarkTexts.recipeReply(7);
+    }
+
+    @Benchmark
+    public String renderReply() {
+        return renderer.render(reply);
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.chefbot.service;
+
+import com.project.chefbot.model.ChatMessage;
+import com.project.chefbot.model.CookingSession;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.messages.Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * System prompt and conversation context assembly for one chat turn, at different history sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptBuildBenchmark {
+
+    @Param({"0", "10", "50", "200"})
+    public int historySize;
+
+    @Param({"Gordon Ramsay (Strict)", "Nutritionist (Healthy)"})
+    public String persona;
+
+    private ChefAiService service;
+    private CookingSession session;
+    private List<ChatMessage> history;
+    private String memory;
+
+    @Setup
+    public void setup() {
+        service = new ChefAiService(null, null, null, null, null, null, null, null, null, null, null, null);
+
+        session = new CookingSession();
+        session.setId(1L);
+        session.setSessionName("Benchmark");
+        session.setChefPersonality(persona);
+        session.setDietType("Vegetarian");
+        session.setExcludedIngredients("peanuts, shellfish, milk");
+
+        history = new ArrayList<>();
+        for (int i = 0; i < historySize; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setSender(i % 2 == 0 ? "USER" : "AI");
+            message.setContent(i % 2 == 0 ? "How do I make a mushroom risotto for four?" : BenchmarkTexts.recipeReply(i));
+            message.setTimestamp(LocalDateTime.now().minusMinutes(historySize - i));
+            message.setSession(session);
+            history.add(message);
+        }
+
+        memory = PreferenceProfileService.render(new PreferenceProfileService.Profile(
+                List.of("Italian", "Thai", "Mushroom dishes"), List.of("cilantro", "blue cheese"), "intermediate",
+                List.of("cast iron pan", "air fryer")), 600);
+    }
+
+    @Benchmark
+    public String createSystemPrompt() {
+        return service.createSystemPrompt(session, memory);
+    }
+
+    @Benchmark
+    public List<Message> buildConversationContext() {
+        return service.buildConversationContext(session, history, memory, "And what wine goes with it?");
+    }
+}
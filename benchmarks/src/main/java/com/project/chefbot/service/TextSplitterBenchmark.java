@@ -0,0 +1,38 @@
+package com.project.chefbot.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenTextSplitter with the settings used for conversation memory and recipes (800, 400, 5, 10000).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextSplitterBenchmark {
+
+    @Param({"5", "25", "100"})
+    public int turns;
+
+    private TokenTextSplitter splitter;
+    private Document transcript;
+
+    @Setup
+    public void setup() {
+        splitter = new TokenTextSplitter(800, 400, 5, 10000, true);
+        transcript = new Document(BenchmarkTexts.transcript(turns), Map.of("sessionId", 1L, "userId", "1"));
+    }
+
+    @Benchmark
+    public List<Document> splitTranscript() {
+        return splitter.apply(List.of(transcript));
+    }
+}
@@ -0,0 +1,74 @@
+package com.project.chefbot.config;
+
+import com.project.chefbot.service.ChefMetrics;
+import com.project.chefbot.service.OnnxEmbeddingModel;
+import org.springframework.ai.transformers.TransformersEmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Map;
+
+/**
+ * With chefbot.embedding.backend=onnx, embeddings are computed in-process from an ONNX export of
+ * nomic-embed-text instead of over HTTP by Ollama. The model and tokenizer are downloaded once into
+ * cache-dir; the model is warmed up (and its dimensions checked) before the application accepts traffic.
+ */
+@Configuration
+@Profile("!loadtest")
+@ConditionalOnProperty(name = "chefbot.embedding.backend", havingValue = "onnx")
+public class EmbeddingConfig {
+
+    @Value("${chefbot.vector.dimensions:768}")
+    private int dimensions;
+
+    @Value("${chefbot.embedding.onnx.model-uri}")
+    private String modelUri;
+
+    @Value("${chefbot.embedding.onnx.tokenizer-uri}")
+    private String tokenizerUri;
+
+    @Value("${chefbot.embedding.onnx.cache-dir:${java.io.tmpdir}/chefbot-onnx}")
+    private String cacheDir;
+
+    @Value("${chefbot.embedding.onnx.output-name:last_hidden_state}")
+    private String outputName;
+
+    @Value("${chefbot.embedding.onnx.max-tokens:2048}")
+    private int maxTokens;
+
+    @Value("${chefbot.embedding.onnx.threads:2}")
+    private int threads;
+
+    @Value("${chefbot.embedding.onnx.batch-size:16}")
+    private int batchSize;
+
+    @Value("${chefbot.embedding.onnx.queue-capacity:512}")
+    private int queueCapacity;
+
+    @Value("${chefbot.embedding.onnx.linger-ms:5}")
+    private long lingerMillis;
+
+    @Value("${chefbot.embedding.onnx.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    @Bean(destroyMethod = "shutdown")
+    @Primary
+    public OnnxEmbeddingModel onnxEmbeddingModel(ChefMetrics metrics) throws Exception {
+        TransformersEmbeddingModel transformers = new TransformersEmbeddingModel();
+        transformers.setModelResource(modelUri);
+        transformers.setTokenizerResource(tokenizerUri);
+        transformers.setResourceCacheDirectory(cacheDir);
+        transformers.setModelOutputName(outputName);
+        transformers.setTokenizerOptions(Map.of("maxLength", String.valueOf(maxTokens), "truncation", "true"));
+        transformers.afterPropertiesSet();
+
+        OnnxEmbeddingModel model = new OnnxEmbeddingModel(transformers, dimensions, threads, batchSize, queueCapacity,
+                lingerMillis, timeoutMillis, metrics);
+        model.warmUp();
+        return model;
+    }
+}
@@ -0,0 +1,13 @@
+package com.project.chefbot.config;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+
+/**
+ * Creates a new, unconnected MCP client. A closed client (and its stdio process or HTTP transport)
+ * cannot be reopened, so {@link McpConnectionRegistry} asks for a fresh one after every disconnect.
+ */
+@FunctionalInterface
+public interface McpClientFactory {
+
+    McpSyncClient create();
+}
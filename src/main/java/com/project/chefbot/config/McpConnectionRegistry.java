@@ -0,0 +1,258 @@
+package com.project.chefbot.config;
+
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of the MCP tool servers and connects to them in the background.
+ * Every connection is started in parallel once the application is ready, so startup no
+ * longer waits for docker containers or the Recipe MCP handshake. Tool callbacks are
+ * resolved lazily: the first chat turn waits (bounded) for connections still in progress,
+ * and failed connections are retried on use after a cool-down.
+ *
+ * As a {@link SmartLifecycle} bean it closes every connection (docker stdio processes, HTTP transports)
+ * when stopped, which Spring does before a CRaC checkpoint and at shutdown, and reconnects in the
+ * background when started again after a restore.
+ */
+public class McpConnectionRegistry implements SmartLifecycle {
+
+    public enum Status { PENDING, CONNECTING, READY, FAILED }
+
+    private static final class Connection {
+        private final String name;
+        private final Callable<List<ToolCallback>> connector;
+        private volatile Status status = Status.PENDING;
+        private volatile List<ToolCallback> callbacks = List.of();
+        private volatile String error;
+        private volatile long connectMillis;
+        private volatile long lastAttemptAt;
+        private volatile CompletableFuture<Void> future;
+        // Bumped on every disconnect, under the registry lock; an attempt started before it must not publish
+        private long generation;
+
+        private Connection(String name, Callable<List<ToolCallback>> connector) {
+            this.name = name;
+            this.connector = connector;
+        }
+    }
+
+    private final Map<String, Connection> connections = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long firstUseWaitMs;
+    private final long retryAfterMs;
+
+    private volatile List<ToolCallback> toolCallbacks = List.of();
+    private volatile boolean running;
+    private volatile boolean disconnected;
+
+    public McpConnectionRegistry(Map<String, Callable<List<ToolCallback>>> connectors, long firstUseWaitMs, long retryAfterMs) {
+        connectors.forEach((name, connector) -> connections.put(name, new Connection(name, connector)));
+        this.firstUseWaitMs = firstUseWaitMs;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void connectAll() {
+        for (Connection connection : connections.values()) {
+            startConnect(connection);
+        }
+    }
+
+    /**
+     * Returns the tools of every connected server. Connections that are still starting are
+     * awaited for at most the configured first-use wait; slow servers simply join later turns.
+     */
+    public List<ToolCallback> getToolCallbacks() {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Connection connection : connections.values()) {
+            CompletableFuture<Void> future = startConnect(connection);
+            if (!future.isDone()) {
+                pending.add(future);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get(firstUseWaitMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                System.out.println("[MCP] Continuing without " + pending.size() + " tool server(s) that are still connecting");
+            }
+        }
+        return toolCallbacks;
+    }
+
+    public boolean isReady(String name) {
+        Connection connection = connections.get(name);
+        return connection != null && connection.status == Status.READY;
+    }
+
+    public Map<String, Map<String, Object>> getStatus() {
+        Map<String, Map<String, Object>> status = new LinkedHashMap<>();
+        for (Connection connection : connections.values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("status", connection.status.name());
+            details.put("tools", connection.callbacks.stream()
+                    .map(tc -> tc.getToolDefinition().name())
+                    .collect(Collectors.toList()));
+            details.put("connectMillis", connection.connectMillis);
+            if (connection.error != null) {
+                details.put("error", connection.error);
+            }
+            status.put(connection.name, details);
+        }
+        return status;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (disconnected) {
+            disconnected = false;
+            System.out.println("[MCP] Reconnecting tool servers after restart");
+            connectAll();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        disconnectAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Waits (bounded) for connections in progress, then closes every connector that holds resources.
+     * Tools are unavailable until the next connect.
+     */
+    public void disconnectAll() {
+        // Not under the lock: a finishing connection needs it to publish its tools
+        for (Connection connection : connections.values()) {
+            CompletableFuture<Void> future = connection.future;
+            if (future == null) continue;
+            try {
+                future.get(firstUseWaitMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // Closing below waits for a handshake still running; connect() then discards its result
+            }
+        }
+        synchronized (this) {
+            closeConnections();
+        }
+    }
+
+    private void closeConnections() {
+        for (Connection connection : connections.values()) {
+            closeConnector(connection);
+            connection.generation++;
+            connection.future = null;
+            connection.callbacks = List.of();
+            connection.status = Status.PENDING;
+        }
+        disconnected = true;
+        toolCallbacks = List.of();
+        System.out.println("[MCP] Disconnected all tool servers");
+    }
+
+    private static void closeConnector(Connection connection) {
+        if (connection.connector instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                System.err.println("[MCP-" + connection.name + "] Close failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized CompletableFuture<Void> startConnect(Connection connection) {
+        boolean retry = connection.status == Status.FAILED
+                && System.currentTimeMillis() - connection.lastAttemptAt >= retryAfterMs;
+        if (connection.future != null && !retry) {
+            return connection.future;
+        }
+
+        connection.status = Status.CONNECTING;
+        connection.lastAttemptAt = System.currentTimeMillis();
+        long generation = connection.generation;
+        connection.future = CompletableFuture.runAsync(() -> connect(connection, generation), executor);
+        return connection.future;
+    }
+
+    private void connect(Connection connection, long generation) {
+        long start = System.currentTimeMillis();
+        List<ToolCallback> callbacks = null;
+        Exception failure = null;
+        try {
+            callbacks = connection.connector.call();
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        synchronized (this) {
+            if (generation != connection.generation) {
+                // Disconnected while the handshake ran: publishing would bring a closed server back. A newer
+                // attempt shares the connector, so it is only closed if nothing reconnected in the meantime.
+                if (connection.future == null) closeConnector(connection);
+                System.out.println("[MCP-" + connection.name + "] Discarded a connection that finished after disconnect");
+                return;
+            }
+            connection.connectMillis = System.currentTimeMillis() - start;
+            if (failure == null) {
+                connection.callbacks = callbacks != null ? List.copyOf(callbacks) : List.of();
+                connection.error = null;
+                connection.status = Status.READY;
+                System.out.println("[MCP-" + connection.name + "] Connected with " + connection.callbacks.size() + " tool(s): " +
+                        connection.callbacks.stream().map(tc -> tc.getToolDefinition().name()).collect(Collectors.joining(", ")));
+            } else {
+                connection.callbacks = List.of();
+                connection.error = failure.getMessage();
+                connection.status = Status.FAILED;
+                System.err.println("[MCP-" + connection.name + "] Connection failed (will retry on use): " + failure.getMessage());
+            }
+            refreshToolCallbacks();
+        }
+    }
+
+    private synchronized void refreshToolCallbacks() {
+        List<ToolCallback> all = new ArrayList<>();
+        for (Connection connection : connections.values()) {
+            all.addAll(connection.callbacks);
+        }
+        toolCallbacks = dedupeByName(all);
+        System.out.println("[MCP] Total registered tools: " + toolCallbacks.size());
+    }
+
+    /**
+     * Removes tools that share a name, keeping the first one registered.
+     */
+    public static List<ToolCallback> dedupeByName(Collection<ToolCallback> callbacks) {
+        return List.copyOf(callbacks.stream()
+                .collect(Collectors.toMap(
+                        tc -> tc.getToolDefinition().name(),
+                        tc -> tc,
+                        (existing, replacement) -> existing,
+                        LinkedHashMap::new))
+                .values());
+    }
+}
@@ -0,0 +1,29 @@
+package com.project.chefbot.config;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reports MCP tool server readiness under /actuator/health. Tool servers are optional for chatting,
+ * so a missing server shows as UNKNOWN with details rather than taking the application DOWN.
+ */
+@Component
+public class McpHealthIndicator implements HealthIndicator {
+
+    private final McpConnectionRegistry mcpRegistry;
+
+    public McpHealthIndicator(McpConnectionRegistry mcpRegistry) {
+        this.mcpRegistry = mcpRegistry;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, Map<String, Object>> status = mcpRegistry.getStatus();
+        boolean allReady = status.values().stream()
+                .allMatch(details -> McpConnectionRegistry.Status.READY.name().equals(details.get("status")));
+        return (allReady ? Health.up() : Health.unknown()).withDetails(status).build();
+    }
+}
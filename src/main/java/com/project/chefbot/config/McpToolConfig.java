@@ -1,42 +1,97 @@
 package com.project.chefbot.config;
 
+import io.modelcontextprotocol.client.McpSyncClient;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Configuration for aggregating MCP tool callbacks from different sources.
- * Individual tool callbacks are created in their respective configuration classes:
- * - stdioToolCallbacks from StdioMcpClientConfig
- * - recipeToolCallbacks from RecipeMcpClientConfig
+ * The client factories are defined in their respective configuration classes:
+ * - duckduckgoMcpClient / resendMcpClient from StdioMcpClientConfig
+ * - recipeMcpClient from RecipeMcpClientConfig
+ * Connecting and listing tools happens in the background through {@link McpConnectionRegistry}.
  */
 @Configuration
+@Profile("!loadtest")
 public class McpToolConfig {
 
+    @Value("${chefbot.mcp.first-use-wait-ms:10000}")
+    private long firstUseWaitMs;
+
+    @Value("${chefbot.mcp.retry-after-ms:60000}")
+    private long retryAfterMs;
+
+    @Bean(destroyMethod = "shutdown")
+    public McpConnectionRegistry mcpConnectionRegistry(
+            @Autowired(required = false) @Qualifier("duckduckgoMcpClient") McpClientFactory duckduckgoMcpClient,
+            @Autowired(required = false) @Qualifier("resendMcpClient") McpClientFactory resendMcpClient,
+            @Autowired(required = false) @Qualifier("recipeMcpClient") McpClientFactory recipeMcpClient) {
+
+        Map<String, Callable<List<ToolCallback>>> connectors = new LinkedHashMap<>();
+        if (duckduckgoMcpClient != null) {
+            connectors.put("DDG", connector(duckduckgoMcpClient));
+        }
+        if (resendMcpClient != null) {
+            connectors.put("Resend", connector(resendMcpClient));
+        }
+        if (recipeMcpClient != null) {
+            connectors.put("Recipe", connector(recipeMcpClient));
+        }
+
+        return new McpConnectionRegistry(connectors, firstUseWaitMs, retryAfterMs);
+    }
+
+    private Callable<List<ToolCallback>> connector(McpClientFactory factory) {
+        return new ClientConnector(factory);
+    }
+
     /**
-     * Combine stdio MCP tools and recipe MCP tools into a single primary bean to satisfy Spring's single List<ToolCallback> requirement.
+     * Connects a client from the factory on first use. Closing it (before a checkpoint or at shutdown)
+     * stops the stdio process or HTTP transport; the next connect creates a fresh client.
      */
-    @Bean(name = "allMcpToolCallbacks")
-    @Primary
-    public List<ToolCallback> allMcpToolCallbacks(
-            @Autowired(required = false) @Qualifier("stdioToolCallbacks") List<ToolCallback> stdioToolCallbacks,
-            @Autowired(required = false) @Qualifier("recipeToolCallbacks") List<ToolCallback> recipeToolCallbacks) {
-
-        List<ToolCallback> callbacks = new ArrayList<>();
-        if (stdioToolCallbacks != null) {
-            callbacks.addAll(stdioToolCallbacks);
+    static final class ClientConnector implements Callable<List<ToolCallback>>, AutoCloseable {
+
+        private final McpClientFactory factory;
+        private McpSyncClient client;
+
+        ClientConnector(McpClientFactory factory) {
+            this.factory = factory;
         }
-        if (recipeToolCallbacks != null) {
-            callbacks.addAll(recipeToolCallbacks);
+
+        @Override
+        public synchronized List<ToolCallback> call() {
+            if (client == null) {
+                client = factory.create();
+            }
+            try {
+                if (!client.isInitialized()) {
+                    client.initialize();
+                }
+                return SyncMcpToolCallbackProvider.syncToolCallbacks(List.of(client));
+            } catch (RuntimeException e) {
+                // A half-started transport cannot be retried; the next attempt starts over
+                close();
+                throw e;
+            }
         }
 
-        System.out.println("[MCP] Total registered tools: " + callbacks.size());
-        return callbacks;
+        @Override
+        public synchronized void close() {
+            if (client != null) {
+                client.closeGracefully();
+                client = null;
+            }
+        }
     }
 }
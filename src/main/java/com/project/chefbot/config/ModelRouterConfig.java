@@ -0,0 +1,79 @@
+package com.project.chefbot.config;
+
+import com.project.chefbot.service.ChatRequestClass;
+import com.project.chefbot.service.LlmScheduler;
+import com.project.chefbot.service.RoutingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.vertexai.gemini.VertexAiGeminiChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps the local Ollama model and Gemini in a single primary {@link RoutingChatModel}.
+ * Routes are ordered backend lists per request class, e.g. chefbot.router.routes.etl-extraction=ollama.
+ */
+@Configuration
+@Profile("!loadtest")
+public class ModelRouterConfig {
+
+    @Value("${chefbot.router.routes.interactive:gemini,ollama}")
+    private String interactiveRoute;
+
+    @Value("${chefbot.router.routes.tool-heavy:gemini,ollama}")
+    private String toolHeavyRoute;
+
+    @Value("${chefbot.router.routes.etl-extraction:ollama}")
+    private String etlRoute;
+
+    @Value("${chefbot.router.routes.summarization:ollama,gemini}")
+    private String summarizationRoute;
+
+    @Value("${chefbot.router.degraded-latency-ms:30000}")
+    private long degradedLatencyMs;
+
+    @Value("${chefbot.router.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${chefbot.router.open-ms:30000}")
+    private long openMillis;
+
+    @Bean
+    @Primary
+    public RoutingChatModel routingChatModel(ObjectProvider<OllamaChatModel> ollamaChatModel,
+                                             ObjectProvider<VertexAiGeminiChatModel> geminiChatModel,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             LlmScheduler scheduler) {
+        Map<String, ChatModel> backends = new LinkedHashMap<>();
+        geminiChatModel.ifAvailable(model -> backends.put("gemini", model));
+        ollamaChatModel.ifAvailable(model -> backends.put("ollama", model));
+
+        Map<ChatRequestClass, List<String>> routes = new EnumMap<>(ChatRequestClass.class);
+        routes.put(ChatRequestClass.INTERACTIVE, splitRoute(interactiveRoute));
+        routes.put(ChatRequestClass.TOOL_HEAVY, splitRoute(toolHeavyRoute));
+        routes.put(ChatRequestClass.ETL_EXTRACTION, splitRoute(etlRoute));
+        routes.put(ChatRequestClass.SUMMARIZATION, splitRoute(summarizationRoute));
+
+        return new RoutingChatModel(backends, routes, degradedLatencyMs, failureThreshold, openMillis,
+                meterRegistry.getIfAvailable(), scheduler);
+    }
+
+    private List<String> splitRoute(String route) {
+        return Arrays.stream(route.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
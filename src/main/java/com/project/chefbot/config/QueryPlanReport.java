@@ -0,0 +1,97 @@
+package com.project.chefbot.config;
+
+import com.project.chefbot.service.VectorGenerations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs EXPLAIN (not ANALYZE, so nothing is executed) for the SQL behind the hot repository methods and the
+ * filtered vector searches, and flags the ones still planned as a sequential scan. On small tables the planner
+ * legitimately prefers a Seq Scan, so the flag matters once the tables have grown. Vector searches are explained
+ * against the table each collection is read from: its active generation after a rebuild, else the configured one.
+ */
+@Component
+public class QueryPlanReport {
+
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("ChatMessageRepository.findBySessionIdOrderByIdDesc",
+                "SELECT * FROM chat_message WHERE session_id = 1 ORDER BY id DESC LIMIT 31");
+        QUERIES.put("ChatMessageRepository.findBySessionIdAndIdGreaterThanOrderByIdAsc",
+                "SELECT * FROM chat_message WHERE session_id = 1 AND id > 100 ORDER BY id LIMIT 31");
+        QUERIES.put("ChatMessageRepository.findBySessionIdOrderByTimestampAsc",
+                "SELECT * FROM chat_message WHERE session_id = 1 ORDER BY timestamp");
+        QUERIES.put("CookingSessionRepository.findByUserId",
+                "SELECT * FROM cooking_session WHERE user_id = 1 ORDER BY created_at DESC");
+        QUERIES.put("StoredRecipeRepository.findByUrl",
+                "SELECT * FROM stored_recipe WHERE url = 'https://example.com/recipe'");
+        QUERIES.put("UserRepository.findByUsername",
+                "SELECT * FROM users WHERE username = 'chef'");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Environment env;
+
+    @Value("${chefbot.schema.explain-on-startup:true}")
+    private boolean enabled;
+
+    @Value("${chefbot.vector.dimensions:768}")
+    private int dimensions;
+
+    public QueryPlanReport(JdbcTemplate jdbcTemplate, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.env = env;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        if (!enabled) return;
+
+        Map<String, String> queries = new LinkedHashMap<>(QUERIES);
+        String memory = vectorTable("memory", "memory_vectors");
+        String recipes = vectorTable("recipes", "recipe_vectors");
+        queries.put("memory vector search for one user (partition pruned) on " + memory,
+                "SELECT id FROM " + memory + " WHERE partition_key = '1' "
+                        + "ORDER BY embedding <=> (SELECT embedding FROM " + memory + " LIMIT 1) LIMIT 2");
+        queries.put("memory vector delete by sessionId on " + memory,
+                "DELETE FROM " + memory + " WHERE metadata::jsonb @@ '$.sessionId == 1'::jsonpath");
+        queries.put("recipe vector delete by url on " + recipes,
+                "DELETE FROM " + recipes + " WHERE metadata::jsonb @@ '$.url == \"https://example.com/recipe\"'::jsonpath");
+
+        StringBuilder sb = new StringBuilder("[QueryPlan] Startup plan report\n");
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            try {
+                List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + query.getValue(), String.class);
+                boolean seqScan = plan.stream().anyMatch(line -> line.contains("Seq Scan"));
+                sb.append(seqScan ? "  [SEQ SCAN] " : "  [index]    ").append(query.getKey()).append('\n');
+                for (String line : plan) {
+                    sb.append("      ").append(line).append('\n');
+                }
+            } catch (Exception e) {
+                sb.append("  [error]    ").append(query.getKey()).append(": ").append(e.getMessage()).append('\n');
+            }
+        }
+        System.out.println(sb);
+    }
+
+    /** Resolves the table the way {@link VectorStoreConfig} does for the store itself. */
+    private String vectorTable(String collection, String defaultTable) {
+        try {
+            String generation = VectorGenerations.activeTable(jdbcTemplate, collection,
+                    VectorStoreConfig.embeddingModelTag(env), dimensions);
+            if (generation != null) return generation;
+        } catch (Exception e) {
+            System.err.println("[QueryPlan] Could not resolve the active " + collection + " generation: " + e.getMessage());
+        }
+        return env.getProperty("chefbot.vector." + collection + ".table", defaultTable);
+    }
+}
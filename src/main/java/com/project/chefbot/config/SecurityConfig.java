@@ -22,8 +22,10 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests((requests) -> requests
-                        .requestMatchers("/h2-console", "/h2-console/**", "/css/**", "/js/**", "/chef/register", "/login", "/register", "/mcp/**").permitAll()
+                        .requestMatchers("/h2-console", "/h2-console/**", "/css/**", "/js/**", "/chef/register", "/login", "/register", "/mcp/**", "/actuator/health", "/actuator/prometheus").permitAll()
                         .requestMatchers("/scraper/**").hasRole("ADMIN")
+                        .requestMatchers("/api/diagnostics/vector-store/**").hasRole("ADMIN")
+                        .requestMatchers("/api/etl/snapshot", "/api/etl/crawl", "/api/etl/scrape").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .formLogin((form) -> form
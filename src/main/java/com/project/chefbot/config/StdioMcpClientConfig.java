@@ -7,18 +7,23 @@ import io.modelcontextprotocol.client.transport.ServerParameters;
 import io.modelcontextprotocol.client.transport.StdioClientTransport;
 import io.modelcontextprotocol.json.jackson.JacksonMcpJsonMapper;
 import io.modelcontextprotocol.spec.McpSchema;
-import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
-import org.springframework.ai.tool.ToolCallback;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Creates the stdio (docker) MCP clients. The clients are not connected here; starting the
+ * containers and listing their tools is done in parallel by {@link McpConnectionRegistry}, which
+ * also closes and recreates them around a CRaC checkpoint.
+ */
 @Configuration
+@Profile("!loadtest")
 public class StdioMcpClientConfig {
 
     @Value("${spring.ai.mcp.client.request-timeout:30s}")
@@ -62,56 +67,27 @@ public class StdioMcpClientConfig {
                 .collect(Collectors.toList());
     }
 
-    @Bean
-    public McpSyncClient duckduckgoMcpClient() {
-        ServerParameters params = ServerParameters.builder(ddgCommand)
-                .args(splitArgs(ddgArgs))
+    private McpSyncClient stdioClient(String command, String args) {
+        ServerParameters params = ServerParameters.builder(command)
+                .args(splitArgs(args))
                 .build();
         JacksonMcpJsonMapper mapper = new JacksonMcpJsonMapper(new ObjectMapper());
         StdioClientTransport transport = new StdioClientTransport(params, mapper);
 
-        McpSyncClient client = McpClient.sync(transport)
+        return McpClient.sync(transport)
                 .requestTimeout(parseTimeout(requestTimeout))
                 .capabilities(McpSchema.ClientCapabilities.builder().build())
                 .build();
-
-        try {
-            client.initialize();
-            System.out.println("[MCP-DDG] Connected and ready");
-        } catch (Exception e) {
-            System.err.println("[MCP-DDG] Initialization failed: " + e.getMessage());
-        }
-        return client;
     }
 
+    // Factories rather than clients: McpConnectionRegistry creates and connects them in the background
     @Bean
-    public McpSyncClient resendMcpClient() {
-        ServerParameters params = ServerParameters.builder(resendCommand)
-                .args(splitArgs(resendArgs))
-                .build();
-        JacksonMcpJsonMapper mapper = new JacksonMcpJsonMapper(new ObjectMapper());
-        StdioClientTransport transport = new StdioClientTransport(params, mapper);
-
-        McpSyncClient client = McpClient.sync(transport)
-                .requestTimeout(parseTimeout(requestTimeout))
-                .capabilities(McpSchema.ClientCapabilities.builder().build())
-                .build();
-
-        try {
-            client.initialize();
-            System.out.println("[MCP-Resend] Connected and ready");
-        } catch (Exception e) {
-            System.err.println("[MCP-Resend] Initialization failed: " + e.getMessage());
-        }
-        return client;
+    public McpClientFactory duckduckgoMcpClient() {
+        return () -> stdioClient(ddgCommand, ddgArgs);
     }
 
-    @Bean(name = "stdioToolCallbacks")
-    public List<ToolCallback> stdioToolCallbacks(McpSyncClient duckduckgoMcpClient,
-                                                 McpSyncClient resendMcpClient) {
-        List<ToolCallback> callbacks = SyncMcpToolCallbackProvider.syncToolCallbacks(List.of(duckduckgoMcpClient, resendMcpClient));
-        System.out.println("[MCP-STDIO] Registered " + callbacks.size() + " stdio tool(s): " +
-                callbacks.stream().map(tc -> tc.getToolDefinition().name()).collect(Collectors.joining(", ")));
-        return callbacks;
+    @Bean
+    public McpClientFactory resendMcpClient() {
+        return () -> stdioClient(resendCommand, resendArgs);
     }
 }
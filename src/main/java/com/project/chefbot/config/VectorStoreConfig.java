@@ -0,0 +1,97 @@
+package com.project.chefbot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.chefbot.service.QuantizedPgVectorStore;
+import com.project.chefbot.service.VectorGenerations;
+import com.project.chefbot.service.VectorReindexService;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Locale;
+
+/**
+ * Two separate vector collections instead of one shared vector_store table:
+ * recipeVectorStore holds the scraped recipe knowledge base, memoryVectorStore the per-user conversation
+ * memory. Each has its own table, HNSW index and tuning (chefbot.vector.recipes.* / chefbot.vector.memory.*),
+ * and the memory collection is hash-partitioned by userId so a user's search only walks one partition's graph.
+ * A collection rebuilt by {@link VectorReindexService} lives in a generation table; the newest ready one for
+ * this node's embedding model and dimensions is used instead of the configured table.
+ */
+@Configuration
+@Profile("!loadtest")
+public class VectorStoreConfig {
+
+    public static final String RECIPES = "recipeVectorStore";
+    public static final String MEMORY = "memoryVectorStore";
+
+    @Value("${chefbot.vector.dimensions:768}")
+    private int dimensions;
+
+    private final Environment env;
+
+    public VectorStoreConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean(name = RECIPES)
+    public QuantizedPgVectorStore recipeVectorStore(JdbcTemplate jdbcTemplate,
+                                                    PlatformTransactionManager transactionManager,
+                                                    EmbeddingModel embeddingModel,
+                                                    ObjectMapper objectMapper) {
+        return create(jdbcTemplate, transactionManager, embeddingModel, objectMapper, "recipes", settings("recipes", "recipe_vectors", null, 0));
+    }
+
+    @Bean(name = MEMORY)
+    public QuantizedPgVectorStore memoryVectorStore(JdbcTemplate jdbcTemplate,
+                                                    PlatformTransactionManager transactionManager,
+                                                    EmbeddingModel embeddingModel,
+                                                    ObjectMapper objectMapper) {
+        return create(jdbcTemplate, transactionManager, embeddingModel, objectMapper, "memory", settings("memory", "memory_vectors", "userId", 8));
+    }
+
+    private QuantizedPgVectorStore create(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                          EmbeddingModel embeddingModel, ObjectMapper objectMapper,
+                                          String collection, QuantizedPgVectorStore.Settings settings) {
+        String generation = VectorGenerations.activeTable(jdbcTemplate, collection, embeddingModelTag(env), dimensions);
+        QuantizedPgVectorStore store = new QuantizedPgVectorStore(jdbcTemplate, transactionManager, embeddingModel, objectMapper,
+                generation == null ? settings : settings.withTable(generation));
+        store.initialize();
+        return store;
+    }
+
+    /**
+     * Identifies the vectors a node produces: backend and model together, because Ollama and the in-process
+     * ONNX model both serve nomic-embed-text but produce different vectors. chefbot.embedding.model-tag
+     * overrides the derived tag.
+     */
+    public static String embeddingModelTag(Environment env) {
+        String configured = env.getProperty("chefbot.embedding.model-tag", "");
+        if (!configured.isBlank()) return configured.trim();
+        String backend = env.getProperty("chefbot.embedding.backend", "ollama").trim().toLowerCase(Locale.ROOT);
+        String model = backend.equals("onnx")
+                ? env.getProperty("chefbot.embedding.onnx.model-uri", "")
+                : env.getProperty("spring.ai.ollama.embedding.options.model", "");
+        return backend + ":" + model.trim();
+    }
+
+    private QuantizedPgVectorStore.Settings settings(String collection, String defaultTable, String defaultPartitionKey, int defaultPartitions) {
+        String prefix = "chefbot.vector." + collection + ".";
+        return new QuantizedPgVectorStore.Settings(
+                env.getProperty(prefix + "table", defaultTable),
+                dimensions,
+                QuantizedPgVectorStore.Mode.valueOf(env.getProperty(prefix + "mode", "float").trim().toUpperCase(Locale.ROOT)),
+                env.getProperty(prefix + "hnsw.m", Integer.class, 16),
+                env.getProperty(prefix + "hnsw.ef-construction", Integer.class, 64),
+                env.getProperty(prefix + "hnsw.ef-search", Integer.class, 40),
+                env.getProperty(prefix + "rerank-factor", Integer.class, 4),
+                env.getProperty(prefix + "partition-key", defaultPartitionKey),
+                env.getProperty(prefix + "partitions", Integer.class, defaultPartitions),
+                env.getProperty(prefix + "iterative-scan", Boolean.class, true));
+    }
+}
@@ -1,12 +1,19 @@
 package com.project.chefbot.controller;
 
+import com.project.chefbot.dto.ChatMessageView;
+import com.project.chefbot.dto.ChatUpdate;
 import com.project.chefbot.dto.CreateSessionRequest;
+import com.project.chefbot.model.ChatMessage;
 import com.project.chefbot.model.User;
 import com.project.chefbot.repository.UserRepository;
 import com.project.chefbot.service.ChefAiService;
+import com.project.chefbot.service.SessionTurnQueue;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -14,6 +21,10 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.util.List;
+import java.util.UUID;
 
 @Controller
 @RequestMapping("/chef")
@@ -21,9 +32,13 @@ import org.springframework.web.bind.annotation.*;
 public class ChefController {
 
     private final ChefAiService aiService;
+    private final SessionTurnQueue turnQueue;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
 
+    private static final int PAGE_SIZE = 30;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) return null;
@@ -63,9 +78,15 @@ public class ChefController {
         response.setHeader("Pragma", "no-cache");
         response.setHeader("Expires", "0");
 
-        var session = aiService.getSessionInfo(id);
-        var messages = aiService.getMessagesForSession(id);
         Long userId = getCurrentUserId();
+        if (!aiService.isSessionOwnedBy(id, userId)) {
+            return "redirect:/chef/new";
+        }
+        var session = aiService.getSessionInfo(id);
+        // Only the latest page is rendered; older history is fetched on scroll
+        var messages = aiService.getRecentMessages(id, PAGE_SIZE + 1);
+        boolean hasOlder = messages.size() > PAGE_SIZE;
+        if (hasOlder) messages = messages.subList(1, messages.size());
         var allSessions = aiService.getSessionsForUser(userId);
 
         model.addAttribute("session", session);
@@ -74,19 +95,87 @@ public class ChefController {
         model.addAttribute("excludedIngredients", session.getExcludedIngredients());
         model.addAttribute("chefPersonality", session.getChefPersonality());
         model.addAttribute("messagesList", messages);
+        model.addAttribute("hasOlder", hasOlder);
         model.addAttribute("sessionId", id);
         model.addAttribute("allSessions", allSessions);
         model.addAttribute("userId", userId);
+        model.addAttribute("queuedMessages", turnQueue.getQueuedMessages(id));
+        model.addAttribute("turnInProgress", turnQueue.isBusy(id));
+        // One key per rendered form: a double submit of this form is recognized as the same message
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 
         return "chat";
     }
 
     @PostMapping("/chat/{id}")
-    public String sendMessage(@PathVariable Long id, @RequestParam String message) {
-        aiService.sendMessage(id, message);
+    public String sendMessage(@PathVariable Long id, @RequestParam String message,
+                              @RequestParam(required = false) String idempotencyKey,
+                              RedirectAttributes redirectAttributes) {
+        Long userId = getCurrentUserId();
+        if (!aiService.isSessionOwnedBy(id, userId)) {
+            return "redirect:/chef/new";
+        }
+        // The turn runs in the background; the page shows it as in progress until the reply is saved
+        var submission = turnQueue.submit(id, userId, idempotencyKey, message);
+        if (submission.outcome() == SessionTurnQueue.Outcome.QUEUE_FULL) {
+            redirectAttributes.addFlashAttribute("queueFull", true);
+        } else if (submission.isThrottled()) {
+            redirectAttributes.addFlashAttribute("busy", true);
+        }
         return "redirect:/chef/chat/" + id;
     }
 
+    @GetMapping("/chat/{id}/messages")
+    @ResponseBody
+    public ResponseEntity<ChatUpdate> getMessages(@PathVariable Long id,
+                                                  @RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Long before,
+                                                  @RequestParam(defaultValue = "" + PAGE_SIZE) int limit) {
+        if (!aiService.isSessionOwnedBy(id, getCurrentUserId())) {
+            return ResponseEntity.notFound().build();
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // One extra row tells whether there is more in the requested direction
+        List<ChatMessage> page;
+        boolean hasMore;
+        if (after != null) {
+            page = aiService.getMessagesAfter(id, after, pageSize + 1);
+            hasMore = page.size() > pageSize;
+            if (hasMore) page = page.subList(0, pageSize);
+        } else {
+            page = before != null
+                    ? aiService.getMessagesBefore(id, before, pageSize + 1)
+                    : aiService.getRecentMessages(id, pageSize + 1);
+            hasMore = page.size() > pageSize;
+            if (hasMore) page = page.subList(1, page.size());
+        }
+
+        return ResponseEntity.ok(new ChatUpdate(
+                page.stream().map(ChatMessageView::from).toList(),
+                hasMore,
+                turnQueue.isBusy(id),
+                turnQueue.getQueuedMessages(id)));
+    }
+
+    @PostMapping("/chat/{id}/messages")
+    @ResponseBody
+    public ResponseEntity<SessionTurnQueue.Submission> submitMessage(@PathVariable Long id, @RequestParam String message,
+                                                                     @RequestParam(required = false) String idempotencyKey) {
+        if (!aiService.isSessionOwnedBy(id, getCurrentUserId())) {
+            return ResponseEntity.notFound().build();
+        }
+        var submission = turnQueue.submit(id, getCurrentUserId(), idempotencyKey, message);
+        if (submission.isThrottled()) {
+            var response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+            if (submission.retryAfterSeconds() > 0) {
+                response.header(HttpHeaders.RETRY_AFTER, String.valueOf(submission.retryAfterSeconds()));
+            }
+            return response.body(submission);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(submission);
+    }
+
     @PostMapping("/delete-session/{id}")
     public String deleteSession(@PathVariable Long id, @RequestParam(required = false) Long userId) {
         if (userId == null) {
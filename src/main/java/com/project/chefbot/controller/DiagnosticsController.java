@@ -0,0 +1,123 @@
+package com.project.chefbot.controller;
+
+import com.project.chefbot.etl.CrawlService;
+import com.project.chefbot.etl.EtlWorker;
+import com.project.chefbot.service.LlmScheduler;
+import com.project.chefbot.service.QuantizedPgVectorStore;
+import com.project.chefbot.service.RoutingChatModel;
+import com.project.chefbot.service.SemanticAnswerCache;
+import com.project.chefbot.service.SessionArchiveService;
+import com.project.chefbot.service.VectorReindexService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+    private final SemanticAnswerCache answerCache;
+    private final RoutingChatModel chatModel;
+    private final SessionArchiveService archiveService;
+    private final ObjectProvider<QuantizedPgVectorStore> vectorStores;
+    private final LlmScheduler llmScheduler;
+    private final CrawlService crawlService;
+    private final EtlWorker etlWorker;
+    private final ObjectProvider<VectorReindexService> reindexService;
+
+    public DiagnosticsController(SemanticAnswerCache answerCache, RoutingChatModel chatModel, SessionArchiveService archiveService,
+                                 ObjectProvider<QuantizedPgVectorStore> vectorStores, LlmScheduler llmScheduler,
+                                 CrawlService crawlService, EtlWorker etlWorker, ObjectProvider<VectorReindexService> reindexService) {
+        this.answerCache = answerCache;
+        this.chatModel = chatModel;
+        this.archiveService = archiveService;
+        this.vectorStores = vectorStores;
+        this.llmScheduler = llmScheduler;
+        this.crawlService = crawlService;
+        this.etlWorker = etlWorker;
+        this.reindexService = reindexService;
+    }
+
+    @GetMapping("/answer-cache")
+    public Map<String, Object> answerCacheStats() {
+        return answerCache.getStats();
+    }
+
+    @GetMapping("/model-router")
+    public Map<String, Map<String, Object>> modelRouterStats() {
+        return chatModel.getStats();
+    }
+
+    @GetMapping("/llm-scheduler")
+    public Map<String, Map<String, Object>> llmSchedulerStats() {
+        return llmScheduler.getStats();
+    }
+
+    @GetMapping("/crawl")
+    public Map<String, Object> crawlStats() {
+        return crawlService.getStats();
+    }
+
+    @GetMapping("/etl-queue")
+    public Map<String, Object> etlQueueStats() {
+        return etlWorker.getStats();
+    }
+
+    @GetMapping("/session-archive")
+    public Map<String, Object> sessionArchiveStats() {
+        return archiveService.getStats();
+    }
+
+    @GetMapping("/vector-store")
+    public Map<String, Object> vectorStoreStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        vectorStores.orderedStream().forEach(store -> stats.put(store.getSettings().table(), store.getStats()));
+        return stats;
+    }
+
+    @PostMapping("/vector-store/recall")
+    public ResponseEntity<Map<String, Object>> measureVectorRecall(@RequestParam String collection,
+                                                                   @RequestParam(defaultValue = "20") int samples,
+                                                                   @RequestParam(defaultValue = "5") int k) {
+        return vectorStores.orderedStream()
+                .filter(store -> VectorReindexService.baseTable(store.getSettings().table()).equals(collection))
+                .findFirst()
+                .map(store -> ResponseEntity.ok(store.measureRecall(samples, k)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/vector-store/reindex")
+    public ResponseEntity<Map<String, Object>> reindexStats() {
+        VectorReindexService service = reindexService.getIfAvailable();
+        return service == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(service.getStats());
+    }
+
+    @PostMapping("/vector-store/reindex")
+    public ResponseEntity<Map<String, Object>> startReindex(@RequestParam String collection,
+                                                            @RequestParam(defaultValue = "false") boolean dropPrevious) {
+        VectorReindexService service = reindexService.getIfAvailable();
+        if (service == null) return ResponseEntity.notFound().build();
+        try {
+            return ResponseEntity.accepted().body(service.start(collection, dropPrevious));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/vector-store/reindex/cancel")
+    public ResponseEntity<Map<String, Object>> cancelReindex(@RequestParam String collection) {
+        VectorReindexService service = reindexService.getIfAvailable();
+        if (service == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(Map.of("cancelled", service.cancel(collection)));
+    }
+}
@@ -1,19 +1,32 @@
 package com.project.chefbot.controller;
 
-import com.project.chefbot.etl.KnowledgeBaseService;
+import com.project.chefbot.etl.CrawlService;
+import com.project.chefbot.etl.EtlTaskQueue;
+import com.project.chefbot.etl.KnowledgeBaseSnapshotService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/etl")
 public class EtlController {
 
-    private final KnowledgeBaseService knowledgeBaseService;
+    private final EtlTaskQueue taskQueue;
+    private final CrawlService crawlService;
+    private final ObjectProvider<KnowledgeBaseSnapshotService> snapshots;
 
-    public EtlController(KnowledgeBaseService knowledgeBaseService) {
-        this.knowledgeBaseService = knowledgeBaseService;
+    public EtlController(EtlTaskQueue taskQueue, CrawlService crawlService,
+                         ObjectProvider<KnowledgeBaseSnapshotService> snapshots) {
+        this.taskQueue = taskQueue;
+        this.crawlService = crawlService;
+        this.snapshots = snapshots;
     }
 
     @PostMapping("/scrape")
@@ -22,8 +35,48 @@ public class EtlController {
             return ResponseEntity.badRequest().body("URL list is empty.");
         }
 
-        knowledgeBaseService.processUrlsAsync(urls);
+        int queued = taskQueue.enqueue(urls);
 
-        return ResponseEntity.ok("Process started in background for " + urls.size() + " URLs. Check console for progress.");
+        return ResponseEntity.ok("Queued " + queued + " of " + urls.size() + " URLs for the ETL workers. Progress: /api/diagnostics/etl-queue");
     }
-}
\ No newline at end of file
+
+    @PostMapping("/crawl")
+    public ResponseEntity<String> addCrawlSeed(@RequestParam String seed, @RequestParam(required = false) String includePattern) {
+        try {
+            crawlService.addSeed(seed, includePattern);
+        } catch (IllegalArgumentException e) {
+            // Also covers an invalid includePattern (PatternSyntaxException)
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok("Seed registered; its sitemap is read on the next crawl run.");
+    }
+
+    /** Streams the knowledge base snapshot; curl -o kb.zip .../api/etl/snapshot */
+    @GetMapping("/snapshot")
+    public void exportSnapshot(HttpServletResponse response) throws IOException {
+        KnowledgeBaseSnapshotService snapshotService = snapshots.getIfAvailable();
+        if (snapshotService == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "No recipe vector store in this profile");
+            return;
+        }
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"chefbot-kb-" + LocalDate.now() + ".zip\"");
+        snapshotService.exportSnapshot(response.getOutputStream());
+    }
+
+    /** Restores a snapshot from the raw request body; curl --data-binary @kb.zip .../api/etl/snapshot?replace=true */
+    @PostMapping("/snapshot")
+    public ResponseEntity<?> importSnapshot(HttpServletRequest request, @RequestParam(defaultValue = "false") boolean replace) throws IOException {
+        KnowledgeBaseSnapshotService snapshotService = snapshots.getIfAvailable();
+        if (snapshotService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No recipe vector store in this profile.");
+        }
+        try {
+            return ResponseEntity.ok(snapshotService.importSnapshot(request.getInputStream(), replace));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.project.chefbot.controller;
+
+import com.project.chefbot.config.McpConnectionRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/mcp")
+public class McpStatusController {
+
+    private final McpConnectionRegistry mcpRegistry;
+
+    public McpStatusController(McpConnectionRegistry mcpRegistry) {
+        this.mcpRegistry = mcpRegistry;
+    }
+
+    /**
+     * Readiness of each MCP tool server. Returns 503 until at least one server is connected.
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Map<String, Object>>> status() {
+        Map<String, Map<String, Object>> status = mcpRegistry.getStatus();
+        boolean anyReady = status.values().stream()
+                .anyMatch(details -> McpConnectionRegistry.Status.READY.name().equals(details.get("status")));
+        return ResponseEntity.status(anyReady || status.isEmpty() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
+}
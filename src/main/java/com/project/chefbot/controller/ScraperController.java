@@ -1,5 +1,7 @@
 package com.project.chefbot.controller;
 
+import com.project.chefbot.etl.CrawlService;
+import com.project.chefbot.etl.EtlTaskQueue;
 import com.project.chefbot.etl.KnowledgeBaseService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,6 +20,8 @@ import java.util.stream.Collectors;
 public class ScraperController {
 
     private final KnowledgeBaseService kbService;
+    private final CrawlService crawlService;
+    private final EtlTaskQueue taskQueue;
 
     @GetMapping
     public String showScraperPage(Model model) {
@@ -33,11 +37,22 @@ public class ScraperController {
                     .filter(s -> !s.isEmpty())
                     .collect(Collectors.toList());
 
-            kbService.processUrlsAsync(urls);
+            taskQueue.enqueue(urls);
         }
         return "redirect:/scraper?started";
     }
 
+    @PostMapping("/crawl")
+    public String addCrawlSeed(@RequestParam("seed") String seed,
+                               @RequestParam(value = "includePattern", required = false) String includePattern) {
+        try {
+            crawlService.addSeed(seed, includePattern);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/scraper?crawlError";
+        }
+        return "redirect:/scraper?crawling";
+    }
+
     @PostMapping("/delete/{id}")
     public String deleteRecipe(@PathVariable Long id) {
         kbService.deleteRecipe(id);
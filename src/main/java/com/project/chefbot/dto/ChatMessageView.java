@@ -0,0 +1,12 @@
+package com.project.chefbot.dto;
+
+import com.project.chefbot.model.ChatMessage;
+
+import java.time.LocalDateTime;
+
+public record ChatMessageView(Long id, String sender, String html, LocalDateTime timestamp) {
+
+    public static ChatMessageView from(ChatMessage message) {
+        return new ChatMessageView(message.getId(), message.getSender(), message.getContentHtml(), message.getTimestamp());
+    }
+}
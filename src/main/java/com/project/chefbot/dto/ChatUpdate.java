@@ -0,0 +1,13 @@
+package com.project.chefbot.dto;
+
+import java.util.List;
+
+/**
+ * One page of chat messages for the polling / history endpoint, plus the session's turn state.
+ * hasMore refers to the direction that was requested (older history, or newer messages beyond the limit).
+ */
+public record ChatUpdate(List<ChatMessageView> messages,
+                         boolean hasMore,
+                         boolean turnInProgress,
+                         List<String> queuedMessages) {
+}
@@ -0,0 +1,349 @@
+package com.project.chefbot.etl;
+
+import com.project.chefbot.model.StoredRecipe;
+import com.project.chefbot.repository.StoredRecipeRepository;
+import com.project.chefbot.service.ChefMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Sitemap-driven crawl mode. Admins register a seed (a sitemap, or a site whose robots.txt / sitemap.xml
+ * lists one); each run re-reads due seeds into the persistent crawl_frontier, visits a batch of pending
+ * pages through the normal ingestion path, and re-checks stored recipes whose scannedAt is older than
+ * refresh-after-days (or whose sitemap lastmod is newer than the scan).
+ *
+ * Re-checks are conditional GETs with the stored ETag / Last-Modified. A 304, or a 200 whose visible-text
+ * hash is unchanged, only bumps scannedAt; Playwright, the LLM and the embedding model run only for pages
+ * that really changed. The frontier's unique url is the "seen" set: every discovered URL is upserted, so a
+ * URL added by another node or before a restart still gets a newer sitemap lastmod, and none is ever lost.
+ *
+ * Every main node runs the crawl. Due seeds, pending pages and due re-checks are claimed with
+ * FOR UPDATE SKIP LOCKED, pages and re-checks one at a time under a lease (lease-seconds), so each is
+ * fetched by one node; a claim left by a node that died is picked up again once its lease expires.
+ */
+@Service
+public class CrawlService {
+
+    enum State { PENDING, DONE, DUPLICATE, NO_RECIPE, FAILED }
+
+    private static final int MAX_SITEMAPS_PER_SEED = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PageFetcher fetcher;
+    private final KnowledgeBaseService kbService;
+    private final StoredRecipeRepository recipeRepo;
+    private final ChefMetrics metrics;
+
+    @Value("${chefbot.crawl.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chefbot.crawl.pages-per-run:10}")
+    private int pagesPerRun;
+
+    @Value("${chefbot.crawl.refreshes-per-run:20}")
+    private int refreshesPerRun;
+
+    @Value("${chefbot.crawl.delay-ms:2000}")
+    private long delayMillis;
+
+    @Value("${chefbot.crawl.refresh-after-days:7}")
+    private int refreshAfterDays;
+
+    @Value("${chefbot.crawl.seed-interval-hours:24}")
+    private int seedIntervalHours;
+
+    @Value("${chefbot.crawl.max-urls-per-seed:5000}")
+    private int maxUrlsPerSeed;
+
+    @Value("${chefbot.crawl.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${chefbot.crawl.delete-gone:true}")
+    private boolean deleteGone;
+
+    @Value("${chefbot.crawl.lease-seconds:600}")
+    private int leaseSeconds;
+
+    public CrawlService(JdbcTemplate jdbcTemplate, PageFetcher fetcher, KnowledgeBaseService kbService,
+                        StoredRecipeRepository recipeRepo, ChefMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetcher = fetcher;
+        this.kbService = kbService;
+        this.recipeRepo = recipeRepo;
+        this.metrics = metrics;
+    }
+
+    /** Registers (or updates) a seed; it is read on the next run. */
+    public void addSeed(String seedUrl, String includePattern) {
+        URI uri = URI.create(seedUrl.trim());
+        if (uri.getHost() == null || !List.of("http", "https").contains(String.valueOf(uri.getScheme()).toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Seed must be an http(s) URL: " + seedUrl);
+        }
+        String pattern = includePattern == null || includePattern.isBlank() ? null : includePattern.trim();
+        if (pattern != null) Pattern.compile(pattern);
+
+        jdbcTemplate.update("""
+                INSERT INTO crawl_seed (url, include_pattern) VALUES (?, ?)
+                ON CONFLICT (url) DO UPDATE SET include_pattern = EXCLUDED.include_pattern, last_read_at = NULL
+                """, uri.toString(), pattern);
+        System.out.println("[Crawl] Seed registered: " + uri + (pattern == null ? "" : " (include " + pattern + ")"));
+    }
+
+    @Scheduled(initialDelayString = "${chefbot.crawl.initial-delay-ms:60000}", fixedDelayString = "${chefbot.crawl.interval-ms:60000}")
+    public void run() {
+        if (!enabled) return;
+        try {
+            readDueSeeds();
+            visitPending();
+            refreshDue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[Crawl] Run failed: " + e.getMessage());
+        }
+    }
+
+    private void readDueSeeds() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(seedIntervalHours));
+        // Marked read as they are claimed: a seed whose read fails or is cut short waits for the next interval
+        List<Map<String, Object>> seeds = jdbcTemplate.queryForList("""
+                UPDATE crawl_seed s SET last_read_at = now()
+                FROM (SELECT url FROM crawl_seed
+                      WHERE last_read_at IS NULL OR last_read_at < ?
+                      FOR UPDATE SKIP LOCKED) due
+                WHERE s.url = due.url
+                RETURNING s.url, s.include_pattern
+                """, cutoff);
+        for (Map<String, Object> seed : seeds) {
+            String url = (String) seed.get("url");
+            try {
+                int added = discover(url, (String) seed.get("include_pattern"));
+                System.out.println("[Crawl] Seed " + url + ": " + added + " URL(s) added to or updated in the frontier");
+            } catch (Exception e) {
+                System.err.println("[Crawl] Could not read seed " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Walks the seed's sitemaps (nested indexes included) and upserts same-host pages into the frontier. */
+    int discover(String seedUrl, String includePattern) throws Exception {
+        URI seed = URI.create(seedUrl);
+        String host = seed.getHost().toLowerCase(Locale.ROOT);
+        Pattern include = includePattern == null ? null : Pattern.compile(includePattern);
+
+        Deque<String> sitemaps = new ArrayDeque<>(sitemapsOf(seed));
+        Set<String> readSitemaps = new HashSet<>();
+        List<SitemapParser.Entry> pages = new ArrayList<>();
+
+        while (!sitemaps.isEmpty() && readSitemaps.size() < MAX_SITEMAPS_PER_SEED && pages.size() < maxUrlsPerSeed) {
+            String sitemapUrl = sitemaps.poll();
+            if (!readSitemaps.add(sitemapUrl)) continue;
+
+            PageFetcher.Fetch fetch = fetcher.fetch(sitemapUrl, null, null);
+            if (!fetch.ok()) continue;
+            SitemapParser.Sitemap sitemap;
+            try (InputStream in = fetcher.open(fetch, sitemapUrl)) {
+                sitemap = SitemapParser.parse(in, maxUrlsPerSeed - pages.size() + MAX_SITEMAPS_PER_SEED);
+            }
+            for (String nested : sitemap.sitemaps()) {
+                if (sameHost(nested, host)) sitemaps.add(nested);
+            }
+            for (SitemapParser.Entry page : sitemap.pages()) {
+                if (pages.size() >= maxUrlsPerSeed) break;
+                if (sameHost(page.loc(), host) && (include == null || include.matcher(page.loc()).find())) {
+                    pages.add(new SitemapParser.Entry(RecipeDeduplicator.canonicalUrl(page.loc()), page.lastmod()));
+                }
+            }
+        }
+        return enqueue(seedUrl, pages);
+    }
+
+    private List<String> sitemapsOf(URI seed) {
+        String path = seed.getPath() == null ? "" : seed.getPath().toLowerCase(Locale.ROOT);
+        if (path.endsWith(".xml") || path.endsWith(".xml.gz")) return List.of(seed.toString());
+
+        String origin = seed.getScheme() + "://" + seed.getRawAuthority();
+        List<String> listed = new ArrayList<>();
+        try {
+            PageFetcher.Fetch robots = fetcher.fetch(origin + "/robots.txt", null, null);
+            if (robots.ok()) {
+                for (String line : new String(robots.body(), StandardCharsets.UTF_8).split("\\r?\\n")) {
+                    if (line.regionMatches(true, 0, "Sitemap:", 0, 8)) listed.add(line.substring(8).trim());
+                }
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        }
+        return listed.isEmpty() ? List.of(origin + "/sitemap.xml") : listed;
+    }
+
+    private int enqueue(String seedUrl, List<SitemapParser.Entry> pages) {
+        List<Object[]> rows = new ArrayList<>();
+        for (SitemapParser.Entry page : pages) {
+            rows.add(new Object[]{page.loc(), seedUrl, page.lastmod() == null ? null : Timestamp.valueOf(page.lastmod())});
+        }
+        int changed = 0;
+        // A newer lastmod on a known URL makes its stored recipe due for a re-check; unchanged rows are not rewritten
+        for (int count : jdbcTemplate.batchUpdate("""
+                INSERT INTO crawl_frontier (url, seed, lastmod) VALUES (?, ?, ?)
+                ON CONFLICT (url) DO UPDATE SET lastmod = GREATEST(crawl_frontier.lastmod, EXCLUDED.lastmod)
+                WHERE EXCLUDED.lastmod > COALESCE(crawl_frontier.lastmod, '-infinity'::timestamp)
+                """, rows)) {
+            changed += Math.max(0, count);
+        }
+        return changed;
+    }
+
+    private void visitPending() throws InterruptedException {
+        for (int visited = 0; visited < pagesPerRun; visited++) {
+            Map<String, Object> row = claimPending();
+            if (row == null) break;
+            long id = ((Number) row.get("id")).longValue();
+            String url = (String) row.get("url");
+            int attempts = ((Number) row.get("attempts")).intValue() + 1;
+
+            State state;
+            try {
+                PageFetcher.Fetch fetch = fetcher.fetch(url, null, null);
+                if (fetch.ok()) {
+                    state = switch (kbService.ingest(url, fetch).outcome()) {
+                        case "saved", "skipped" -> State.DONE;
+                        case "duplicate" -> State.DUPLICATE;
+                        case "no_recipe" -> State.NO_RECIPE;
+                        default -> attempts >= maxAttempts ? State.FAILED : State.PENDING;
+                    };
+                } else {
+                    state = fetch.gone() || attempts >= maxAttempts ? State.FAILED : State.PENDING;
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                System.err.println("[Crawl] Fetch failed for " + url + ": " + e.getMessage());
+                state = attempts >= maxAttempts ? State.FAILED : State.PENDING;
+            }
+
+            // A page left PENDING for a retry keeps its lease, so no node picks it up again before it expires
+            jdbcTemplate.update("UPDATE crawl_frontier SET state = ?, attempts = ?, visited_at = now(), "
+                    + "lease_until = CASE WHEN ? THEN lease_until END WHERE id = ?",
+                    state.name(), attempts, state == State.PENDING, id);
+            Thread.sleep(delayMillis);
+        }
+    }
+
+    private void refreshDue() throws InterruptedException {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(refreshAfterDays);
+        for (int checked = 0; checked < refreshesPerRun; checked++) {
+            Long id = claimDueRefresh(cutoff);
+            if (id == null) break;
+            StoredRecipe stored = recipeRepo.findById(id).orElse(null);
+            if (stored == null) continue;
+            String outcome;
+            try {
+                PageFetcher.Fetch fetch = fetcher.fetch(stored.getUrl(), stored.getEtag(), stored.getLastModified());
+                if (fetch.gone() && deleteGone) {
+                    kbService.deleteRecipe(stored.getId());
+                    outcome = "gone";
+                } else if (fetch.notModified()
+                        || (fetch.ok() && fetch.contentHash().equals(stored.getContentHash()))) {
+                    KnowledgeBaseService.setValidators(stored, fetch);
+                    stored.setScannedAt(LocalDateTime.now());
+                    recipeRepo.save(stored);
+                    outcome = "unchanged";
+                } else if (fetch.ok()) {
+                    // Counted by the knowledge base service itself
+                    kbService.refresh(stored, fetch);
+                    outcome = null;
+                } else {
+                    outcome = markChecked(stored);
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                System.err.println("[Crawl] Re-check failed for " + stored.getUrl() + ": " + e.getMessage());
+                outcome = markChecked(stored);
+            }
+            if (outcome != null) metrics.recordEtlResult(outcome);
+            Thread.sleep(delayMillis);
+        }
+    }
+
+    /** Next pending page under a lease for this node, or null. */
+    private Map<String, Object> claimPending() {
+        List<Map<String, Object>> claimed = jdbcTemplate.queryForList("""
+                UPDATE crawl_frontier f SET lease_until = now() + make_interval(secs => ?)
+                FROM (SELECT id FROM crawl_frontier
+                      WHERE state = 'PENDING' AND (lease_until IS NULL OR lease_until < now())
+                      ORDER BY discovered_at
+                      LIMIT 1
+                      FOR UPDATE SKIP LOCKED) next
+                WHERE f.id = next.id
+                RETURNING f.id, f.url, f.attempts
+                """, leaseSeconds);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    /**
+     * Next recipe due for a re-check (same order as StoredRecipeRepository.findIdsDueForRefresh) under a lease,
+     * or null. The lease is not cleared: a re-check moves scannedAt, and one that did not waits for the lease.
+     */
+    private Long claimDueRefresh(LocalDateTime cutoff) {
+        List<Long> claimed = jdbcTemplate.queryForList("""
+                UPDATE stored_recipe r SET refresh_lease_until = now() + make_interval(secs => ?)
+                FROM (SELECT due.id FROM stored_recipe due
+                      LEFT JOIN crawl_frontier f ON f.url = due.url
+                      WHERE (due.scanned_at < ? OR f.lastmod > due.scanned_at)
+                        AND (due.refresh_lease_until IS NULL OR due.refresh_lease_until < now())
+                      ORDER BY due.scanned_at
+                      LIMIT 1
+                      FOR UPDATE OF due SKIP LOCKED) next
+                WHERE r.id = next.id
+                RETURNING r.id
+                """, Long.class, leaseSeconds, Timestamp.valueOf(cutoff));
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    // An unreachable page is not re-checked on every run: it waits for the next refresh interval
+    private String markChecked(StoredRecipe stored) {
+        stored.setScannedAt(LocalDateTime.now());
+        recipeRepo.save(stored);
+        return "refresh_error";
+    }
+
+    private static boolean sameHost(String url, String host) {
+        try {
+            String other = URI.create(url.trim()).getHost();
+            return other != null && other.toLowerCase(Locale.ROOT).equals(host);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("seeds", jdbcTemplate.queryForObject("SELECT count(*) FROM crawl_seed", Long.class));
+        jdbcTemplate.query("SELECT state, count(*) FROM crawl_frontier GROUP BY state ORDER BY state",
+                rs -> {
+                    stats.put("frontier." + rs.getString(1), rs.getLong(2));
+                });
+        stats.put("dueForRefresh", recipeRepo.findIdsDueForRefresh(LocalDateTime.now().minusDays(refreshAfterDays), 10_000).size());
+        return stats;
+    }
+}
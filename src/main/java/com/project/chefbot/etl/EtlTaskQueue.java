@@ -0,0 +1,159 @@
+package com.project.chefbot.etl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * URL ingestion tasks in the etl_task table, shared by every node. Workers claim PENDING tasks with
+ * FOR UPDATE SKIP LOCKED, so concurrent claimers never wait on or take the same row, and hold them under a
+ * lease that their heartbeats extend. A task whose lease runs out (node crashed, JVM paused) is put back
+ * by whichever node runs the reclaim job next; completions are fenced on the worker id, so a late finish
+ * of a reclaimed task is ignored. All lease times use the database clock, never a node's.
+ */
+@Service
+public class EtlTaskQueue {
+
+    public record Task(long id, String url, int attempts) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${chefbot.etl.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${chefbot.etl.queue.retry-backoff-seconds:60}")
+    private long retryBackoffSeconds;
+
+    @Value("${chefbot.etl.queue.retention-days:7}")
+    private int retentionDays;
+
+    public EtlTaskQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Queues the URLs (canonicalized); a URL already pending or running is not queued twice. Returns the number added. */
+    public int enqueue(List<String> urls) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String url : urls) {
+            if (url == null || url.isBlank()) continue;
+            String canonical = RecipeDeduplicator.canonicalUrl(url.trim());
+            if (canonical.length() <= 1000) unique.add(canonical);
+        }
+        List<Object[]> rows = unique.stream().map(url -> new Object[]{url}).toList();
+
+        int added = 0;
+        for (int count : jdbcTemplate.batchUpdate(
+                "INSERT INTO etl_task (url) VALUES (?) ON CONFLICT (url) WHERE state IN ('PENDING', 'RUNNING') DO NOTHING", rows)) {
+            added += Math.max(0, count);
+        }
+        System.out.println("[EtlQueue] Queued " + added + " of " + urls.size() + " URL(s)");
+        return added;
+    }
+
+    /** Claims up to limit due tasks for this worker; rows locked by other claimers are skipped, not waited on. */
+    public List<Task> claim(String worker, int limit, int leaseSeconds) {
+        if (limit <= 0) return List.of();
+        return jdbcTemplate.query("""
+                UPDATE etl_task t
+                SET state = 'RUNNING', worker = ?, attempts = t.attempts + 1, lease_until = now() + make_interval(secs => ?)
+                FROM (SELECT id FROM etl_task
+                      WHERE state = 'PENDING' AND available_at <= now()
+                      ORDER BY available_at, id
+                      LIMIT ?
+                      FOR UPDATE SKIP LOCKED) next
+                WHERE t.id = next.id
+                RETURNING t.id, t.url, t.attempts
+                """, (rs, rowNum) -> new Task(rs.getLong("id"), rs.getString("url"), rs.getInt("attempts")),
+                worker, leaseSeconds, limit);
+    }
+
+    /** Extends the leases this worker still holds; returns how many were renewed. */
+    public int heartbeat(String worker, Collection<Long> taskIds, int leaseSeconds) {
+        if (taskIds.isEmpty()) return 0;
+        List<Object[]> rows = new ArrayList<>();
+        for (Long id : taskIds) rows.add(new Object[]{leaseSeconds, id, worker});
+        int renewed = 0;
+        for (int count : jdbcTemplate.batchUpdate("UPDATE etl_task SET lease_until = now() + make_interval(secs => ?) "
+                + "WHERE id = ? AND worker = ? AND state = 'RUNNING'", rows)) {
+            renewed += Math.max(0, count);
+        }
+        return renewed;
+    }
+
+    /** False if the task was reclaimed from this worker in the meantime. */
+    public boolean complete(Task task, String worker, String outcome) {
+        return jdbcTemplate.update("""
+                UPDATE etl_task SET state = 'DONE', outcome = ?, finished_at = now(), lease_until = NULL
+                WHERE id = ? AND worker = ? AND state = 'RUNNING'
+                """, outcome, task.id(), worker) == 1;
+    }
+
+    /** Retries with exponential backoff, or gives the task up as FAILED after max-attempts. */
+    public boolean fail(Task task, String worker, String error) {
+        return jdbcTemplate.update("""
+                UPDATE etl_task
+                SET state = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'PENDING' END,
+                    finished_at = CASE WHEN attempts >= ? THEN now() END,
+                    available_at = now() + make_interval(secs => ?),
+                    outcome = 'error', last_error = left(?, 1000), worker = NULL, lease_until = NULL
+                WHERE id = ? AND worker = ? AND state = 'RUNNING'
+                """, maxAttempts, maxAttempts, retryDelaySeconds(task.attempts(), retryBackoffSeconds),
+                String.valueOf(error), task.id(), worker) == 1;
+    }
+
+    /** Hands this worker's running tasks back without counting an attempt (orderly shutdown). */
+    public int release(String worker) {
+        return jdbcTemplate.update("""
+                UPDATE etl_task SET state = 'PENDING', worker = NULL, lease_until = NULL, attempts = greatest(attempts - 1, 0)
+                WHERE worker = ? AND state = 'RUNNING'
+                """, worker);
+    }
+
+    /** Runs on every node; the UPDATE is atomic, so concurrent runs reclaim each task once. */
+    @Scheduled(initialDelayString = "${chefbot.etl.queue.reclaim-ms:30000}", fixedDelayString = "${chefbot.etl.queue.reclaim-ms:30000}")
+    public void reclaimExpired() {
+        try {
+            int reclaimed = jdbcTemplate.update("""
+                    UPDATE etl_task
+                    SET state = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'PENDING' END,
+                        finished_at = CASE WHEN attempts >= ? THEN now() END,
+                        last_error = 'lease expired on ' || worker, worker = NULL, lease_until = NULL
+                    WHERE state = 'RUNNING' AND lease_until < now()
+                    """, maxAttempts, maxAttempts);
+            if (reclaimed > 0) {
+                System.out.println("[EtlQueue] Reclaimed " + reclaimed + " task(s) with expired leases");
+            }
+            jdbcTemplate.update("DELETE FROM etl_task WHERE state IN ('DONE', 'FAILED') AND finished_at < now() - make_interval(days => ?)",
+                    retentionDays);
+        } catch (Exception e) {
+            System.err.println("[EtlQueue] Reclaim failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Long> states = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT state, count(*) AS tasks FROM etl_task GROUP BY state ORDER BY state",
+                rs -> { states.put(rs.getString("state"), rs.getLong("tasks")); });
+        stats.put("tasks", states);
+        stats.put("activeWorkers", jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT worker) FROM etl_task WHERE state = 'RUNNING'", Long.class));
+        stats.put("oldestPendingSeconds", jdbcTemplate.queryForObject(
+                "SELECT COALESCE(EXTRACT(EPOCH FROM now() - min(enqueued_at))::bigint, 0) FROM etl_task WHERE state = 'PENDING'", Long.class));
+        return stats;
+    }
+
+    /** base, 2 x base, 4 x base ... capped at 64 x base. */
+    static long retryDelaySeconds(int attempts, long baseSeconds) {
+        return baseSeconds << Math.min(Math.max(attempts - 1, 0), 6);
+    }
+}
@@ -0,0 +1,159 @@
+package com.project.chefbot.etl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls ingestion tasks from the shared {@link EtlTaskQueue} and runs up to chefbot.etl.worker.concurrency
+ * of them at once on this node. Every node with the worker enabled takes part, so adding instances (or
+ * worker-only instances, profile "worker") adds scraping throughput. Leases of running tasks are renewed
+ * every heartbeat; stopping the bean (shutdown, CRaC checkpoint) waits briefly and hands unfinished tasks
+ * back to the queue.
+ */
+@Component
+public class EtlWorker implements SmartLifecycle {
+
+    private static final long STOP_WAIT_SECONDS = 30;
+
+    private final EtlTaskQueue queue;
+    private final KnowledgeBaseService kbService;
+    private final Map<Long, EtlTaskQueue.Task> inFlight = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private volatile String workerId;
+    private volatile boolean running;
+
+    @Value("${chefbot.etl.worker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chefbot.etl.worker.concurrency:2}")
+    private int concurrency;
+
+    @Value("${chefbot.etl.worker.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${chefbot.etl.worker.delay-ms:2000}")
+    private long delayMillis;
+
+    public EtlWorker(EtlTaskQueue queue, KnowledgeBaseService kbService) {
+        this.queue = queue;
+        this.kbService = kbService;
+    }
+
+    @Scheduled(initialDelayString = "${chefbot.etl.worker.poll-ms:2000}", fixedDelayString = "${chefbot.etl.worker.poll-ms:2000}")
+    public void poll() {
+        if (!enabled || !running) return;
+        try {
+            for (EtlTaskQueue.Task task : queue.claim(workerId, concurrency - inFlight.size(), leaseSeconds)) {
+                inFlight.put(task.id(), task);
+                executor.execute(() -> process(task));
+            }
+        } catch (Exception e) {
+            System.err.println("[EtlWorker] Claim failed: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chefbot.etl.worker.heartbeat-ms:20000}")
+    public void heartbeat() {
+        if (inFlight.isEmpty()) return;
+        try {
+            int renewed = queue.heartbeat(workerId, inFlight.keySet(), leaseSeconds);
+            if (renewed < inFlight.size()) {
+                // Reclaimed after a long pause; the other worker's result wins, ours will not be recorded
+                System.out.println("[EtlWorker] " + (inFlight.size() - renewed) + " lease(s) lost");
+            }
+        } catch (Exception e) {
+            System.err.println("[EtlWorker] Heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    private void process(EtlTaskQueue.Task task) {
+        try {
+            String outcome = kbService.ingest(task.url(), null).outcome();
+            if ("error".equals(outcome)) {
+                queue.fail(task, workerId, "ingest failed (attempt " + task.attempts() + ")");
+            } else {
+                queue.complete(task, workerId, outcome);
+            }
+            // Politeness delay per worker slot, as between the URLs of a single import before
+            if (!"skipped".equals(outcome) && delayMillis > 0) Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[EtlWorker] Task " + task.id() + " failed: " + e.getMessage());
+            try {
+                queue.fail(task, workerId, e.getMessage());
+            } catch (Exception ignored) {
+                // The lease expires and the task is reclaimed
+            }
+        } finally {
+            inFlight.remove(task.id());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) return;
+        // A fresh id on every start: replicas restored from one checkpoint must not share it
+        workerId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        running = true;
+        if (enabled) {
+            System.out.println("[EtlWorker] " + workerId + " started, concurrency " + concurrency);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            int released = queue.release(workerId);
+            if (released > 0) System.out.println("[EtlWorker] Released " + released + " unfinished task(s)");
+        } catch (Exception e) {
+            System.err.println("[EtlWorker] Release failed, leases will expire: " + e.getMessage());
+        }
+        inFlight.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("worker", workerId);
+        stats.put("enabled", enabled);
+        stats.put("concurrency", concurrency);
+        stats.put("inFlight", inFlight.size());
+        stats.put("queue", queue.getStats());
+        return stats;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
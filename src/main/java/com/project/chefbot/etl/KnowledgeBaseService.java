@@ -1,14 +1,18 @@
 package com.project.chefbot.etl;
 
+import com.project.chefbot.config.VectorStoreConfig;
 import com.project.chefbot.model.StoredRecipe;
 import com.project.chefbot.repository.StoredRecipeRepository;
+import com.project.chefbot.service.ChefMetrics;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,16 +25,34 @@ import java.util.stream.Collectors;
 @Service
 public class KnowledgeBaseService {
 
+    /** Outcome is one of saved, skipped, duplicate, no_recipe, error; the recipe is set when saved. */
+    public record IngestResult(String outcome, StoredRecipe recipe) {}
+
     private final VectorStore vectorStore;
     private final ScraperService scraperService;
     private final StoredRecipeRepository recipeRepo;
+    private final ChefMetrics metrics;
+    private final RecipeDeduplicator deduplicator;
+    private final PageFetcher pageFetcher;
+
+    @Value("${chefbot.vector.chunk-size:800}")
+    private int chunkSize;
+
+    @Value("${chefbot.vector.min-chunk-chars:400}")
+    private int minChunkChars;
 
-    public KnowledgeBaseService(@Autowired(required = false) VectorStore vectorStore,
+    public KnowledgeBaseService(@Autowired(required = false) @Qualifier(VectorStoreConfig.RECIPES) VectorStore vectorStore,
                                 ScraperService scraperService,
-                                StoredRecipeRepository recipeRepo) {
+                                StoredRecipeRepository recipeRepo,
+                                ChefMetrics metrics,
+                                RecipeDeduplicator deduplicator,
+                                PageFetcher pageFetcher) {
         this.vectorStore = vectorStore;
         this.scraperService = scraperService;
         this.recipeRepo = recipeRepo;
+        this.metrics = metrics;
+        this.deduplicator = deduplicator;
+        this.pageFetcher = pageFetcher;
     }
 
     public List<StoredRecipe> getAllRecipes() {
@@ -40,13 +62,22 @@ public class KnowledgeBaseService {
     @Transactional
     public void deleteRecipe(Long id) {
         StoredRecipe recipe = recipeRepo.findById(id).orElseThrow();
-        String urlToDelete = recipe.getUrl();
+        deleteVectors(recipe.getUrl());
+        recipeRepo.delete(recipe);
+    }
 
-        if (vectorStore != null) {
+    private void deleteVectors(String url) {
+        if (vectorStore == null) return;
+        try {
+            FilterExpressionBuilder b = new FilterExpressionBuilder();
+            Filter.Expression byUrl = b.eq("url", url).build();
             try {
-                FilterExpressionBuilder b = new FilterExpressionBuilder();
+                vectorStore.delete(byUrl);
+                System.out.println("Deleted vectors for URL: " + url);
+            } catch (UnsupportedOperationException e) {
+                // Store without filtered deletes: look the ids up first
                 SearchRequest request = SearchRequest.builder()
-                        .filterExpression(b.eq("url", urlToDelete).build())
+                        .filterExpression(byUrl)
                         .topK(1000)
                         .build();
 
@@ -55,63 +86,156 @@ public class KnowledgeBaseService {
 
                 if (!ids.isEmpty()) {
                     vectorStore.delete(ids);
-                    System.out.println("Deleted " + ids.size() + " vectors for URL: " + urlToDelete);
+                    System.out.println("Deleted " + ids.size() + " vectors for URL: " + url);
                 }
-            } catch (Exception e) {
-                System.err.println("Error deleting vectors: " + e.getMessage());
             }
+        } catch (Exception e) {
+            System.err.println("Error deleting vectors: " + e.getMessage());
         }
+    }
 
-        recipeRepo.delete(recipe);
+    /**
+     * Scrapes, de-duplicates, embeds and stores one URL. The page's HTTP validators and content hash are
+     * kept with the recipe for conditional re-scans; pass the fetch if the caller already made one.
+     */
+    public IngestResult ingest(String requestedUrl, PageFetcher.Fetch fetch) {
+        // Stored and indexed under the canonical form, so tracking parameters do not create new entries
+        String url = RecipeDeduplicator.canonicalUrl(requestedUrl);
+        try {
+            if (recipeRepo.findByUrl(url).isPresent() || recipeRepo.findByUrl(requestedUrl).isPresent()) {
+                System.out.println("Skipping already scanned URL: " + url);
+                metrics.recordEtlResult("skipped");
+                return new IngestResult("skipped", null);
+            }
+
+            ExtractedRecipe recipe = scraperService.scrapeUrl(url);
+
+            long[] signature = recipe != null && deduplicator.isEnabled() ? deduplicator.signature(recipe) : null;
+            RecipeDeduplicator.Match duplicate = signature == null ? null
+                    : metrics.timeEtlStage("dedup", () -> deduplicator.findDuplicate(signature));
+
+            if (duplicate != null) {
+                System.out.println("Skipping near-duplicate of recipe " + duplicate.recipeId() + " (similarity "
+                        + String.format("%.2f", duplicate.similarity()) + "): " + url);
+                metrics.recordEtlResult("duplicate");
+                return new IngestResult("duplicate", null);
+            }
+            if (recipe == null) {
+                metrics.recordEtlResult("no_recipe");
+                return new IngestResult("no_recipe", null);
+            }
+
+            // Svae in pgvector
+            System.out.println("Processing and saving recipe from URL: " + url);
+            System.out.println(recipe);
+            String document = embed(url, recipe);
+
+            // Save in SQL
+            StoredRecipe stored = new StoredRecipe();
+            stored.setTitle(recipe.title());
+            stored.setDiet(recipe.diet());
+            stored.setUrl(url);
+            stored.setDocument(document);
+            stored.setScannedAt(LocalDateTime.now());
+            setValidators(stored, fetch != null ? fetch : fetchQuietly(url));
+            StoredRecipe saved = metrics.timeEtlStage("store", () -> {
+                StoredRecipe result = recipeRepo.save(stored);
+                if (signature != null) deduplicator.index(result.getId(), signature);
+                return result;
+            });
+
+            System.out.println("Saved recipe: " + recipe.title());
+            metrics.recordEtlResult("saved");
+            return new IngestResult("saved", saved);
+        } catch (Exception e) {
+            System.err.println("Error processing " + url + ": " + e.getMessage());
+            metrics.recordEtlResult("error");
+            return new IngestResult("error", null);
+        }
     }
 
-    @Async
-    public void processUrlsAsync(List<String> urls) {
-        if (vectorStore == null) {
-            System.err.println("VectorStore is not available.");
-            return;
+    /**
+     * Re-extracts a recipe whose page has changed and replaces its vectors. If the page no longer yields a
+     * recipe the stored version is kept, so a broken deploy on the source site does not empty the KB.
+     */
+    public String refresh(StoredRecipe stored, PageFetcher.Fetch fetch) {
+        try {
+            ExtractedRecipe recipe = scraperService.scrapeUrl(stored.getUrl());
+            if (recipe == null) {
+                stored.setScannedAt(LocalDateTime.now());
+                recipeRepo.save(stored);
+                metrics.recordEtlResult("refresh_no_recipe");
+                return "refresh_no_recipe";
+            }
+
+            deleteVectors(stored.getUrl());
+            String document = embed(stored.getUrl(), recipe);
+
+            stored.setTitle(recipe.title());
+            stored.setDiet(recipe.diet());
+            stored.setDocument(document);
+            stored.setScannedAt(LocalDateTime.now());
+            setValidators(stored, fetch);
+            metrics.timeEtlStage("store", () -> {
+                StoredRecipe result = recipeRepo.save(stored);
+                if (deduplicator.isEnabled()) deduplicator.index(result.getId(), deduplicator.signature(recipe));
+                return result;
+            });
+
+            System.out.println("Refreshed recipe: " + recipe.title());
+            metrics.recordEtlResult("refreshed");
+            return "refreshed";
+        } catch (Exception e) {
+            System.err.println("Error refreshing " + stored.getUrl() + ": " + e.getMessage());
+            metrics.recordEtlResult("error");
+            return "error";
         }
+    }
 
-        TokenTextSplitter textSplitter = new TokenTextSplitter(800, 400, 5, 10000, true);
+    /** Returns the embedded text, which is kept with the recipe for re-indexing. */
+    private String embed(String url, ExtractedRecipe recipe) {
+        if (vectorStore == null) {
+            throw new IllegalStateException("VectorStore is not available.");
+        }
+        String document = getText(recipe);
+        List<Document> splitDocs = chunks(url, recipe.title(), recipe.diet(), document);
+        // Embedding happens inside the vector store add, so this stage is embed + vector insert
+        metrics.timeEtlStage("embed", () -> {
+            vectorStore.add(splitDocs);
+            return splitDocs.size();
+        });
+        return document;
+    }
 
-        for (String url : urls) {
-            try {
-                if (recipeRepo.findByUrl(url).isPresent()) {
-                    System.out.println("Skipping already scanned URL: " + url);
-                    continue;
-                }
+    /** The chunks stored for a recipe; also used to rebuild the collection from stored documents. */
+    public List<Document> chunks(String url, String title, String diet, String document) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("url", url);
+        metadata.put("type", "web-recipe");
+        metadata.put("diet", diet);
+        metadata.put("title", title);
 
-                ExtractedRecipe recipe = scraperService.scrapeUrl(url);
-
-                if (recipe != null) {
-                    // Svae in pgvector
-                    System.out.println("Processing and saving recipe from URL: " + url);
-                    System.out.println(recipe);
-                    Document doc = getDoc(url, recipe);
-                    List<Document> splitDocs = textSplitter.apply(List.of(doc));
-                    vectorStore.add(splitDocs);
-
-                    // Save in SQL
-                    StoredRecipe stored = new StoredRecipe();
-                    stored.setTitle(recipe.title());
-                    stored.setDiet(recipe.diet());
-                    stored.setUrl(url);
-                    stored.setScannedAt(LocalDateTime.now());
-                    recipeRepo.save(stored);
-
-                    System.out.println("Saved recipe: " + recipe.title());
-                }
+        return new TokenTextSplitter(chunkSize, minChunkChars, 5, 10000, true).apply(List.of(new Document(document, metadata)));
+    }
 
-                Thread.sleep(2000);
+    static void setValidators(StoredRecipe stored, PageFetcher.Fetch fetch) {
+        if (fetch == null || !fetch.ok()) return;
+        stored.setEtag(fetch.etag());
+        stored.setLastModified(fetch.lastModified());
+        stored.setContentHash(fetch.contentHash());
+    }
 
-            } catch (Exception e) {
-                System.err.println("Error processing " + url + ": " + e.getMessage());
-            }
+    private PageFetcher.Fetch fetchQuietly(String url) {
+        try {
+            return pageFetcher.fetch(url, null, null);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return null;
         }
     }
 
-    private Document getDoc(String url, ExtractedRecipe recipe) {
-        String content = String.format("""
+    private String getText(ExtractedRecipe recipe) {
+        return String.format("""
             TITLE: %s
             DIET: %s
             INGREDIENTS:
@@ -119,13 +243,5 @@ public class KnowledgeBaseService {
             INSTRUCTIONS:
             %s
             """, recipe.title(), recipe.diet(), recipe.ingredients(), recipe.instructions());
-
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("url", url);
-        metadata.put("type", "web-recipe");
-        metadata.put("diet", recipe.diet());
-        metadata.put("title", recipe.title());
-
-        return new Document(content, metadata);
     }
 }
\ No newline at end of file
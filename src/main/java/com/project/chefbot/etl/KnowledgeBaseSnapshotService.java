@@ -0,0 +1,332 @@
+package com.project.chefbot.etl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.chefbot.config.VectorStoreConfig;
+import com.project.chefbot.service.QuantizedPgVectorStore;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Portable snapshot of the recipe knowledge base, so a new environment gets it without rendering, extracting
+ * and embedding every URL again. A snapshot is a zip: manifest.json first (format version, embedding model,
+ * dimensions, column lists and row counts), then one PostgreSQL binary COPY stream per table (stored_recipe,
+ * recipe_minhash, recipe_lsh_band and the recipe vector table with its raw embeddings).
+ *
+ * Import runs in one transaction: the target must be empty (or is truncated with replace), secondary indexes
+ * (HNSW, metadata GIN, Flyway's btrees) are dropped, the streams are loaded with COPY FROM STDIN, and the
+ * indexes are rebuilt once at the end with more maintenance memory and parallel workers. Recipe searches
+ * wait for the restore to commit. Vectors of a different embedding model or dimension are refused.
+ */
+@Service
+@Profile("!loadtest")
+public class KnowledgeBaseSnapshotService {
+
+    public static final String FORMAT = "chefbot-kb-snapshot";
+    public static final int VERSION = 1;
+
+    /** One COPY stream: its zip entry (without .pgcopy), the columns in stream order and the row count. */
+    public record Table(String entry, List<String> columns, long rows) {}
+
+    public record Manifest(String format, int version, String createdAt, String embeddingModel, int dimensions, List<Table> tables) {}
+
+    static final String MANIFEST_ENTRY = "manifest.json";
+    static final String VECTORS = "vectors";
+    private static final String STAGING_TABLE = "snapshot_vectors";
+    private static final String IDENTIFIER = "[a-z_][a-z0-9_]*";
+    private static final String MEMORY_SIZE = "\\d+\\s*(kB|MB|GB)";
+
+    // Entry -> columns, in load order (the minhash tables reference stored_recipe)
+    private static final Map<String, List<String>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("stored_recipe", List.of("id", "title", "diet", "url", "scanned_at", "etag", "last_modified", "content_hash", "document"));
+        COLUMNS.put("recipe_minhash", List.of("recipe_id", "signature"));
+        COLUMNS.put("recipe_lsh_band", List.of("band", "bucket", "recipe_id"));
+        COLUMNS.put(VECTORS, List.of("id", "content", "metadata", "embedding"));
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final QuantizedPgVectorStore recipeStore;
+    private final ObjectMapper objectMapper;
+    private final String embeddingModel;
+
+    @Value("${chefbot.snapshot.restore-on-startup:}")
+    private String restoreOnStartup;
+
+    @Value("${chefbot.snapshot.maintenance-work-mem:1GB}")
+    private String maintenanceWorkMem;
+
+    @Value("${chefbot.snapshot.parallel-workers:4}")
+    private int parallelWorkers;
+
+    public KnowledgeBaseSnapshotService(JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        @Qualifier(VectorStoreConfig.RECIPES) QuantizedPgVectorStore recipeStore,
+                                        ObjectMapper objectMapper,
+                                        Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.recipeStore = recipeStore;
+        this.objectMapper = objectMapper;
+        this.embeddingModel = VectorStoreConfig.embeddingModelTag(env);
+    }
+
+    /** A new node can start from a snapshot file; skipped when the knowledge base already has recipes. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOnStartup() {
+        if (restoreOnStartup == null || restoreOnStartup.isBlank()) return;
+        if (!isEmpty()) {
+            System.out.println("[Snapshot] Knowledge base already has recipes, not restoring " + restoreOnStartup);
+            return;
+        }
+        try (InputStream in = Files.newInputStream(Path.of(restoreOnStartup.trim()))) {
+            System.out.println("[Snapshot] Restore from " + restoreOnStartup + ": " + importSnapshot(in, false));
+        } catch (Exception e) {
+            System.err.println("[Snapshot] Restore failed: " + e.getMessage());
+        }
+    }
+
+    public boolean isEmpty() {
+        Boolean empty = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM stored_recipe) AND NOT EXISTS (SELECT 1 FROM "
+                + recipeStore.getSettings().table() + ")", Boolean.class);
+        return Boolean.TRUE.equals(empty);
+    }
+
+    /** Writes a consistent snapshot: counts and COPY streams all read the same repeatable-read snapshot. */
+    public Manifest exportSnapshot(OutputStream out) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        tx.setReadOnly(true);
+        return tx.execute(status -> {
+            List<Table> tables = new ArrayList<>();
+            for (Map.Entry<String, List<String>> table : COLUMNS.entrySet()) {
+                Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + sourceTable(table.getKey()), Long.class);
+                tables.add(new Table(table.getKey(), table.getValue(), rows == null ? 0 : rows));
+            }
+            Manifest manifest = new Manifest(FORMAT, VERSION, Instant.now().toString(), embeddingModel,
+                    recipeStore.getSettings().dimensions(), tables);
+
+            try {
+                ZipOutputStream zip = new ZipOutputStream(out);
+                // Raw float vectors hardly compress; the fast level still shrinks text and metadata
+                zip.setLevel(Deflater.BEST_SPEED);
+                zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+                zip.write(objectMapper.writeValueAsBytes(manifest));
+                zip.closeEntry();
+                for (Table table : tables) {
+                    zip.putNextEntry(new ZipEntry(table.entry() + ".pgcopy"));
+                    // Query form, because COPY TO does not read partitioned tables directly
+                    long copied = copyOut("COPY (SELECT " + String.join(", ", table.columns()) + " FROM " + sourceTable(table.entry())
+                            + ") TO STDOUT (FORMAT binary)", zip);
+                    if (copied != table.rows()) {
+                        throw new IllegalStateException("Exported " + copied + " rows of " + table.entry() + ", expected " + table.rows());
+                    }
+                    zip.closeEntry();
+                }
+                zip.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            System.out.println("[Snapshot] Exported " + tables);
+            return manifest;
+        });
+    }
+
+    /**
+     * Loads a snapshot. Without replace the target must be empty; with replace the current recipes, their
+     * signatures and vectors are truncated first. Any failure rolls the whole restore back.
+     */
+    public Map<String, Object> importSnapshot(InputStream in, boolean replace) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry first = zip.getNextEntry();
+        if (first == null || !first.getName().equals(MANIFEST_ENTRY)) {
+            throw new IllegalArgumentException("Not a knowledge base snapshot: " + MANIFEST_ENTRY + " must come first");
+        }
+        Manifest manifest = objectMapper.readValue(zip.readAllBytes(), Manifest.class);
+        List<String> problems = incompatibilities(manifest, embeddingModel, recipeStore.getSettings().dimensions());
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("Incompatible snapshot: " + String.join("; ", problems));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("embeddingModel", manifest.embeddingModel());
+        result.put("createdAt", manifest.createdAt());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                restore(zip, manifest, replace, result);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        // Fresh statistics, or the planner sees empty tables until autovacuum gets there
+        for (String table : COLUMNS.keySet()) {
+            jdbcTemplate.execute("ANALYZE " + sourceTable(table));
+        }
+        result.put("status", "done");
+        return result;
+    }
+
+    private void restore(ZipInputStream zip, Manifest manifest, boolean replace, Map<String, Object> result) throws IOException {
+        List<String> tables = COLUMNS.keySet().stream().map(this::sourceTable).toList();
+        if (replace) {
+            jdbcTemplate.execute("TRUNCATE " + String.join(", ", tables));
+        } else if (!isEmpty()) {
+            throw new IllegalStateException("Knowledge base is not empty; import with replace to overwrite it");
+        }
+
+        // Deferred index builds: one bulk build per index instead of maintaining them row by row
+        Map<String, String> indexes = new LinkedHashMap<>();
+        for (String table : tables) {
+            jdbcTemplate.query("""
+                    SELECT i.indexrelid::regclass::text AS name, pg_get_indexdef(i.indexrelid) AS definition
+                    FROM pg_index i
+                    WHERE i.indrelid = ?::regclass
+                      AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = i.indexrelid AND c.contype IN ('p', 'u', 'x'))
+                    """, rs -> {
+                indexes.put(rs.getString("name"), rebuildable(rs.getString("definition")));
+            }, table);
+        }
+        for (String index : indexes.keySet()) {
+            jdbcTemplate.execute("DROP INDEX " + index);
+        }
+
+        boolean staged = recipeStore.getSettings().partitioned();
+        if (staged) {
+            // COPY cannot derive partition_key from the metadata; importRows does
+            jdbcTemplate.execute("CREATE TEMP TABLE " + STAGING_TABLE + " (id uuid, content text, metadata json, embedding vector("
+                    + recipeStore.getSettings().dimensions() + ")) ON COMMIT DROP");
+        }
+
+        long started = System.currentTimeMillis();
+        Map<String, Long> loaded = new LinkedHashMap<>();
+        Set<String> expected = new HashSet<>();
+        manifest.tables().forEach(table -> expected.add(table.entry() + ".pgcopy"));
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (!expected.remove(entry.getName())) {
+                throw new IllegalArgumentException("Unexpected snapshot entry: " + entry.getName());
+            }
+            Table table = manifest.tables().stream()
+                    .filter(t -> (t.entry() + ".pgcopy").equals(entry.getName()))
+                    .findFirst().orElseThrow();
+            String target = staged && table.entry().equals(VECTORS) ? STAGING_TABLE : sourceTable(table.entry());
+            long rows = copyIn("COPY " + target + " (" + String.join(", ", table.columns()) + ") FROM STDIN (FORMAT binary)", zip);
+            if (rows != table.rows()) {
+                throw new IllegalStateException("Loaded " + rows + " rows of " + table.entry() + ", manifest says " + table.rows());
+            }
+            loaded.put(table.entry(), rows);
+        }
+        if (!expected.isEmpty()) {
+            throw new IllegalArgumentException("Truncated snapshot, missing " + expected);
+        }
+        if (staged) {
+            loaded.put(VECTORS, (long) recipeStore.importRows(STAGING_TABLE, "true"));
+        }
+        result.put("rows", loaded);
+        result.put("loadMs", System.currentTimeMillis() - started);
+
+        started = System.currentTimeMillis();
+        if (!maintenanceWorkMem.trim().matches(MEMORY_SIZE)) {
+            throw new IllegalArgumentException("Invalid chefbot.snapshot.maintenance-work-mem: " + maintenanceWorkMem);
+        }
+        jdbcTemplate.execute("SET LOCAL maintenance_work_mem = '" + maintenanceWorkMem.trim() + "'");
+        jdbcTemplate.execute("SET LOCAL max_parallel_maintenance_workers = " + Math.max(0, parallelWorkers));
+        for (String index : indexes.values()) {
+            jdbcTemplate.execute(index);
+        }
+        result.put("indexes", indexes.size());
+        result.put("indexBuildMs", System.currentTimeMillis() - started);
+
+        // Explicit ids were loaded; new recipes must continue after them
+        jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('stored_recipe', 'id'), COALESCE(max(id), 0) + 1, false) "
+                + "FROM stored_recipe", Long.class);
+    }
+
+    /** Empty when the snapshot can be loaded into a store with this embedding model and dimensions. */
+    static List<String> incompatibilities(Manifest manifest, String embeddingModel, int dimensions) {
+        List<String> problems = new ArrayList<>();
+        if (!FORMAT.equals(manifest.format()) || manifest.version() != VERSION) {
+            problems.add("format " + manifest.format() + " v" + manifest.version() + " (expected " + FORMAT + " v" + VERSION + ")");
+            return problems;
+        }
+        if (!embeddingModel.equals(manifest.embeddingModel())) {
+            problems.add("embedded with " + manifest.embeddingModel() + ", this node uses " + embeddingModel);
+        }
+        if (manifest.dimensions() != dimensions) {
+            problems.add(manifest.dimensions() + " dimensions, this node uses " + dimensions);
+        }
+        if (manifest.tables() == null) {
+            problems.add("no tables");
+            return problems;
+        }
+        for (Table table : manifest.tables()) {
+            if (!COLUMNS.containsKey(table.entry())) {
+                problems.add("unknown table " + table.entry());
+            } else if (table.columns() == null || table.columns().isEmpty()
+                    || !table.columns().stream().allMatch(column -> column.matches(IDENTIFIER))) {
+                problems.add("invalid columns for " + table.entry());
+            }
+        }
+        return problems;
+    }
+
+    /** pg_get_indexdef marks a partitioned table's index ON ONLY; recreated, it has to cover the partitions again. */
+    static String rebuildable(String definition) {
+        return definition.replaceFirst(" ON ONLY ", " ON ");
+    }
+
+    private String sourceTable(String entry) {
+        return entry.equals(VECTORS) ? recipeStore.getSettings().table() : entry;
+    }
+
+    private long copyOut(String sql, OutputStream out) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    private long copyIn(String sql, InputStream in) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+}
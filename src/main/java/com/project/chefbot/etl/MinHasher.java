@@ -0,0 +1,129 @@
+package com.project.chefbot.etl;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures over word shingles of a recipe's ingredients and instructions, and the LSH band keys
+ * derived from them. Text is normalized first (case, accents, bullets and punctuation), so the same recipe
+ * syndicated with different formatting produces the same shingles. The hash seeds are fixed: signatures are
+ * persisted and must stay comparable across restarts.
+ */
+public final class MinHasher {
+
+    private static final long SEED = 0x5eed_c0ffee_f00dL;
+
+    private final int bands;
+    private final int rows;
+    private final int shingleSize;
+    private final long[] seeds;
+
+    public MinHasher(int bands, int rows, int shingleSize) {
+        if (bands < 1 || rows < 1 || shingleSize < 1) {
+            throw new IllegalArgumentException("bands, rows and shingle size must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.shingleSize = shingleSize;
+        this.seeds = new SplittableRandom(SEED).longs(bands * rows).toArray();
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getSignatureLength() {
+        return bands * rows;
+    }
+
+    public long[] signature(ExtractedRecipe recipe) {
+        return signature(recipe.ingredients() + "\n" + recipe.instructions());
+    }
+
+    /**
+     * Null for text without any words: there is nothing to compare, and the all-max signature it would get is
+     * equal for every such text, so all of them would land in the same LSH buckets as duplicates of each other.
+     */
+    public long[] signature(String text) {
+        Set<Long> shingles = shingles(text);
+        if (shingles.isEmpty()) return null;
+
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < seeds.length; i++) {
+                long hash = mix(shingle ^ seeds[i]);
+                if (hash < signature[i]) signature[i] = hash;
+            }
+        }
+        return signature;
+    }
+
+    /** One key per band; two recipes are candidates if any band key is equal. */
+    public long[] bandKeys(long[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rows; row++) {
+                key = mix(key * 31 + signature[band * rows + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /** Estimated Jaccard similarity of the two shingle sets: the fraction of equal signature positions. */
+    public static double similarity(long[] a, long[] b) {
+        if (a.length != b.length || a.length == 0) return 0;
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (double) equal / a.length;
+    }
+
+    Set<Long> shingles(String text) {
+        String[] words = normalize(text).split(" ");
+        Set<Long> shingles = new HashSet<>();
+        if (words.length == 1 && words[0].isEmpty()) return shingles;
+
+        int last = Math.max(0, words.length - shingleSize);
+        for (int start = 0; start <= last; start++) {
+            StringBuilder shingle = new StringBuilder();
+            for (int i = start; i < Math.min(words.length, start + shingleSize); i++) {
+                shingle.append(words[i]).append(' ');
+            }
+            shingles.add(fnv1a(shingle.toString()));
+        }
+        return shingles;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        return folded.replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
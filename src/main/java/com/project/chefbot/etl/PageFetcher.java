@@ -0,0 +1,112 @@
+package com.project.chefbot.etl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Plain HTTP fetches for the crawler: sitemaps, robots.txt, and the cheap conditional GET that decides
+ * whether a page needs the expensive Playwright render and LLM extraction at all.
+ */
+@Component
+public class PageFetcher {
+
+    /** Status 304 means unchanged; validators and hash are null then. */
+    public record Fetch(int status, String etag, String lastModified, String contentHash, byte[] body) {
+
+        public boolean notModified() {
+            return status == 304;
+        }
+
+        public boolean ok() {
+            return status >= 200 && status < 300;
+        }
+
+        public boolean gone() {
+            return status == 404 || status == 410;
+        }
+    }
+
+    private static final Pattern SCRIPTS = Pattern.compile("(?is)<(script|style|noscript)[^>]*>.*?</\\1>");
+    private static final Pattern TAGS = Pattern.compile("(?s)<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @Value("${chefbot.crawl.user-agent:ChefBot/1.0 (+recipe knowledge base crawler)}")
+    private String userAgent;
+
+    @Value("${chefbot.crawl.max-page-bytes:10485760}")
+    private int maxPageBytes;
+
+    /** GET with If-None-Match / If-Modified-Since when validators from an earlier visit are known. */
+    public Fetch fetch(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("User-Agent", userAgent)
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        if (etag != null && !etag.isBlank()) request.header("If-None-Match", etag);
+        if (lastModified != null && !lastModified.isBlank()) request.header("If-Modified-Since", lastModified);
+
+        HttpResponse<InputStream> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream raw = response.body()) {
+            if (response.statusCode() == 304 || response.statusCode() >= 300) {
+                return new Fetch(response.statusCode(), null, null, null, new byte[0]);
+            }
+            boolean gzip = response.headers().firstValue("Content-Encoding").map(value -> value.equalsIgnoreCase("gzip")).orElse(false);
+            byte[] body = readBounded(gzip ? new GZIPInputStream(raw) : raw);
+            return new Fetch(response.statusCode(),
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null),
+                    contentHash(new String(body, StandardCharsets.UTF_8)),
+                    body);
+        }
+    }
+
+    /** Body as a stream, un-gzipped for .gz sitemaps. */
+    public InputStream open(Fetch fetch, String url) throws IOException {
+        InputStream in = new ByteArrayInputStream(fetch.body());
+        return url.endsWith(".gz") ? new GZIPInputStream(in) : in;
+    }
+
+    /**
+     * SHA-256 of the page's visible text: scripts, styles and markup are dropped, so rotating ads, nonces
+     * and tracking snippets do not count as a change.
+     */
+    static String contentHash(String html) {
+        String text = SCRIPTS.matcher(html).replaceAll(" ");
+        text = TAGS.matcher(text).replaceAll(" ");
+        text = WHITESPACE.matcher(text).replaceAll(" ").trim();
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] readBounded(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(maxPageBytes);
+        if (in.read() != -1) {
+            throw new IOException("Response larger than " + maxPageBytes + " bytes");
+        }
+        return body;
+    }
+}
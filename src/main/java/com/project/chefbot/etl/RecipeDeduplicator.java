@@ -0,0 +1,151 @@
+package com.project.chefbot.etl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Finds recipes that are already in the knowledge base under another URL (syndicated copies, tracking
+ * parameters), before they are embedded. Each stored recipe keeps a MinHash signature and its LSH band keys
+ * in recipe_minhash / recipe_lsh_band; a new recipe is compared only with the recipes sharing a band key.
+ *
+ * chefbot.dedup.bands x chefbot.dedup.rows is the signature length and puts the LSH candidate threshold at
+ * roughly (1/bands)^(1/rows); similarity-threshold is the estimated Jaccard similarity that counts as a
+ * duplicate. Changing bands, rows or shingle-size makes the stored signatures incomparable, so they are
+ * ignored until the recipes are ingested again.
+ */
+@Service
+public class RecipeDeduplicator {
+
+    public record Match(Long recipeId, double similarity) {}
+
+    private static final Set<String> TRACKING_PARAMETERS = Set.of("fbclid", "gclid", "mc_cid", "mc_eid", "ref", "igshid");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MinHasher hasher;
+
+    @Value("${chefbot.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chefbot.dedup.similarity-threshold:0.8}")
+    private double similarityThreshold;
+
+    public RecipeDeduplicator(JdbcTemplate jdbcTemplate, Environment env) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hasher = new MinHasher(
+                env.getProperty("chefbot.dedup.bands", Integer.class, 16),
+                env.getProperty("chefbot.dedup.rows", Integer.class, 8),
+                env.getProperty("chefbot.dedup.shingle-size", Integer.class, 3));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Null if the recipe has no words in its ingredients or instructions; such recipes are never deduplicated. */
+    public long[] signature(ExtractedRecipe recipe) {
+        return hasher.signature(recipe);
+    }
+
+    /** The most similar stored recipe at or above the threshold, or null. */
+    public Match findDuplicate(long[] signature) {
+        if (signature == null) return null;
+        long[] keys = hasher.bandKeys(signature);
+        List<Object> args = new ArrayList<>(keys.length * 2);
+        StringBuilder pairs = new StringBuilder();
+        for (int band = 0; band < keys.length; band++) {
+            pairs.append(band == 0 ? "" : ", ").append("(?, ?)");
+            args.add(band);
+            args.add(keys[band]);
+        }
+
+        List<Match> matches = jdbcTemplate.query("""
+                SELECT m.recipe_id, m.signature FROM recipe_minhash m
+                WHERE m.recipe_id IN (SELECT b.recipe_id FROM recipe_lsh_band b WHERE (b.band, b.bucket) IN (%s))
+                """.formatted(pairs), (rs, rowNum) -> new Match(
+                        rs.getLong("recipe_id"), MinHasher.similarity(signature, decode(rs.getBytes("signature")))),
+                args.toArray());
+
+        return matches.stream()
+                .filter(match -> match.similarity() >= similarityThreshold)
+                .max(Comparator.comparingDouble(Match::similarity))
+                .orElse(null);
+    }
+
+    /** Stores the recipe's signature and band keys; a null signature removes any the recipe had before. */
+    public void index(Long recipeId, long[] signature) {
+        if (signature == null) {
+            jdbcTemplate.update("DELETE FROM recipe_lsh_band WHERE recipe_id = ?", recipeId);
+            jdbcTemplate.update("DELETE FROM recipe_minhash WHERE recipe_id = ?", recipeId);
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO recipe_minhash (recipe_id, signature) VALUES (?, ?) "
+                + "ON CONFLICT (recipe_id) DO UPDATE SET signature = EXCLUDED.signature", recipeId, encode(signature));
+        jdbcTemplate.update("DELETE FROM recipe_lsh_band WHERE recipe_id = ?", recipeId);
+
+        long[] keys = hasher.bandKeys(signature);
+        List<Object[]> rows = new ArrayList<>(keys.length);
+        for (int band = 0; band < keys.length; band++) {
+            rows.add(new Object[]{band, keys[band], recipeId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO recipe_lsh_band (band, bucket, recipe_id) VALUES (?, ?, ?) ON CONFLICT DO NOTHING", rows);
+    }
+
+    /**
+     * Lower-cased scheme and host, no fragment, no trailing slash and no tracking parameters (utm_* and
+     * friends), so links to the same page compare equal. Unparsable URLs are returned unchanged.
+     */
+    public static String canonicalUrl(String url) {
+        try {
+            URI uri = new URI(url.trim());
+            if (uri.getScheme() == null || uri.getHost() == null) return url;
+
+            String query = null;
+            if (uri.getRawQuery() != null) {
+                query = List.of(uri.getRawQuery().split("&")).stream()
+                        .filter(param -> !param.isEmpty())
+                        .filter(param -> {
+                            String name = param.split("=", 2)[0].toLowerCase(Locale.ROOT);
+                            return !name.startsWith("utm_") && !TRACKING_PARAMETERS.contains(name);
+                        })
+                        .collect(Collectors.joining("&"));
+            }
+
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+
+            StringBuilder canonical = new StringBuilder()
+                    .append(uri.getScheme().toLowerCase(Locale.ROOT)).append("://")
+                    .append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (uri.getPort() != -1) canonical.append(':').append(uri.getPort());
+            canonical.append(path);
+            if (query != null && !query.isEmpty()) canonical.append('?').append(query);
+            return canonical.toString();
+        } catch (Exception e) {
+            return url;
+        }
+    }
+
+    static byte[] encode(long[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Long.BYTES);
+        for (long value : signature) buffer.putLong(value);
+        return buffer.array();
+    }
+
+    static long[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] signature = new long[bytes.length / Long.BYTES];
+        for (int i = 0; i < signature.length; i++) signature[i] = buffer.getLong();
+        return signature;
+    }
+}
@@ -1,47 +1,107 @@
 package com.project.chefbot.etl;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.playwright.Browser;
 import com.microsoft.playwright.BrowserType;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.Playwright;
-import org.springframework.ai.chat.model.ChatModel;
+import com.project.chefbot.service.ChatRequestClass;
+import com.project.chefbot.service.ChefMetrics;
+import com.project.chefbot.service.RoutingChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders recipe pages with a headless Chromium and extracts them with the LLM. Every scrape starts and
+ * closes its own Playwright driver and browser processes; stopping this bean (before a CRaC checkpoint
+ * or at shutdown) waits for scrapes in flight and holds new ones until it is started again, so no
+ * browser process is running while the JVM is checkpointed.
+ *
+ * Extraction asks Ollama for output constrained to {@link #RECIPE_SCHEMA} (title first, nullable) and parses
+ * the reply while it streams, cancelling the generation as soon as it cannot become a recipe.
+ */
 @Service
-public class ScraperService {
+public class ScraperService implements SmartLifecycle {
 
-    private final ChatModel chatModel;
+    private static final int MAX_SCRAPES = 1_000;
+    private static final long STOP_WAIT_SECONDS = 60;
+
+    // Property order matters: constrained decoding emits the title first, so non-recipe pages stop early
+    static final String RECIPE_SCHEMA = """
+            {
+              "type": "object",
+              "properties": {
+                "title": {"type": ["string", "null"]},
+                "ingredients": {"type": "array", "items": {"type": "string"}},
+                "instructions": {"type": "array", "items": {"type": "string"}},
+                "diet": {"type": "string", "enum": ["Vegetarian", "Vegan", "Keto", "Omnivore"]}
+              },
+              "required": ["title", "ingredients", "instructions", "diet"]
+            }
+            """;
+
+    private final RoutingChatModel chatModel;
     private final ObjectMapper objectMapper;
+    private final ChefMetrics metrics;
+    private final Map<String, Object> recipeSchema;
+    private final Semaphore scrapes = new Semaphore(MAX_SCRAPES);
+    private volatile boolean running;
 
-    public ScraperService(ChatModel chatModel, ObjectMapper objectMapper) {
+    public ScraperService(RoutingChatModel chatModel, ObjectMapper objectMapper, ChefMetrics metrics) {
         this.chatModel = chatModel;
         this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        try {
+            this.recipeSchema = objectMapper.readValue(RECIPE_SCHEMA, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid recipe schema", e);
+        }
     }
 
     public ExtractedRecipe scrapeUrl(String url) {
+        try {
+            scrapes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            return render(url);
+        } finally {
+            scrapes.release();
+        }
+    }
+
+    private ExtractedRecipe render(String url) {
         System.out.println("[Scraper] Navigating to: " + url);
 
         try (Playwright playwright = Playwright.create();
              Browser browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true))) {
 
-            Page page = browser.newPage();
+            String rawText = metrics.timeEtlStage("render", () -> {
+                Page page = browser.newPage();
 
-            page.setExtraHTTPHeaders(java.util.Map.of(
-                    "User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36"
-            ));
+                page.setExtraHTTPHeaders(java.util.Map.of(
+                        "User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36"
+                ));
 
-            page.navigate(url);
+                page.navigate(url);
 
-            page.waitForTimeout(2000);
+                page.waitForTimeout(2000);
 
-            String rawText = page.locator("body").innerText();
+                return page.locator("body").innerText();
+            });
 
             System.out.println("[Scraper] Extracted text (" + rawText.length() + " chars). Sending to AI...");
 
-            return extractRecipeWithAI(rawText);
+            return metrics.timeEtlStage("extract", () -> extractRecipeWithAI(rawText));
 
         } catch (Exception e) {
             System.err.println("[Scraper] Playwright Error: " + e.getMessage());
@@ -49,6 +109,41 @@ public class ScraperService {
         }
     }
 
+    @Override
+    public void start() {
+        if (!running) {
+            // Gives back the permits taken by stop()
+            scrapes.drainPermits();
+            scrapes.release(MAX_SCRAPES);
+            running = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            if (!scrapes.tryAcquire(MAX_SCRAPES, STOP_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("[Scraper] Scrapes still running after " + STOP_WAIT_SECONDS + "s, stopping anyway");
+                scrapes.drainPermits();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // After EtlWorker (default phase), which lets its scrapes finish before this bean holds new ones
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+
     private ExtractedRecipe extractRecipeWithAI(String pageText) {
         String promptText = String.format("""
             You are an expert culinary data extractor and translator.
@@ -59,7 +154,7 @@ public class ScraperService {
             --- RAW TEXT END ---
             
             TASK:
-            1. Extract the Title, Ingredients, Instructions, and Diet.
+            1. Extract the Title, Ingredients, Instructions, and Diet. If the text is not a recipe, set the title to null.
             2. TRANSLATE EVERYTHING TO ENGLISH. The output must contain NO foreign text.
             3. Return a valid JSON.
             
@@ -102,52 +197,47 @@ public class ScraperService {
             - The title MUST be in English. If the original title is in another language, translate it properly.
             """, pageText);
 
-        try {
-            String jsonResponse = chatModel.call(new Prompt(promptText)).getResult().getOutput().getText();
-
-            System.out.println("[Scraper] Extracted recipe (" + jsonResponse + ").");
-
-            int start = jsonResponse.indexOf("{");
-            int end = jsonResponse.lastIndexOf("}");
-
-            if (start != -1 && end != -1) {
-                jsonResponse = jsonResponse.substring(start, end + 1);
-            } else {
-                System.err.println("[Scraper] AI did not return valid JSON. Response: " + jsonResponse);
-                return null;
-            }
-
-            JsonNode root = objectMapper.readTree(jsonResponse);
-
-            if (root.has("title") && !root.get("title").asText().equalsIgnoreCase("null")) {
-                var extractedRecipe = new ExtractedRecipe(
-                        root.get("title").asText(),
-                        safeGetContent(root.get("ingredients")),
-                        safeGetContent(root.get("instructions")),
-                        root.get("diet").asText()
-                );
-
-                System.out.println("[Scraper] Extracted Recipe: " + extractedRecipe);
+        // Only Ollama understands the format option; other backends still get the JSON instructions above
+        Prompt prompt = new Prompt(promptText, OllamaOptions.builder().format(recipeSchema).build());
+        StreamingRecipeParser parser = new StreamingRecipeParser(objectMapper);
+        StringBuilder reply = new StringBuilder();
 
-                return extractedRecipe;
-            }
+        try {
+            // takeWhile cancels the stream, and with it the generation, once the parser has decided
+            chatModel.stream(ChatRequestClass.ETL_EXTRACTION, prompt)
+                    .map(chunk -> chunk.getResult() == null || chunk.getResult().getOutput() == null
+                            || chunk.getResult().getOutput().getText() == null ? "" : chunk.getResult().getOutput().getText())
+                    .takeWhile(text -> {
+                        reply.append(text);
+                        return parser.feed(text) == StreamingRecipeParser.State.PARSING;
+                    })
+                    .blockLast();
         } catch (Exception e) {
-            System.err.println("[Scraper] AI Parsing Error: " + e.getMessage());
+            metrics.recordExtraction("error", reply.length());
+            System.err.println("[Scraper] AI Extraction Error: " + e.getMessage());
+            return null;
         }
-        return null;
-    }
-
-    private String safeGetContent(JsonNode node) {
-        if (node == null || node.isNull()) return "";
 
-        if (node.isArray()) {
-            StringBuilder sb = new StringBuilder();
-            for (JsonNode item : node) {
-                sb.append("- ").append(item.asText()).append("\n");
-            }
-            return sb.toString();
+        ExtractedRecipe extractedRecipe = parser.getResult();
+        if (extractedRecipe != null) {
+            metrics.recordExtraction("recipe", reply.length());
+            System.out.println("[Scraper] Extracted Recipe: " + extractedRecipe);
+        } else if (parser.getState() == StreamingRecipeParser.State.ABORTED) {
+            metrics.recordExtraction("aborted", reply.length());
+            System.out.println("[Scraper] Extraction stopped after " + reply.length() + " chars: " + parser.getAbortReason());
+        } else {
+            metrics.recordExtraction("invalid", reply.length());
+            System.err.println("[Scraper] AI did not return a valid recipe JSON. Response: " + reply);
         }
+        return extractedRecipe;
+    }
 
-        return node.asText();
+    /**
+     * Parses a complete model reply the same way as the stream; null if it is not a recipe.
+     */
+    ExtractedRecipe parseExtraction(String jsonResponse) {
+        StreamingRecipeParser parser = new StreamingRecipeParser(objectMapper);
+        parser.feed(jsonResponse);
+        return parser.getResult();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.project.chefbot.etl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a sitemap (urlset) or sitemap index (sitemapindex) with StAX, so large sitemaps are never held
+ * as a DOM. DTDs and external entities are disabled. Only loc and lastmod directly under url or sitemap in
+ * the sitemaps.org namespace (or no namespace) count: image:loc and video:loc from the extensions are media,
+ * not pages.
+ */
+final class SitemapParser {
+
+    record Entry(String loc, LocalDateTime lastmod) {}
+
+    record Sitemap(List<Entry> pages, List<String> sitemaps) {}
+
+    private static final String NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private SitemapParser() {
+    }
+
+    static Sitemap parse(InputStream in, int maxEntries) throws XMLStreamException {
+        List<Entry> pages = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            boolean index = false;
+            String loc = null;
+            String lastmod = null;
+            int depth = 0;
+            // Depth of the url or sitemap element being read, -1 outside of one
+            int entryDepth = -1;
+            while (reader.hasNext() && pages.size() + sitemaps.size() < maxEntries) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (!inSitemapNamespace(reader)) continue;
+                    String name = reader.getLocalName();
+                    switch (name) {
+                        case "sitemapindex" -> index = true;
+                        case "url", "sitemap" -> {
+                            entryDepth = depth;
+                            loc = null;
+                            lastmod = null;
+                        }
+                        case "loc", "lastmod" -> {
+                            if (depth == entryDepth + 1) {
+                                String value = reader.getElementText().trim();
+                                // getElementText consumed the end tag
+                                depth--;
+                                if (name.equals("loc")) loc = value;
+                                else lastmod = value;
+                            }
+                        }
+                        default -> { }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    boolean entryEnd = depth == entryDepth && inSitemapNamespace(reader);
+                    depth--;
+                    if (!entryEnd) continue;
+                    entryDepth = -1;
+                    if (loc == null || loc.isEmpty()) continue;
+                    String name = reader.getLocalName();
+                    if (index && name.equals("sitemap")) {
+                        sitemaps.add(loc);
+                    } else if (!index && name.equals("url")) {
+                        pages.add(new Entry(loc, parseLastmod(lastmod)));
+                    }
+                    loc = null;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new Sitemap(pages, sitemaps);
+    }
+
+    private static boolean inSitemapNamespace(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace == null || namespace.isEmpty() || namespace.equals(NAMESPACE);
+    }
+
+    /** W3C datetime: a date, or a date-time with offset; anything else is ignored. */
+    static LocalDateTime parseLastmod(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            if (value.length() == 10) return LocalDate.parse(value).atStartOfDay();
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
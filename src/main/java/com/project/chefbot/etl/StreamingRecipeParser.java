@@ -0,0 +1,135 @@
+package com.project.chefbot.etl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses the extraction reply while it is still being generated, fed chunk by chunk with Jackson's
+ * non-blocking parser. {@link #feed(String)} reports ABORTED as soon as the reply cannot become a recipe
+ * (not JSON, broken JSON, or a null title), so the caller can cancel the generation instead of paying for
+ * the rest of it, and COMPLETE once the top-level object is closed.
+ */
+class StreamingRecipeParser {
+
+    enum State { PARSING, COMPLETE, ABORTED }
+
+    // Room for a preamble or a markdown fence before the object when the backend ignores the JSON format
+    static final int MAX_PREFIX_CHARS = 200;
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private State state = State.PARSING;
+    private String abortReason;
+    private boolean started;
+    private int skippedChars;
+    private int depth;
+    private String field;
+
+    private String title;
+    private String diet;
+    private final StringBuilder ingredients = new StringBuilder();
+    private final StringBuilder instructions = new StringBuilder();
+
+    StreamingRecipeParser(ObjectMapper objectMapper) {
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    State feed(String chunk) {
+        if (state != State.PARSING || chunk == null || chunk.isEmpty()) return state;
+
+        if (!started) {
+            int brace = chunk.indexOf('{');
+            skippedChars += brace == -1 ? chunk.length() : brace;
+            if (skippedChars > MAX_PREFIX_CHARS) return abort("no JSON object");
+            if (brace == -1) return state;
+            chunk = chunk.substring(brace);
+            started = true;
+        }
+
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (state == State.PARSING && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                onToken(token);
+            }
+        } catch (IOException e) {
+            abort("invalid JSON: " + e.getMessage());
+        }
+        return state;
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> depth++;
+            case END_OBJECT, END_ARRAY -> {
+                depth--;
+                if (depth == 0) state = State.COMPLETE;
+            }
+            case FIELD_NAME -> {
+                if (depth == 1) field = parser.currentName();
+            }
+            default -> onValue(token);
+        }
+    }
+
+    private void onValue(JsonToken token) throws IOException {
+        String text = token == JsonToken.VALUE_NULL ? null : parser.getText();
+        if (depth == 1) {
+            switch (field == null ? "" : field) {
+                case "title" -> {
+                    if (text == null || text.isBlank() || text.equalsIgnoreCase("null")) {
+                        abort("not a recipe");
+                    } else {
+                        title = text;
+                    }
+                }
+                case "diet" -> diet = text;
+                case "ingredients" -> append(ingredients, text, false);
+                case "instructions" -> append(instructions, text, false);
+                default -> { }
+            }
+        } else if (depth == 2 && text != null) {
+            // Items of a top-level list; anything nested deeper is ignored
+            if ("ingredients".equals(field)) append(ingredients, text, true);
+            else if ("instructions".equals(field)) append(instructions, text, true);
+        }
+    }
+
+    private static void append(StringBuilder target, String text, boolean listItem) {
+        if (text == null) return;
+        if (listItem) target.append("- ").append(text).append("\n");
+        else target.append(text);
+    }
+
+    private State abort(String reason) {
+        state = State.ABORTED;
+        abortReason = reason;
+        return state;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    String getAbortReason() {
+        return abortReason;
+    }
+
+    /** The recipe once the object is complete and has a title and a diet; null otherwise. */
+    ExtractedRecipe getResult() {
+        if (state != State.COMPLETE || title == null || diet == null) return null;
+        return new ExtractedRecipe(title, ingredients.toString(), instructions.toString(), diet);
+    }
+}
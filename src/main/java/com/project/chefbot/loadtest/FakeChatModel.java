@@ -0,0 +1,120 @@
+package com.project.chefbot.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deterministic stand-in for Gemini/Ollama. Each turn sleeps one "model round" per tool call plus a final
+ * round, invokes the tools named in the configured pattern (through whatever wrappers the caller applied,
+ * so the budget and allergen filter are exercised), and answers with a canned recipe.
+ */
+public class FakeChatModel implements ChatModel {
+
+    private final LatencyDistribution roundLatency;
+    private final LatencyDistribution firstTokenLatency;
+    private final List<String> toolPattern;
+    private final double toolTurnRatio;
+    private final int streamChunks;
+
+    public FakeChatModel(LatencyDistribution roundLatency,
+                         LatencyDistribution firstTokenLatency,
+                         List<String> toolPattern,
+                         double toolTurnRatio,
+                         int streamChunks) {
+        this.roundLatency = roundLatency;
+        this.firstTokenLatency = firstTokenLatency;
+        this.toolPattern = toolPattern;
+        this.toolTurnRatio = toolTurnRatio;
+        this.streamChunks = Math.max(1, streamChunks);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String answer = runTurn(prompt);
+        firstTokenLatency.sleep();
+        return response(answer, prompt, answer);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.<ChatResponse>create(sink -> {
+                    String answer = runTurn(prompt);
+                    firstTokenLatency.sleep();
+                    int chunkSize = Math.max(1, answer.length() / streamChunks);
+                    for (int i = 0; i < answer.length(); i += chunkSize) {
+                        int end = Math.min(answer.length(), i + chunkSize);
+                        // Usage is cumulative, like the real backends report on the final chunk
+                        sink.next(response(answer.substring(i, end), prompt, answer.substring(0, end)));
+                    }
+                    sink.complete();
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ToolCallingChatOptions.builder().build();
+    }
+
+    private String runTurn(Prompt prompt) {
+        String question = lastUserText(prompt);
+        List<ToolCallback> tools = prompt.getOptions() instanceof ToolCallingChatOptions options && options.getToolCallbacks() != null
+                ? options.getToolCallbacks()
+                : List.of();
+
+        List<String> toolResults = new ArrayList<>();
+        if (!tools.isEmpty() && roundLatency.nextDouble() < toolTurnRatio) {
+            for (String toolName : toolPattern) {
+                Optional<ToolCallback> tool = tools.stream()
+                        .filter(tc -> tc.getToolDefinition().name().equals(toolName))
+                        .findFirst();
+                if (tool.isEmpty()) continue;
+
+                roundLatency.sleep();
+                String args = "{\"query\":\"" + question.replace("\"", "'") + "\"}";
+                toolResults.add(tool.get().call(args));
+            }
+        }
+
+        roundLatency.sleep();
+        return "Right, here is a beautiful recipe for: " + question + "\n\n"
+                + "## Ingredients\n- 200g spaghetti\n- 2 eggs\n- 50g pecorino\n- black pepper\n\n"
+                + "## Steps\n1. Boil the pasta.\n2. Whisk eggs and cheese.\n3. Toss off the heat.\n\n"
+                + "(" + toolResults.size() + " tool result(s) used)\nSource: https://example.com/loadtest";
+    }
+
+    private String lastUserText(Prompt prompt) {
+        List<Message> instructions = prompt.getInstructions();
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            Message message = instructions.get(i);
+            if (message.getMessageType() == MessageType.USER) {
+                String text = message.getText();
+                return text.length() > 80 ? text.substring(0, 80) : text;
+            }
+        }
+        return "";
+    }
+
+    private ChatResponse response(String text, Prompt prompt, String generatedSoFar) {
+        // Rough 4-characters-per-token estimate
+        int promptTokens = prompt.getInstructions().stream().mapToInt(m -> m.getText() == null ? 0 : m.getText().length() / 4).sum();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))),
+                ChatResponseMetadata.builder().usage(new DefaultUsage(promptTokens, generatedSoFar.length() / 4)).build());
+    }
+}
@@ -0,0 +1,65 @@
+package com.project.chefbot.loadtest;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic 768-dim embedder: hashed bag of words, L2-normalized. Texts sharing words end up close,
+ * which is enough for vector search and the answer cache to behave realistically under load.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final LatencyDistribution latency;
+
+    public FakeEmbeddingModel(int dimensions, LatencyDistribution latency) {
+        this.dimensions = dimensions;
+        this.latency = latency;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        latency.sleep();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> inputs = request.getInstructions();
+        for (int i = 0; i < inputs.size(); i++) {
+            embeddings.add(new Embedding(vectorFor(inputs.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    float[] vectorFor(String text) {
+        float[] vector = new float[dimensions];
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (word.isEmpty()) continue;
+            int hash = word.hashCode();
+            vector[Math.floorMod(hash, dimensions)] += 1;
+            vector[Math.floorMod(hash * 31 + 7, dimensions)] += 0.5f;
+        }
+
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < dimensions; i++) vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+}
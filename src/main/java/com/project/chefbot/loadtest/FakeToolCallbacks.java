@@ -0,0 +1,60 @@
+package com.project.chefbot.loadtest;
+
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.List;
+
+/**
+ * Stand-ins for the MCP tools (Recipe MCP searchRecipes, DuckDuckGo search/fetch_content, Resend send-email).
+ * Results are shaped like real MCP results (a JSON array of text content blocks) so the allergen filter
+ * and memoization see realistic payloads.
+ */
+public final class FakeToolCallbacks {
+
+    private static final String QUERY_SCHEMA = "{\"type\":\"object\",\"properties\":{\"query\":{\"type\":\"string\"}},\"required\":[\"query\"]}";
+
+    private FakeToolCallbacks() {}
+
+    public static List<ToolCallback> recipeTools(LatencyDistribution latency) {
+        return List.of(tool("searchRecipes", "Search the recipe knowledge base", latency,
+                "[{\"type\":\"text\",\"text\":\"{\\\"recipes\\\":["
+                        + "{\\\"title\\\":\\\"Spaghetti Carbonara\\\",\\\"ingredients\\\":\\\"spaghetti, eggs, pecorino, guanciale\\\"},"
+                        + "{\\\"title\\\":\\\"Mushroom Risotto\\\",\\\"ingredients\\\":\\\"arborio rice, mushrooms, butter, parmesan\\\"},"
+                        + "{\\\"title\\\":\\\"Chickpea Curry\\\",\\\"ingredients\\\":\\\"chickpeas, coconut milk, tomatoes, spices\\\"}"
+                        + "]}\"}]"));
+    }
+
+    public static List<ToolCallback> webTools(LatencyDistribution latency) {
+        return List.of(
+                tool("search", "Search the web", latency,
+                        "[{\"type\":\"text\",\"text\":\"1. Best carbonara - https://example.com/carbonara\\n2. Easy risotto - https://example.com/risotto\"}]"),
+                tool("fetch_content", "Fetch a web page", latency,
+                        "[{\"type\":\"text\",\"text\":\"Classic Carbonara. Ingredients: 200g spaghetti, 2 eggs, 50g pecorino, 100g guanciale, black pepper. "
+                                + "Boil pasta, fry guanciale, whisk eggs with cheese, toss off the heat.\"}]"));
+    }
+
+    public static List<ToolCallback> emailTools(LatencyDistribution latency) {
+        return List.of(tool("send-email", "Send an email", latency, "[{\"type\":\"text\",\"text\":\"Email queued (load test)\"}]"));
+    }
+
+    private static ToolCallback tool(String name, String description, LatencyDistribution latency, String result) {
+        ToolDefinition definition = ToolDefinition.builder()
+                .name(name)
+                .description(description)
+                .inputSchema(QUERY_SCHEMA)
+                .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                latency.sleep();
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.project.chefbot.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Log-normal latency distribution described by its median and p99, e.g. "800:4000" (milliseconds).
+ * A single value ("50") means a constant latency. Samples come from a seeded generator so runs repeat.
+ */
+public class LatencyDistribution {
+
+    private static final double Z_99 = 2.326;
+
+    private final double mu;
+    private final double sigma;
+    private final SplittableRandom random;
+
+    public LatencyDistribution(long medianMs, long p99Ms, long seed) {
+        this.mu = Math.log(Math.max(1, medianMs));
+        this.sigma = p99Ms > medianMs ? (Math.log(p99Ms) - mu) / Z_99 : 0;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static LatencyDistribution parse(String spec, long seed) {
+        String[] parts = spec.trim().split(":");
+        long median = Long.parseLong(parts[0].trim());
+        long p99 = parts.length > 1 ? Long.parseLong(parts[1].trim()) : median;
+        return new LatencyDistribution(median, p99, seed);
+    }
+
+    public synchronized long sampleMillis() {
+        if (sigma == 0) return Math.round(Math.exp(mu));
+        // Box-Muller
+        double u1 = random.nextDouble();
+        double u2 = random.nextDouble();
+        double z = Math.sqrt(-2 * Math.log(1 - u1)) * Math.cos(2 * Math.PI * u2);
+        return Math.round(Math.exp(mu + sigma * z));
+    }
+
+    public synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    public void sleep() {
+        try {
+            Thread.sleep(sampleMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
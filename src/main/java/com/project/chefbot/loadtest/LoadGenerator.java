@@ -0,0 +1,232 @@
+package com.project.chefbot.loadtest;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load generator for the chat flow: each virtual user logs in with HTTP basic auth,
+ * creates sessions through the /chef/new form and sends messages through /chef/chat/{id}, exactly as the
+ * browser does (CSRF token included). Reports throughput and p50/p95/p99 per operation; "turn" is the time
+ * from submitting a message until its answer is on the page.
+ *
+ * Runs in-process with the loadtest profile (chefbot.loadtest.generator.enabled=true) or standalone:
+ *   java -cp chefbot.jar -Dloader.main=com.project.chefbot.loadtest.LoadGenerator org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        http://localhost:8080 users=20 sessions=2 messages=3 username=loadtest password=loadtest
+ */
+public class LoadGenerator {
+
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"|value=\"([^\"]+)\"\\s+name=\"_csrf\"");
+    private static final String TURN_PENDING = "\"turnInProgress\":true";
+    private static final Pattern SESSION_ID = Pattern.compile("/chef/chat/(\\d+)");
+    private static final String[] PERSONAS = {"Gordon Ramsay (Strict)", "Grandma (Traditional)", "French Chef (Sophisticated)", "Nutritionist (Healthy)"};
+    private static final String[] DIETS = {"Omnivore", "Vegetarian", "Vegan", "Keto"};
+    private static final String[] ALLERGIES = {"", "nuts", "milk", "shellfish, eggs"};
+    private static final String[] QUESTIONS = {
+            "How do I make carbonara?",
+            "Give me a quick weeknight curry",
+            "What can I cook with mushrooms and rice?",
+            "I want a chocolate dessert for four people",
+            "How long should I roast a chicken?"
+    };
+
+    private final String baseUrl;
+    private final int users;
+    private final int sessionsPerUser;
+    private final int messagesPerSession;
+    private final String authorization;
+
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public LoadGenerator(String baseUrl, int users, int sessionsPerUser, int messagesPerSession, String username, String password) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.users = users;
+        this.sessionsPerUser = sessionsPerUser;
+        this.messagesPerSession = messagesPerSession;
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] kv = args[i].split("=", 2);
+            if (kv.length == 2) options.put(kv[0], kv[1]);
+        }
+        LoadGenerator generator = new LoadGenerator(baseUrl,
+                Integer.parseInt(options.getOrDefault("users", "20")),
+                Integer.parseInt(options.getOrDefault("sessions", "2")),
+                Integer.parseInt(options.getOrDefault("messages", "3")),
+                options.getOrDefault("username", "loadtest"),
+                options.getOrDefault("password", "loadtest"));
+        System.out.println(generator.run());
+    }
+
+    public String run() throws InterruptedException {
+        latencies.clear();
+        errors.set(0);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < users; user++) {
+                int userIndex = user;
+                executor.submit(() -> runUser(userIndex));
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        return report(elapsedSeconds);
+    }
+
+    private void runUser(int userIndex) {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        for (int s = 0; s < sessionsPerUser; s++) {
+            try {
+                int variant = userIndex + s;
+                String sessionName = "Load test " + userIndex + "-" + s;
+                String csrf = fetchCsrf(client, "/chef/new");
+                long sessionId = timed("create-session", () -> post(client, "/chef/new", Map.of(
+                        "sessionName", sessionName,
+                        "chefPersonality", PERSONAS[variant % PERSONAS.length],
+                        "dietType", DIETS[variant % DIETS.length],
+                        "allergies", ALLERGIES[variant % ALLERGIES.length],
+                        "_csrf", csrf)));
+                if (sessionId == 0) {
+                    throw new IllegalStateException("Session form was rejected");
+                }
+
+                for (int m = 0; m < messagesPerSession; m++) {
+                    String question = QUESTIONS[(variant + m) % QUESTIONS.length];
+                    String chatCsrf = fetchCsrf(client, "/chef/chat/" + sessionId);
+                    long submitted = System.nanoTime();
+                    timed("send-message", () -> post(client, "/chef/chat/" + sessionId, Map.of(
+                            "message", question,
+                            "_csrf", chatCsrf)));
+                    // Turns run in the background; the answer is in once the session no longer reports a turn in progress
+                    awaitTurn(client, "/chef/chat/" + sessionId + "/messages?after=" + Long.MAX_VALUE);
+                    record("turn", (System.nanoTime() - submitted) / 1_000_000);
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                System.err.println("[LoadGenerator] User " + userIndex + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private interface Step {
+        long run() throws Exception;
+    }
+
+    private long timed(String operation, Step step) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return step.run();
+        } finally {
+            record(operation, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void record(String operation, long millis) {
+        latencies.computeIfAbsent(operation, k -> Collections.synchronizedList(new ArrayList<>())).add(millis);
+    }
+
+    private void awaitTurn(HttpClient client, String path) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+        while (System.currentTimeMillis() < deadline) {
+            HttpResponse<String> response = client.send(request(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+            }
+            if (!response.body().contains(TURN_PENDING)) return;
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Turn on " + path + " did not finish in time");
+    }
+
+    private String fetchCsrf(HttpClient client, String path) throws Exception {
+        HttpResponse<String> response = client.send(request(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        Matcher matcher = CSRF.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("No CSRF token on " + path);
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    /** Posts a form and returns the session id from the redirect location (0 if there is none). */
+    private long post(HttpClient client, String path, Map<String, String> form) throws Exception {
+        String body = form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .reduce((a, b) -> a + "&" + b)
+                .orElse("");
+        HttpResponse<String> response = client.send(request(path)
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("POST " + path + " returned " + response.statusCode());
+        }
+        Matcher matcher = SESSION_ID.matcher(response.headers().firstValue("Location").orElse(""));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofMinutes(5))
+                .header("Authorization", authorization);
+    }
+
+    private String report(double elapsedSeconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%n[LoadGenerator] users=%d sessions/user=%d messages/session=%d elapsed=%.1fs errors=%d%n",
+                users, sessionsPerUser, messagesPerSession, elapsedSeconds, errors.get()));
+        sb.append(String.format(Locale.ROOT, "%-16s %8s %10s %8s %8s %8s %8s%n", "operation", "count", "req/s", "p50ms", "p95ms", "p99ms", "maxms"));
+        latencies.forEach((operation, values) -> {
+            List<Long> sorted;
+            synchronized (values) {
+                sorted = new ArrayList<>(values);
+            }
+            Collections.sort(sorted);
+            sb.append(String.format(Locale.ROOT, "%-16s %8d %10.2f %8d %8d %8d %8d%n",
+                    operation, sorted.size(), sorted.size() / elapsedSeconds,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1)));
+        });
+        return sb.toString();
+    }
+
+    static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) return 0;
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+}
@@ -0,0 +1,167 @@
+package com.project.chefbot.loadtest;
+
+import com.project.chefbot.config.McpConnectionRegistry;
+import com.project.chefbot.config.VectorStoreConfig;
+import com.project.chefbot.model.User;
+import com.project.chefbot.repository.UserRepository;
+import com.project.chefbot.service.ChatRequestClass;
+import com.project.chefbot.service.LlmScheduler;
+import com.project.chefbot.service.RoutingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * Offline stand-ins for everything outside the JVM except PostgreSQL: chat model, embedding model,
+ * vector stores and MCP tools. Latencies are log-normal "median:p99" specs in milliseconds
+ * (see application-loadtest.properties). Also seeds the user the load generator logs in with and,
+ * when chefbot.loadtest.generator.enabled=true, drives the app with {@link LoadGenerator} once it is up.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig {
+
+    @Value("${chefbot.loadtest.seed:42}")
+    private long seed;
+
+    @Value("${chefbot.loadtest.model.round-latency:800:4000}")
+    private String modelRoundLatency;
+
+    @Value("${chefbot.loadtest.model.first-token-latency:150:600}")
+    private String firstTokenLatency;
+
+    @Value("${chefbot.loadtest.model.stream-chunks:20}")
+    private int streamChunks;
+
+    @Value("${chefbot.loadtest.model.tool-pattern:searchRecipes,searchRecipes,fetch_content}")
+    private String toolPattern;
+
+    @Value("${chefbot.loadtest.model.tool-turn-ratio:0.7}")
+    private double toolTurnRatio;
+
+    @Value("${chefbot.loadtest.embedding.latency:30:150}")
+    private String embeddingLatency;
+
+    @Value("${chefbot.loadtest.tools.recipe-latency:80:400}")
+    private String recipeToolLatency;
+
+    @Value("${chefbot.loadtest.tools.web-latency:600:3000}")
+    private String webToolLatency;
+
+    @Value("${chefbot.loadtest.username:loadtest}")
+    private String username;
+
+    @Value("${chefbot.loadtest.password:loadtest}")
+    private String password;
+
+    @Value("${chefbot.loadtest.generator.enabled:false}")
+    private boolean generatorEnabled;
+
+    @Value("${chefbot.loadtest.generator.users:20}")
+    private int generatorUsers;
+
+    @Value("${chefbot.loadtest.generator.sessions-per-user:2}")
+    private int generatorSessionsPerUser;
+
+    @Value("${chefbot.loadtest.generator.messages-per-session:3}")
+    private int generatorMessagesPerSession;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Bean
+    @Primary
+    public RoutingChatModel routingChatModel(ObjectProvider<MeterRegistry> meterRegistry, LlmScheduler scheduler) {
+        ChatModel fake = new FakeChatModel(
+                LatencyDistribution.parse(modelRoundLatency, seed),
+                LatencyDistribution.parse(firstTokenLatency, seed + 1),
+                Arrays.stream(toolPattern.split(",")).map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toList()),
+                toolTurnRatio,
+                streamChunks);
+
+        Map<String, ChatModel> backends = new LinkedHashMap<>();
+        backends.put("fake", fake);
+        Map<ChatRequestClass, List<String>> routes = new EnumMap<>(ChatRequestClass.class);
+        for (ChatRequestClass requestClass : ChatRequestClass.values()) {
+            routes.put(requestClass, List.of("fake"));
+        }
+        return new RoutingChatModel(backends, routes, 0, 3, 30_000, meterRegistry.getIfAvailable(), scheduler);
+    }
+
+    @Bean
+    @Primary
+    public EmbeddingModel fakeEmbeddingModel() {
+        return new FakeEmbeddingModel(768, LatencyDistribution.parse(embeddingLatency, seed + 2));
+    }
+
+    // In-memory stand-ins for the two pgvector collections (see VectorStoreConfig)
+    @Bean(name = VectorStoreConfig.RECIPES)
+    public VectorStore fakeRecipeVectorStore(EmbeddingModel fakeEmbeddingModel) {
+        return SimpleVectorStore.builder(fakeEmbeddingModel).build();
+    }
+
+    @Bean(name = VectorStoreConfig.MEMORY)
+    public VectorStore fakeMemoryVectorStore(EmbeddingModel fakeEmbeddingModel) {
+        return SimpleVectorStore.builder(fakeEmbeddingModel).build();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public McpConnectionRegistry mcpConnectionRegistry() {
+        LatencyDistribution recipe = LatencyDistribution.parse(recipeToolLatency, seed + 3);
+        LatencyDistribution web = LatencyDistribution.parse(webToolLatency, seed + 4);
+
+        Map<String, Callable<List<ToolCallback>>> connectors = new LinkedHashMap<>();
+        connectors.put("DDG", () -> FakeToolCallbacks.webTools(web));
+        connectors.put("Resend", () -> FakeToolCallbacks.emailTools(recipe));
+        connectors.put("Recipe", () -> FakeToolCallbacks.recipeTools(recipe));
+        return new McpConnectionRegistry(connectors, 1_000, 60_000);
+    }
+
+    @Bean
+    public CommandLineRunner loadTestUser(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+        return args -> {
+            if (userRepository.findByUsername(username) == null) {
+                User user = new User();
+                user.setUsername(username);
+                user.setPassword(passwordEncoder.encode(password));
+                userRepository.save(user);
+                System.out.println("[LoadTest] Created user '" + username + "'");
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runGenerator() {
+        if (!generatorEnabled) return;
+        Thread.ofVirtual().name("load-generator").start(() -> {
+            try {
+                LoadGenerator generator = new LoadGenerator("http://localhost:" + serverPort,
+                        generatorUsers, generatorSessionsPerUser, generatorMessagesPerSession, username, password);
+                System.out.println(generator.run());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+}
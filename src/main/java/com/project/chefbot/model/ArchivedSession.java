@@ -0,0 +1,37 @@
+package com.project.chefbot.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold storage for an inactive session: all of its messages as one zstd-compressed JSON blob.
+ * The session row itself stays in cooking_session, so the sidebar and ownership checks are unaffected.
+ */
+@Entity
+@Table(name = "chat_session_archive")
+@Getter
+@Setter
+public class ArchivedSession {
+
+    @Id
+    private Long sessionId;
+
+    @Column(nullable = false)
+    private String codec;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    private int messageCount;
+
+    private long rawBytes;
+
+    private long compressedBytes;
+
+    private LocalDateTime archivedAt;
+
+    public ArchivedSession() {}
+}
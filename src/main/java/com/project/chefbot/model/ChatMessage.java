@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 @Entity
 public class ChatMessage {
 
+    @Getter
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -18,6 +19,12 @@ public class ChatMessage {
     @Column(columnDefinition = "TEXT")
     private String content;
 
+    // Sanitized HTML rendered from content when the message is saved (null for rows saved before that)
+    @Setter
+    @Getter
+    @Column(columnDefinition = "TEXT")
+    private String contentHtml;
+
     @Setter
     @Getter
     private String sender;
@@ -18,4 +18,17 @@ public class StoredRecipe {
     private String url;
 
     private LocalDateTime scannedAt;
+
+    // HTTP validators and visible-text hash from the last fetch; re-scans only re-extract changed pages
+    private String etag;
+
+    @Column(length = 64)
+    private String lastModified;
+
+    @Column(length = 64)
+    private String contentHash;
+
+    // The text that was split and embedded, so the vector collection can be rebuilt without re-scraping
+    @Column(columnDefinition = "TEXT")
+    private String document;
 }
\ No newline at end of file
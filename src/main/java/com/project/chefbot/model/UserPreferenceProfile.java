@@ -0,0 +1,44 @@
+package com.project.chefbot.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact preferences distilled from a user's finished sessions. List fields are stored "; "-separated;
+ * rendered is the prompt block built from them when the profile is saved.
+ */
+@Entity
+@Table(name = "user_preference_profile")
+@Getter
+@Setter
+public class UserPreferenceProfile {
+
+    @Id
+    private Long userId;
+
+    @Column(columnDefinition = "TEXT")
+    private String likedCuisines;
+
+    @Column(columnDefinition = "TEXT")
+    private String dislikes;
+
+    @Column(length = 32)
+    private String skillLevel;
+
+    @Column(columnDefinition = "TEXT")
+    private String equipment;
+
+    @Column(columnDefinition = "TEXT")
+    private String rendered;
+
+    // Highest chat_message id already distilled into this profile
+    @Column(nullable = false)
+    private long lastMessageId;
+
+    private LocalDateTime updatedAt;
+
+    public UserPreferenceProfile() {}
+}
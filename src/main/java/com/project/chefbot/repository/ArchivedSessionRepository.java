@@ -0,0 +1,11 @@
+package com.project.chefbot.repository;
+
+import com.project.chefbot.model.ArchivedSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface ArchivedSessionRepository extends JpaRepository<ArchivedSession, Long> {
+
+    @Query("SELECT COUNT(a), COALESCE(SUM(a.messageCount), 0), COALESCE(SUM(a.rawBytes), 0), COALESCE(SUM(a.compressedBytes), 0) FROM ArchivedSession a")
+    Object[] summarize();
+}
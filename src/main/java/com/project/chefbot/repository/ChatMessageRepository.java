@@ -1,10 +1,28 @@
 package com.project.chefbot.repository;
 
 import com.project.chefbot.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     List<ChatMessage> findBySessionIdOrderByTimestampAsc(Long sessionId);
-}
 
+    // Keyset pagination on the (session_id, id) index
+    List<ChatMessage> findBySessionIdAndIdGreaterThanOrderByIdAsc(Long sessionId, Long afterId, Pageable pageable);
+    List<ChatMessage> findBySessionIdAndIdLessThanOrderByIdDesc(Long sessionId, Long beforeId, Pageable pageable);
+    List<ChatMessage> findBySessionIdOrderByIdDesc(Long sessionId, Pageable pageable);
+
+    boolean existsBySessionId(Long sessionId);
+
+    // Preference distillation reads a user's messages across sessions, oldest first
+    @Query("SELECT m FROM ChatMessage m WHERE m.session.user.id = :userId AND m.id > :afterId ORDER BY m.id")
+    List<ChatMessage> findByUserAfterId(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.session.id = :sessionId")
+    int deleteBySessionId(@Param("sessionId") Long sessionId);
+}
@@ -1,10 +1,14 @@
 package com.project.chefbot.repository;
 
 import com.project.chefbot.model.CookingSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +17,25 @@ public interface CookingSessionRepository extends JpaRepository<CookingSession,
     @Query("SELECT DISTINCT s FROM CookingSession s LEFT JOIN FETCH s.messages WHERE s.id = :id")
     Optional<CookingSession> findByIdWithMessages(@Param("id") Long id);
 
+    @Query("SELECT s FROM CookingSession s LEFT JOIN FETCH s.user WHERE s.id = :id")
+    Optional<CookingSession> findByIdWithUser(@Param("id") Long id);
+
     @Query("SELECT s FROM CookingSession s WHERE s.user.id = :userId ORDER BY s.createdAt DESC")
     List<CookingSession> findByUserId(@Param("userId") Long userId);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // Serializes archiving and rehydration of one session
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CookingSession s WHERE s.id = :id")
+    Optional<CookingSession> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("""
+            SELECT s.id FROM CookingSession s
+            WHERE s.createdAt < :cutoff AND s.id > :afterId
+              AND EXISTS (SELECT m.id FROM ChatMessage m WHERE m.session = s)
+              AND NOT EXISTS (SELECT m.id FROM ChatMessage m WHERE m.session = s AND m.timestamp >= :cutoff)
+            ORDER BY s.id
+            """)
+    List<Long> findInactiveSessionIds(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") Long afterId, Pageable pageable);
 }
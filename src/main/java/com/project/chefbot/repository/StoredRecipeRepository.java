@@ -2,8 +2,23 @@ package com.project.chefbot.repository;
 
 import com.project.chefbot.model.StoredRecipe;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface StoredRecipeRepository extends JpaRepository<StoredRecipe, Long> {
     Optional<StoredRecipe> findByUrl(String url);
+
+    // Oldest scans first; a sitemap lastmod newer than the scan makes a recipe due early
+    @Query(value = """
+            SELECT r.id FROM stored_recipe r
+            LEFT JOIN crawl_frontier f ON f.url = r.url
+            WHERE r.scanned_at < :cutoff OR f.lastmod > r.scanned_at
+            ORDER BY r.scanned_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findIdsDueForRefresh(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.project.chefbot.repository;
+
+import com.project.chefbot.model.UserPreferenceProfile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserPreferenceProfileRepository extends JpaRepository<UserPreferenceProfile, Long> {
+
+    // Users with messages newer than their profile who have not chatted since the cutoff
+    @Query(value = """
+            SELECT s.user_id FROM chat_message m
+            JOIN cooking_session s ON s.id = m.session_id
+            LEFT JOIN user_preference_profile p ON p.user_id = s.user_id
+            WHERE s.user_id IS NOT NULL AND m.id > COALESCE(p.last_message_id, 0)
+            GROUP BY s.user_id
+            HAVING max(m.timestamp) < :cutoff
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findUsersToDistill(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,259 @@
+package com.project.chefbot.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Compiled multi-pattern matcher (Aho-Corasick) for a session's allergy list.
+ * Each allergen is expanded with its known derivatives ("milk" also matches butter, whey, casein...)
+ * and the whole lexicon is scanned in a single pass over the text. Matches only count on word
+ * boundaries (plural "s"/"es" allowed), and known safe phrases such as "peanut butter" or
+ * "coconut milk" mask the allergen terms they contain.
+ */
+public class AllergenMatcher {
+
+    private static final Map<String, List<String>> DERIVATIVES = new HashMap<>();
+    // Phrase -> the allergen term inside it that the phrase makes harmless
+    private static final Map<String, String> SAFE_PHRASES = Map.ofEntries(
+            Map.entry("peanut butter", "butter"), Map.entry("almond butter", "butter"), Map.entry("cashew butter", "butter"),
+            Map.entry("cocoa butter", "butter"), Map.entry("apple butter", "butter"), Map.entry("vegan butter", "butter"),
+            Map.entry("coconut milk", "milk"), Map.entry("almond milk", "milk"), Map.entry("soy milk", "milk"),
+            Map.entry("oat milk", "milk"), Map.entry("rice milk", "milk"), Map.entry("cashew milk", "milk"),
+            Map.entry("coconut cream", "cream"), Map.entry("cream of tartar", "cream"), Map.entry("vegan cheese", "cheese"),
+            Map.entry("vegan mayo", "mayo"), Map.entry("egg-free", "egg"), Map.entry("dairy-free", "dairy"),
+            Map.entry("gluten-free", "gluten"), Map.entry("gluten-free flour", "flour"), Map.entry("water chestnut", "nut")
+    );
+
+    static {
+        DERIVATIVES.put("milk", List.of("milk", "butter", "buttermilk", "cream", "cheese", "whey", "casein", "caseinate",
+                "lactose", "ghee", "yogurt", "yoghurt", "kefir", "curd", "custard", "mascarpone", "ricotta", "mozzarella",
+                "parmesan", "cheddar", "feta", "paneer", "creme fraiche", "sour cream", "ice cream"));
+        DERIVATIVES.put("dairy", DERIVATIVES.get("milk"));
+        DERIVATIVES.put("lactose", DERIVATIVES.get("milk"));
+        DERIVATIVES.put("egg", List.of("egg", "egg yolk", "egg white", "albumin", "mayonnaise", "mayo", "meringue", "aioli", "eggnog"));
+        DERIVATIVES.put("gluten", List.of("gluten", "wheat", "flour", "bread", "breadcrumb", "panko", "pasta", "spaghetti", "noodle",
+                "semolina", "durum", "couscous", "bulgur", "barley", "rye", "spelt", "farro", "seitan", "malt", "beer", "soy sauce"));
+        DERIVATIVES.put("wheat", DERIVATIVES.get("gluten"));
+        DERIVATIVES.put("peanut", List.of("peanut", "groundnut", "arachis", "satay"));
+        DERIVATIVES.put("nut", List.of("nut", "almond", "walnut", "cashew", "pecan", "pistachio", "hazelnut", "macadamia",
+                "brazil nut", "pine nut", "praline", "marzipan", "frangipane", "nutella", "peanut", "gianduja"));
+        DERIVATIVES.put("tree nut", DERIVATIVES.get("nut"));
+        DERIVATIVES.put("shellfish", List.of("shellfish", "shrimp", "prawn", "crab", "lobster", "crayfish", "langoustine",
+                "scallop", "mussel", "clam", "oyster", "squid", "calamari", "octopus"));
+        DERIVATIVES.put("seafood", DERIVATIVES.get("shellfish"));
+        DERIVATIVES.put("fish", List.of("fish", "salmon", "tuna", "cod", "anchovy", "sardine", "mackerel", "trout", "haddock",
+                "tilapia", "halibut", "fish sauce", "worcestershire"));
+        DERIVATIVES.put("soy", List.of("soy", "soya", "tofu", "tempeh", "edamame", "miso", "soy sauce", "tamari", "soybean"));
+        DERIVATIVES.put("sesame", List.of("sesame", "tahini", "halva", "gomasio"));
+        DERIVATIVES.put("mustard", List.of("mustard", "dijon"));
+        DERIVATIVES.put("celery", List.of("celery", "celeriac"));
+        DERIVATIVES.put("sulfite", List.of("sulfite", "sulphite", "wine", "dried apricot"));
+    }
+
+    private static final List<String> MEAT = List.of("chicken", "beef", "pork", "lamb", "bacon", "ham", "sausage", "turkey",
+            "duck", "veal", "prosciutto", "pancetta", "guanciale", "chorizo", "salami", "gelatin", "lard", "mince",
+            "anchovy", "fish", "shrimp", "prawn", "salmon", "tuna");
+    private static final List<String> ANIMAL_PRODUCTS = List.of("egg", "honey", "milk", "butter", "cheese", "cream", "yogurt",
+            "whey", "ghee", "mayonnaise", "parmesan", "mozzarella");
+
+    /** A term found in the text, reported against the restriction it came from. */
+    public record Match(String restriction, String term) {}
+
+    private final List<Map<Character, Integer>> gotoTable = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    private final List<List<int[]>> outputs = new ArrayList<>();
+
+    // For each pattern id: term, restriction (null for safe phrases), and whether the restriction is a hard allergy.
+    // For safe phrases the restriction slot holds nothing and maskedTerms holds the term they neutralize.
+    private final List<String> terms = new ArrayList<>();
+    private final List<String> restrictions = new ArrayList<>();
+    private final List<Boolean> allergyFlags = new ArrayList<>();
+    private final Map<Integer, String> maskedTerms = new HashMap<>();
+
+    private final boolean empty;
+
+    private AllergenMatcher(Map<String, List<String>> allergies, Map<String, List<String>> diet) {
+        newNode();
+        allergies.forEach((restriction, list) -> list.forEach(term -> addPattern(term, restriction, true)));
+        diet.forEach((restriction, list) -> list.forEach(term -> addPattern(term, restriction, false)));
+        this.empty = terms.isEmpty();
+        if (!empty) {
+            SAFE_PHRASES.forEach((phrase, masked) -> maskedTerms.put(addPattern(phrase, null, false), masked));
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Builds a matcher from the free-text allergy list of a session (e.g. "nuts, milk and eggs")
+     * plus the session's diet type. "No restrictions" or blank input yields a matcher that never matches.
+     */
+    public static AllergenMatcher forSession(String excludedIngredients, String dietType) {
+        Map<String, List<String>> allergies = new LinkedHashMap<>();
+        for (String restriction : parseRestrictions(excludedIngredients)) {
+            allergies.put(restriction, DERIVATIVES.getOrDefault(singular(restriction), List.of(restriction)));
+        }
+
+        Map<String, List<String>> diet = new LinkedHashMap<>();
+        String normalizedDiet = dietType == null ? "" : dietType.toLowerCase(Locale.ROOT);
+        if (normalizedDiet.contains("vegetarian") || normalizedDiet.contains("vegan")) {
+            diet.put(dietType + " diet", MEAT);
+        }
+        if (normalizedDiet.contains("vegan")) {
+            diet.put("Vegan diet (animal products)", ANIMAL_PRODUCTS);
+        }
+        return new AllergenMatcher(allergies, diet);
+    }
+
+    static List<String> parseRestrictions(String excludedIngredients) {
+        List<String> result = new ArrayList<>();
+        if (excludedIngredients == null || excludedIngredients.isBlank()
+                || excludedIngredients.equalsIgnoreCase("No restrictions")) {
+            return result;
+        }
+        for (String part : excludedIngredients.toLowerCase(Locale.ROOT).split(",|;|/|\\band\\b|\\n")) {
+            // "gluten-free", "no nuts!", "lactose intolerance" -> the bare ingredient the lexicon knows
+            String restriction = part.replaceAll("-?\\b(allergy|allergies|allergic to|intolerance|intolerant|free|no)\\b", " ")
+                    .replaceAll("[^\\p{L}\\s]", " ")
+                    .replaceAll("\\s+", " ")
+                    .trim();
+            if (!restriction.isEmpty()) {
+                result.add(restriction);
+            }
+        }
+        return result;
+    }
+
+    private static String singular(String word) {
+        if (DERIVATIVES.containsKey(word)) return word;
+        if (word.endsWith("s") && DERIVATIVES.containsKey(word.substring(0, word.length() - 1))) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /** Allergy matches only: these make a recipe unsafe. */
+    public Set<Match> findAllergens(String text) {
+        return scan(text, true);
+    }
+
+    /** Diet matches only: these need substitution but are not dangerous. */
+    public Set<Match> findDietConflicts(String text) {
+        return scan(text, false);
+    }
+
+    private Set<Match> scan(String text, boolean allergies) {
+        Set<Match> matches = new LinkedHashSet<>();
+        if (empty || text == null || text.isEmpty()) return matches;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        List<int[]> found = new ArrayList<>(); // {patternId, start, end}
+        List<int[]> safeSpans = new ArrayList<>(); // {patternId, start, end}
+
+        int state = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            while (state != 0 && !gotoTable.get(state).containsKey(c)) {
+                state = failure.get(state);
+            }
+            state = gotoTable.get(state).getOrDefault(c, 0);
+            for (int[] output : outputs.get(state)) {
+                int patternId = output[0];
+                int start = i - output[1] + 1;
+                if (!isWordBoundary(lower, start, i + 1)) continue;
+                if (restrictions.get(patternId) == null) {
+                    safeSpans.add(new int[]{patternId, start, i + 1});
+                } else if (allergyFlags.get(patternId) == allergies) {
+                    found.add(new int[]{patternId, start, i + 1});
+                }
+            }
+        }
+
+        for (int[] hit : found) {
+            boolean masked = safeSpans.stream().anyMatch(span -> span[1] <= hit[1] && hit[2] <= span[2]
+                    && terms.get(hit[0]).equals(maskedTerms.get(span[0])));
+            if (!masked) {
+                matches.add(new Match(restrictions.get(hit[0]), terms.get(hit[0])));
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isWordBoundary(String text, int start, int end) {
+        if (start > 0 && Character.isLetter(text.charAt(start - 1))) return false;
+        if (end >= text.length() || !Character.isLetter(text.charAt(end))) return true;
+        // Allow simple plurals: "eggs", "tomatoes"
+        int suffixEnd = end;
+        if (text.charAt(suffixEnd) == 'e' && suffixEnd + 1 < text.length() && text.charAt(suffixEnd + 1) == 's') {
+            suffixEnd += 2;
+        } else if (text.charAt(suffixEnd) == 's') {
+            suffixEnd += 1;
+        } else {
+            return false;
+        }
+        return suffixEnd >= text.length() || !Character.isLetter(text.charAt(suffixEnd));
+    }
+
+    private int newNode() {
+        gotoTable.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return gotoTable.size() - 1;
+    }
+
+    private int addPattern(String term, String restriction, boolean allergy) {
+        String lower = term.toLowerCase(Locale.ROOT);
+
+        int patternId = terms.size();
+        terms.add(lower);
+        restrictions.add(restriction);
+        allergyFlags.add(allergy);
+
+        int state = 0;
+        for (char c : lower.toCharArray()) {
+            Integer next = gotoTable.get(state).get(c);
+            if (next == null) {
+                next = newNode();
+                gotoTable.get(state).put(c, next);
+            }
+            state = next;
+        }
+        outputs.get(state).add(new int[]{patternId, lower.length()});
+        return patternId;
+    }
+
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : gotoTable.get(0).values()) {
+            failure.set(child, 0);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : gotoTable.get(state).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                queue.add(child);
+
+                int fallback = failure.get(state);
+                while (fallback != 0 && !gotoTable.get(fallback).containsKey(c)) {
+                    fallback = failure.get(fallback);
+                }
+                int target = gotoTable.get(fallback).getOrDefault(c, 0);
+                failure.set(child, target == child ? 0 : target);
+                outputs.get(child).addAll(outputs.get(failure.get(child)));
+            }
+        }
+    }
+}
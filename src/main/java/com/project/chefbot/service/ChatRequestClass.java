@@ -0,0 +1,21 @@
+package com.project.chefbot.service;
+
+/**
+ * Kind of LLM call, used to pick a backend and to order calls waiting for one (lower priority value first).
+ */
+public enum ChatRequestClass {
+    INTERACTIVE(0),
+    TOOL_HEAVY(0),
+    ETL_EXTRACTION(2),
+    SUMMARIZATION(1);
+
+    private final int priority;
+
+    ChatRequestClass(int priority) {
+        this.priority = priority;
+    }
+
+    public int priority() {
+        return priority;
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.chefbot.service;
 
+import com.project.chefbot.config.McpConnectionRegistry;
 import com.project.chefbot.dto.CreateSessionRequest;
 import com.project.chefbot.model.ChatMessage;
 import com.project.chefbot.model.CookingSession;
@@ -11,61 +12,77 @@ import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
 import org.springframework.ai.tool.ToolCallback;
-import org.springframework.ai.vertexai.gemini.VertexAiGeminiChatOptions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class ChefAiService {
 
-    private final ChatModel chatModel;
+    private static final String MODEL_ERROR_PREFIX = "I am sorry, my kitchen is on fire (Internal Error): ";
+
+    private final RoutingChatModel chatModel;
     private final CookingSessionRepository sessionRepo;
     private final ChatMessageRepository messageRepo;
     private final ConversationVectorService vectorService;
     private final UserRepository userRepo;
-    private final List<ToolCallback> toolCallbacks;
+    private final McpConnectionRegistry mcpRegistry;
+    private final RecipeSafetyFilter safetyFilter;
+    private final SemanticAnswerCache answerCache;
+    private final ChefMetrics metrics;
+    private final MarkdownRenderer markdownRenderer;
+    private final SessionArchiveService archiveService;
+    private final PreferenceProfileService profileService;
+
+    @Value("${chefbot.tools.max-calls-per-turn:6}")
+    private int maxToolCallsPerTurn;
+
+    @Value("${chefbot.tools.max-time-per-turn-ms:60000}")
+    private long maxToolMillisPerTurn;
 
-    public ChefAiService(ChatModel chatModel,
+    // Opt-in: vector search over past transcripts when the user has no distilled profile yet
+    @Value("${chefbot.memory.vector-fallback:false}")
+    private boolean vectorMemoryFallback;
+
+    public ChefAiService(RoutingChatModel chatModel,
                          CookingSessionRepository sessionRepo,
                          ChatMessageRepository messageRepo,
                          @Autowired(required = false) ConversationVectorService vectorService,
                          UserRepository userRepo,
-                         @Autowired(required = false) List<ToolCallback> allToolCallbacks) {
+                         @Autowired(required = false) McpConnectionRegistry mcpRegistry,
+                         RecipeSafetyFilter safetyFilter,
+                         SemanticAnswerCache answerCache,
+                         ChefMetrics metrics,
+                         MarkdownRenderer markdownRenderer,
+                         SessionArchiveService archiveService,
+                         PreferenceProfileService profileService) {
         this.chatModel = chatModel;
         this.sessionRepo = sessionRepo;
         this.messageRepo = messageRepo;
         this.vectorService = vectorService;
         this.userRepo = userRepo;
-
-        if (allToolCallbacks != null) {
-            // Remove duplicates by name
-            this.toolCallbacks = new ArrayList<>(allToolCallbacks.stream()
-                    .collect(Collectors.toMap(
-                            tc -> tc.getToolDefinition().name(),
-                            tc -> tc,
-                            (existing, replacement) -> existing))
-                    .values());
-        } else {
-            this.toolCallbacks = new ArrayList<>();
-        }
-
-        if (this.toolCallbacks.isEmpty()) {
+        this.mcpRegistry = mcpRegistry;
+        this.safetyFilter = safetyFilter;
+        this.answerCache = answerCache;
+        this.metrics = metrics;
+        this.markdownRenderer = markdownRenderer;
+        this.archiveService = archiveService;
+        this.profileService = profileService;
+
+        if (mcpRegistry == null) {
             System.out.println("[ChefAiService] No tools available");
-        } else {
-            System.out.println("[ChefAiService] Available tools (" + this.toolCallbacks.size() + "): " +
-                this.toolCallbacks.stream()
-                    .map(tc -> tc.getToolDefinition().name())
-                    .collect(Collectors.joining(", ")));
         }
     }
 
@@ -84,26 +101,64 @@ public class ChefAiService {
         return sessionRepo.save(session).getId();
     }
 
-    @Transactional
-    public void sendMessage(Long sessionId, String userMessageText) {
-        CookingSession session = sessionRepo.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session does not exist"));
-
+    /**
+     * Runs one chat turn. Not transactional: the user message is committed on its own before the model is
+     * called (onUserMessageSaved runs then) and the reply afterwards, so no transaction or pooled connection
+     * is held across the model and tool calls.
+     */
+    public void sendMessage(Long sessionId, String userMessageText, Runnable onUserMessageSaved) {
+        archiveService.rehydrateIfArchived(sessionId);
+        // The user is fetched with the session: memory, cache and vectors read it outside any transaction
+        CookingSession session = metrics.timeChatStage("db_load", null, () -> sessionRepo.findByIdWithUser(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session does not exist")));
+        String persona = session.getChefPersonality();
+
+        boolean firstTurn = !messageRepo.existsBySessionId(sessionId);
         saveMessage(session, userMessageText, "USER");
+        onUserMessageSaved.run();
 
+        // Memory first: an answer built on this user's profile or past chats is cached for this user only
         Long userId = session.getUser() != null ? session.getUser().getId() : null;
-        String longTermMemory = retrieveLongTermMemory(userMessageText, userId);
+        String longTermMemory = metrics.timeChatStage("memory_retrieval", persona,
+                () -> retrieveLongTermMemory(userMessageText, userId));
 
-        List<Message> aiMessages = buildConversationContext(session, longTermMemory, userMessageText);
+        SemanticAnswerCache.Lookup cacheLookup = lookupCachedAnswer(session, userMessageText, longTermMemory, firstTurn);
+        if (cacheLookup != null) {
+            metrics.recordAnswerCache(cacheLookup.isHit());
+        }
+        if (cacheLookup != null && cacheLookup.isHit()) {
+            saveMessage(session, cacheLookup.answer(), "AI");
+            metrics.timeChatStage("memory_update", persona, () -> updateLongTermMemory(session, sessionId));
+            return;
+        }
 
-        String aiResponse = callAiModel(aiMessages);
+        List<Message> aiMessages = metrics.timeChatStage("prompt_build", persona,
+                () -> buildConversationContext(session, longTermMemory, userMessageText));
+
+        long modelStart = System.currentTimeMillis();
+        String aiResponse = metrics.timeChatStage("model", persona, () -> callAiModel(session, aiMessages));
+        if (cacheLookup != null && !aiResponse.startsWith(MODEL_ERROR_PREFIX)) {
+            answerCache.store(cacheLookup, aiResponse, System.currentTimeMillis() - modelStart);
+        }
 
         saveMessage(session, aiResponse, "AI");
-        updateLongTermMemory(session, sessionId);
+        metrics.timeChatStage("memory_update", persona, () -> updateLongTermMemory(session, sessionId));
+    }
+
+    private SemanticAnswerCache.Lookup lookupCachedAnswer(CookingSession session, String question, String personalContext,
+                                                          boolean firstTurn) {
+        if (!answerCache.isEligible(firstTurn, question)) return null;
+        try {
+            return answerCache.lookup(session, question, personalContext);
+        } catch (Exception e) {
+            System.err.println("Answer cache lookup failed: " + e.getMessage());
+            return null;
+        }
     }
 
     private String retrieveLongTermMemory(String query, Long userId) {
-        if (vectorService == null) return "";
+        String profile = profileService.getPromptBlock(userId);
+        if (!profile.isEmpty() || !vectorMemoryFallback || vectorService == null) return profile;
         try {
             List<Document> similarChats = vectorService.searchSimilarConversations(query, 2, userId);
             if (similarChats.isEmpty()) return "";
@@ -111,7 +166,8 @@ public class ChefAiService {
             String memoryContent = similarChats.stream()
                     .map(Document::getText)
                     .collect(Collectors.joining("\n---\n"));
-            return "\nRELEVANT PAST CONVERSATIONS (FOR CONTEXT ONLY - DO NOT use email addresses from past conversations!):\n" + memoryContent + "\n";
+            String memory = "RELEVANT PAST CONVERSATIONS (FOR CONTEXT ONLY - DO NOT use email addresses from past conversations!):\n" + memoryContent;
+            return memory.substring(0, Math.min(profileService.getMaxPromptChars(), memory.length()));
         } catch (Exception e) {
             System.err.println("Vector search failed: " + e.getMessage());
             return "";
@@ -119,9 +175,14 @@ public class ChefAiService {
     }
 
     private List<Message> buildConversationContext(CookingSession session, String memory, String currentMsg) {
+        List<ChatMessage> history = messageRepo.findBySessionIdOrderByTimestampAsc(session.getId());
+        return buildConversationContext(session, history, memory, currentMsg);
+    }
+
+    // Package-private so the benchmarks module can measure prompt assembly without a database
+    List<Message> buildConversationContext(CookingSession session, List<ChatMessage> history, String memory, String currentMsg) {
         String systemText = createSystemPrompt(session, memory);
 
-        List<ChatMessage> history = messageRepo.findBySessionIdOrderByTimestampAsc(session.getId());
         int windowSize = 10;
         if (history.size() > windowSize) {
             history = history.subList(history.size() - windowSize, history.size());
@@ -144,7 +205,7 @@ public class ChefAiService {
         return aiMessages;
     }
 
-    private String createSystemPrompt(CookingSession session, String memory) {
+    String createSystemPrompt(CookingSession session, String memory) {
         String styleGuide = getPersonaStyle(session.getChefPersonality());
 
         return String.format("""
@@ -216,51 +277,112 @@ public class ChefAiService {
                 session.getExcludedIngredients(),
                 session.getExcludedIngredients(),
                 session.getExcludedIngredients(),
-                memory.isEmpty() ? "" : "\nPast: " + memory.substring(0, Math.min(200, memory.length()))
+                memory.isEmpty() ? "" : "\n" + memory
         );
     }
 
-    private String callAiModel(List<Message> messages) {
+    private String callAiModel(CookingSession session, List<Message> messages) {
         try {
-            VertexAiGeminiChatOptions.Builder optionsBuilder = VertexAiGeminiChatOptions.builder()
+            // Portable options: the router may send this turn to Gemini or the local Ollama model
+            ToolCallingChatOptions.Builder optionsBuilder = ToolCallingChatOptions.builder()
                     .temperature(0.7);
 
+            // Resolved per call: MCP servers connect in the background and may join later
+            List<ToolCallback> toolCallbacks = mcpRegistry != null ? mcpRegistry.getToolCallbacks() : List.of();
+            TurnToolBudget toolBudget = new TurnToolBudget(maxToolCallsPerTurn, maxToolMillisPerTurn, metrics);
             if (!toolCallbacks.isEmpty()) {
-                optionsBuilder.toolCallbacks(toolCallbacks);
+                // Allergen screening runs inside the budget so memoized results are already screened
+                optionsBuilder.toolCallbacks(toolBudget.wrap(safetyFilter.wrap(toolCallbacks, session)));
             }
 
             Prompt prompt = new Prompt(messages, optionsBuilder.build());
-            return chatModel.call(prompt).getResult().getOutput().getText();
+            ChatRequestClass requestClass = toolCallbacks.isEmpty() ? ChatRequestClass.INTERACTIVE : ChatRequestClass.TOOL_HEAVY;
+
+            // Streamed so the router can record time-to-first-token; the reply is still saved as a whole
+            List<ChatResponse> chunks = chatModel.stream(requestClass, prompt).collectList().block();
+            String response = chunks == null ? "" : chunks.stream()
+                    .filter(chunk -> chunk.getResult() != null && chunk.getResult().getOutput() != null)
+                    .map(chunk -> chunk.getResult().getOutput().getText())
+                    .filter(text -> text != null)
+                    .collect(Collectors.joining());
+
+            System.out.println("[ChefAiService] Turn tools: " + toolBudget.summary());
+            metrics.recordTurnTools(session.getChefPersonality(), toolBudget.getCalls(), toolBudget.getMemoHits(), toolBudget.getRejected());
+            return response;
         } catch (Exception e) {
             e.printStackTrace();
-            return "I am sorry, my kitchen is on fire (Internal Error): " + e.getMessage();
+            return MODEL_ERROR_PREFIX + e.getMessage();
         }
     }
 
     private void saveMessage(CookingSession session, String content, String sender) {
         ChatMessage msg = new ChatMessage();
         msg.setContent(content);
+        msg.setContentHtml(markdownRenderer.render(content));
         msg.setSender(sender);
         msg.setTimestamp(LocalDateTime.now());
         msg.setSession(session);
         messageRepo.save(msg);
     }
 
+    // Transcript vectors are only needed by the opt-in fallback; the profile is distilled in the background
     private void updateLongTermMemory(CookingSession session, Long sessionId) {
-        if (vectorService != null) {
+        if (vectorMemoryFallback && vectorService != null) {
             List<ChatMessage> allMessages = getMessagesForSession(sessionId);
             vectorService.saveConversationToVector(session, allMessages);
         }
     }
 
     public CookingSession getSessionInfo(Long id) { return sessionRepo.findById(id).orElseThrow(); }
-    public List<ChatMessage> getMessagesForSession(Long sessionId) { return messageRepo.findBySessionIdOrderByTimestampAsc(sessionId); }
+    public List<ChatMessage> getMessagesForSession(Long sessionId) {
+        archiveService.rehydrateIfArchived(sessionId);
+        return messageRepo.findBySessionIdOrderByTimestampAsc(sessionId);
+    }
+
+    // Keyset pages by message id, always returned oldest first
+    public List<ChatMessage> getRecentMessages(Long sessionId, int limit) {
+        // Opening a chat is what brings an archived session back
+        archiveService.rehydrateIfArchived(sessionId);
+        return withHtml(oldestFirst(messageRepo.findBySessionIdOrderByIdDesc(sessionId, PageRequest.of(0, limit))));
+    }
+
+    public List<ChatMessage> getMessagesBefore(Long sessionId, Long beforeId, int limit) {
+        return withHtml(oldestFirst(messageRepo.findBySessionIdAndIdLessThanOrderByIdDesc(sessionId, beforeId, PageRequest.of(0, limit))));
+    }
+
+    public List<ChatMessage> getMessagesAfter(Long sessionId, Long afterId, int limit) {
+        return withHtml(messageRepo.findBySessionIdAndIdGreaterThanOrderByIdAsc(sessionId, afterId, PageRequest.of(0, limit)));
+    }
+
+    // Messages saved before pre-rendering existed are rendered on first view and stored, so it happens once
+    private List<ChatMessage> withHtml(List<ChatMessage> messages) {
+        List<ChatMessage> rendered = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (message.getContentHtml() == null) {
+                message.setContentHtml(markdownRenderer.render(message.getContent()));
+                rendered.add(message);
+            }
+        }
+        if (!rendered.isEmpty()) messageRepo.saveAll(rendered);
+        return messages;
+    }
+
+    private static List<ChatMessage> oldestFirst(List<ChatMessage> newestFirst) {
+        List<ChatMessage> messages = new ArrayList<>(newestFirst);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    public boolean isSessionOwnedBy(Long sessionId, Long userId) {
+        return userId != null && sessionRepo.existsByIdAndUserId(sessionId, userId);
+    }
     public List<CookingSession> getSessionsForUser(Long userId) { return sessionRepo.findByUserId(userId); }
 
     public void deleteSession(Long sessionId, Long userId) {
         CookingSession session = sessionRepo.findById(sessionId).orElseThrow();
         if (session.getUser() == null || !session.getUser().getId().equals(userId)) return;
         if (vectorService != null) vectorService.deleteConversationVectors(sessionId);
+        archiveService.discard(sessionId);
         sessionRepo.delete(session);
     }
 
@@ -0,0 +1,176 @@
+package com.project.chefbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer timers and counters for the chat turn and the ETL pipeline, exported on /actuator/prometheus.
+ * Persona tags are normalized to the known personas so free-text input cannot explode tag cardinality.
+ */
+@Component
+public class ChefMetrics {
+
+    private final MeterRegistry registry;
+
+    public ChefMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public <T> T timeChatStage(String stage, String persona, Supplier<T> work) {
+        return chatStageTimer(stage, persona).record(work);
+    }
+
+    public void timeChatStage(String stage, String persona, Runnable work) {
+        chatStageTimer(stage, persona).record(work);
+    }
+
+    public <T> T timeEtlStage(String stage, Supplier<T> work) {
+        return Timer.builder("chefbot.etl.stage")
+                .description("Time spent in each ETL stage")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(work);
+    }
+
+    public void recordEtlResult(String outcome) {
+        Counter.builder("chefbot.etl.urls")
+                .description("Processed URLs by outcome")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordExtraction(String outcome, int generatedChars) {
+        DistributionSummary.builder("chefbot.etl.extraction.chars")
+                .description("Characters generated per recipe extraction, by outcome; aborted extractions stop early")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(generatedChars);
+    }
+
+    public void recordToolCall(String tool, String outcome, long millis) {
+        Timer.builder("chefbot.chat.tool")
+                .description("Tool calls made during chat turns")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordTurnTools(String persona, int calls, int memoHits, int rejected) {
+        DistributionSummary.builder("chefbot.chat.turn.tool.calls")
+                .description("Tool calls executed per chat turn")
+                .tag("persona", personaTag(persona))
+                .register(registry)
+                .record(calls);
+        Counter.builder("chefbot.chat.tool.memo.hits").tag("persona", personaTag(persona)).register(registry).increment(memoHits);
+        Counter.builder("chefbot.chat.tool.rejected").tag("persona", personaTag(persona)).register(registry).increment(rejected);
+    }
+
+    public void recordAnswerCache(boolean hit) {
+        Counter.builder("chefbot.chat.answer.cache")
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    public void recordTurnSubmission(String outcome) {
+        Counter.builder("chefbot.chat.turn.submissions")
+                .description("Chat messages submitted, by queue outcome")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordTurnQueueWait(long millis) {
+        Timer.builder("chefbot.chat.turn.queue.wait")
+                .description("Time a chat turn waited behind earlier turns of the same session")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordArchive(String action, long rawBytes, long compressedBytes) {
+        Counter.builder("chefbot.archive.sessions")
+                .description("Sessions moved to or from cold storage")
+                .tag("action", action)
+                .register(registry)
+                .increment();
+        DistributionSummary.builder("chefbot.archive.compression.ratio")
+                .description("Raw JSON size divided by compressed size per archived session")
+                .register(registry)
+                .record(compressedBytes == 0 ? 0 : (double) rawBytes / compressedBytes);
+    }
+
+    public void recordProfileDistillation(String outcome) {
+        Counter.builder("chefbot.profile.distillations")
+                .description("Preference profile distillation runs per user, by outcome")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordEmbeddingBatch(String backend, int size, long millis) {
+        Timer.builder("chefbot.embedding.batch")
+                .description("Time to embed one batch of texts")
+                .tag("backend", backend)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(millis, TimeUnit.MILLISECONDS);
+        DistributionSummary.builder("chefbot.embedding.batch.size")
+                .description("Texts per embedding batch")
+                .tag("backend", backend)
+                .register(registry)
+                .record(size);
+    }
+
+    public void recordLlmQueueWait(String requestClass, String backend, long millis) {
+        Timer.builder("chefbot.llm.queue.wait")
+                .description("Time an LLM call waited for a backend slot, by request class")
+                .tag("class", requestClass)
+                .tag("model", backend)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordLlmRejection(String requestClass, String backend, String reason) {
+        Counter.builder("chefbot.llm.rejected")
+                .description("LLM calls and chat turns turned away by the scheduler")
+                .tag("class", requestClass)
+                .tag("model", backend)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    private Timer chatStageTimer(String stage, String persona) {
+        return Timer.builder("chefbot.chat.stage")
+                .description("Time spent in each stage of a chat turn")
+                .tag("stage", stage)
+                .tag("persona", personaTag(persona))
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public static String personaTag(String personality) {
+        if (personality == null) return "none";
+        if (personality.contains("Gordon Ramsay")) return "gordon-ramsay";
+        if (personality.contains("Grandma")) return "grandma";
+        if (personality.contains("French Chef")) return "french-chef";
+        if (personality.contains("Nutritionist")) return "nutritionist";
+        return "other";
+    }
+}
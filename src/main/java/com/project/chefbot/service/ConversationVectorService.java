@@ -1,13 +1,17 @@
 package com.project.chefbot.service;
 
+import com.project.chefbot.config.VectorStoreConfig;
 import com.project.chefbot.model.ChatMessage;
 import com.project.chefbot.model.CookingSession;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -15,13 +19,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Conversation memory, stored in its own collection (memoryVectorStore) apart from the recipe knowledge base.
+ */
 @Service
 public class ConversationVectorService {
 
     private final VectorStore vectorStore;
 
+    @Value("${chefbot.vector.chunk-size:800}")
+    private int chunkSize;
+
+    @Value("${chefbot.vector.min-chunk-chars:400}")
+    private int minChunkChars;
+
     @Autowired
-    public ConversationVectorService(@Autowired(required = false) VectorStore vectorStore) {
+    public ConversationVectorService(@Autowired(required = false) @Qualifier(VectorStoreConfig.MEMORY) VectorStore vectorStore) {
         this.vectorStore = vectorStore;
         if (vectorStore == null) {
             System.out.println("WARNING: VectorStore is NULL.");
@@ -35,39 +48,51 @@ public class ConversationVectorService {
             // Delete old vectors first to prevent duplication
             deleteConversationVectors(session.getId());
 
-            String conversationText = messages.stream()
-                    .map(msg -> msg.getSender() + ": " + msg.getContent())
-                    .collect(Collectors.joining("\n"));
-
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("sessionId", session.getId());
-            metadata.put("sessionName", session.getSessionName());
-            metadata.put("dietType", session.getDietType());
-            metadata.put("chefPersonality", session.getChefPersonality());
-            metadata.put("timestamp", System.currentTimeMillis());
-            if (session.getUser() != null) {
-                metadata.put("userId", session.getUser().getId().toString());
-            }
-
-            Document doc = new Document(conversationText, metadata);
-
-            TokenTextSplitter splitter = new TokenTextSplitter(800, 400, 5, 10000, true);
-            List<Document> splitDocs = splitter.apply(List.of(doc));
-
-            vectorStore.add(splitDocs);
+            vectorStore.add(toDocuments(session, messages));
 
         } catch (Exception e) {
             System.err.println("Error saving to Chroma: " + e.getMessage());
         }
     }
 
+    /** The chunks stored for a conversation; also used to rebuild the collection from chat_message. */
+    public List<Document> toDocuments(CookingSession session, List<ChatMessage> messages) {
+        String conversationText = messages.stream()
+                .map(msg -> msg.getSender() + ": " + msg.getContent())
+                .collect(Collectors.joining("\n"));
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("sessionId", session.getId());
+        metadata.put("sessionName", session.getSessionName());
+        metadata.put("dietType", session.getDietType());
+        metadata.put("chefPersonality", session.getChefPersonality());
+        metadata.put("timestamp", System.currentTimeMillis());
+        if (session.getUser() != null) {
+            metadata.put("userId", session.getUser().getId().toString());
+        }
+
+        Document doc = new Document(conversationText, metadata);
+
+        TokenTextSplitter splitter = new TokenTextSplitter(chunkSize, minChunkChars, 5, 10000, true);
+        return splitter.apply(List.of(doc));
+    }
+
     public void deleteConversationVectors(Long sessionId) {
         if (vectorStore == null) return;
 
         try {
             FilterExpressionBuilder b = new FilterExpressionBuilder();
+            Filter.Expression bySession = b.eq("sessionId", sessionId).build();
+            try {
+                vectorStore.delete(bySession);
+                System.out.println("Deleted vectors for session: " + sessionId);
+                return;
+            } catch (UnsupportedOperationException e) {
+                // Store without filtered deletes: look the ids up first
+            }
+
             SearchRequest searchRequest = SearchRequest.builder()
-                    .filterExpression(b.eq("sessionId", sessionId).build())
+                    .filterExpression(bySession)
                     .topK(1000)
                     .build();
 
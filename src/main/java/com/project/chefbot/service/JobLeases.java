@@ -0,0 +1,53 @@
+package com.project.chefbot.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Cluster-wide leases for scheduled jobs that must not run on several nodes at once (session archiving,
+ * profile distillation). A run goes ahead only if it takes the job's row in job_lease; the row is given
+ * back when the run ends, and a node that dies mid-run blocks the job only until the lease expires.
+ */
+@Component
+public class JobLeases {
+
+    /** A held lease; closing it releases the job for the next run on any node. */
+    public final class Lease implements AutoCloseable {
+        private final String job;
+        private final String owner;
+
+        private Lease(String job, String owner) {
+            this.job = job;
+            this.owner = owner;
+        }
+
+        @Override
+        public void close() {
+            try {
+                jdbcTemplate.update("DELETE FROM job_lease WHERE name = ? AND owner = ?", job, owner);
+            } catch (Exception e) {
+                System.err.println("[JobLease] Release of " + job + " failed, it expires instead: " + e.getMessage());
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobLeases(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** The lease, or null while another node holds it. */
+    public Lease tryAcquire(String job, long leaseSeconds) {
+        // A fresh owner per run: replicas restored from one checkpoint must not share it
+        String owner = UUID.randomUUID().toString();
+        int taken = jdbcTemplate.update("""
+                INSERT INTO job_lease (name, owner, lease_until) VALUES (?, ?, now() + make_interval(secs => ?))
+                ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until
+                WHERE job_lease.lease_until < now()
+                """, job, owner, leaseSeconds);
+        return taken == 1 ? new Lease(job, owner) : null;
+    }
+}
@@ -0,0 +1,318 @@
+package com.project.chefbot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Central admission point for LLM calls. Every backend has a fixed number of concurrent calls
+ * (chefbot.llm.concurrency.&lt;backend&gt;); callers beyond that wait in one priority queue per backend, so a
+ * waiting chat turn always goes before a waiting summarization, which goes before ETL extraction.
+ * Background classes never take the slots reserved for interactive calls, so a bulk import cannot fill the
+ * backend with long generations. Each class has a bounded queue and wait time: past either, the call is
+ * rejected with {@link SaturatedException} instead of piling up.
+ *
+ * Chat turns are additionally metered per user with a token bucket before they are queued at all.
+ */
+@Service
+public class LlmScheduler {
+
+    /** Thrown when a backend's queue for the request class is full or the wait timed out. */
+    public static class SaturatedException extends RuntimeException {
+        public SaturatedException(String message) {
+            super(message);
+        }
+    }
+
+    /** A granted slot on one backend; closing it hands the slot to the next waiter. Idempotent. */
+    public static final class Permit implements AutoCloseable {
+
+        static final Permit NONE = new Permit(null);
+
+        private final Pool pool;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Pool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void close() {
+            if (pool != null && released.compareAndSet(false, true)) {
+                pool.release();
+            }
+        }
+    }
+
+    public record Admission(boolean allowed, String reason, long retryAfterSeconds) {
+        static final Admission ALLOWED = new Admission(true, null, 0);
+    }
+
+    private static final class Waiter {
+        final ChatRequestClass requestClass;
+        final long sequence;
+        final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        Waiter(ChatRequestClass requestClass, long sequence) {
+            this.requestClass = requestClass;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Pool {
+        final String backend;
+        final int limit;
+        final int reserved;
+        final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+                Comparator.<Waiter>comparingInt(waiter -> waiter.requestClass.priority())
+                        .thenComparingLong(waiter -> waiter.sequence));
+        int inUse;
+
+        Pool(String backend, int limit, int reserved) {
+            this.backend = backend;
+            this.limit = Math.max(1, limit);
+            // Keep at least one slot usable by background work, or it would never run
+            this.reserved = Math.min(Math.max(0, reserved), this.limit - 1);
+        }
+
+        boolean canStart(ChatRequestClass requestClass) {
+            int usable = requestClass.priority() == 0 ? limit : limit - reserved;
+            return inUse < usable;
+        }
+
+        int queued(ChatRequestClass requestClass) {
+            int count = 0;
+            for (Waiter waiter : waiters) {
+                if (waiter.requestClass == requestClass) count++;
+            }
+            return count;
+        }
+
+        int queuedAtPriority(int priority) {
+            int count = 0;
+            for (Waiter waiter : waiters) {
+                if (waiter.requestClass.priority() == priority) count++;
+            }
+            return count;
+        }
+
+        synchronized void release() {
+            // The slot passes straight to the most urgent waiter allowed to use it
+            Waiter next = waiters.peek();
+            if (next != null && (inUse - 1 < limit - reserved || next.requestClass.priority() == 0)) {
+                waiters.poll();
+                next.granted.complete(null);
+            } else {
+                inUse--;
+            }
+        }
+    }
+
+    static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerMilli;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, int refillPerMinute, long now) {
+            this.capacity = Math.max(1, capacity);
+            this.tokensPerMilli = Math.max(1, refillPerMinute) / 60_000.0;
+            this.tokens = this.capacity;
+            this.lastRefill = now;
+        }
+
+        /** Takes one token; returns 0 on success, otherwise the milliseconds until one is available. */
+        synchronized long tryTake(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerMilli);
+        }
+
+        synchronized boolean isFull(long now) {
+            return tokens + (now - lastRefill) * tokensPerMilli >= capacity;
+        }
+    }
+
+    private final Environment env;
+    private final ChefMetrics metrics;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private final Map<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Value("${chefbot.llm.user-bucket.capacity:10}")
+    private int bucketCapacity;
+
+    @Value("${chefbot.llm.user-bucket.refill-per-minute:6}")
+    private int bucketRefillPerMinute;
+
+    public LlmScheduler(Environment env, ChefMetrics metrics) {
+        this.env = env;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Blocks until the backend has a slot for this class. Throws {@link SaturatedException} if the class's
+     * queue on this backend is already full or no slot frees up within the class's wait timeout.
+     */
+    public Permit acquire(String backend, ChatRequestClass requestClass) {
+        Pool pool = pools.computeIfAbsent(backend, this::createPool);
+        long start = System.nanoTime();
+        Waiter waiter;
+
+        synchronized (pool) {
+            Waiter head = pool.waiters.peek();
+            boolean nobodyAhead = head == null || head.requestClass.priority() > requestClass.priority();
+            if (nobodyAhead && pool.canStart(requestClass)) {
+                pool.inUse++;
+                metrics.recordLlmQueueWait(requestClass.name(), backend, 0);
+                return new Permit(pool);
+            }
+            if (pool.queued(requestClass) >= maxQueued(requestClass)) {
+                throw reject(requestClass, backend, "queue_full");
+            }
+            waiter = new Waiter(requestClass, sequence.incrementAndGet());
+            pool.waiters.add(waiter);
+        }
+
+        try {
+            waiter.granted.get(maxWaitMillis(requestClass), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            synchronized (pool) {
+                if (pool.waiters.remove(waiter)) {
+                    throw reject(requestClass, backend, "timeout");
+                }
+            }
+            // Granted just as the wait ran out: keep the slot
+        } catch (InterruptedException e) {
+            synchronized (pool) {
+                if (!pool.waiters.remove(waiter)) pool.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + backend, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        metrics.recordLlmQueueWait(requestClass.name(), backend, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Permit(pool);
+    }
+
+    /**
+     * True if a new call at this class's priority would be rejected: for some class of that priority, every
+     * backend already used has a full queue for it. A chat turn runs as INTERACTIVE or TOOL_HEAVY depending on
+     * whether tools are connected, so the caller cannot tell which of them it will use.
+     */
+    public boolean isSaturated(ChatRequestClass requestClass) {
+        if (pools.isEmpty()) return false;
+        for (ChatRequestClass sibling : ChatRequestClass.values()) {
+            if (sibling.priority() == requestClass.priority() && isSaturatedFor(sibling)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True while calls of this class's priority wait for a slot on any backend (for INTERACTIVE: any chat
+     * turn, with or without tools); background jobs back off then.
+     */
+    public boolean hasWaiters(ChatRequestClass requestClass) {
+        for (Pool pool : pools.values()) {
+            synchronized (pool) {
+                if (pool.queuedAtPriority(requestClass.priority()) > 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Charges one chat turn to the user's token bucket. */
+    public Admission admitUser(Long userId) {
+        if (userId == null) return Admission.ALLOWED;
+        long now = System.currentTimeMillis();
+        long waitMillis = buckets.computeIfAbsent(userId, id -> new TokenBucket(bucketCapacity, bucketRefillPerMinute, now)).tryTake(now);
+        if (waitMillis > 0) {
+            metrics.recordLlmRejection(ChatRequestClass.INTERACTIVE.name(), "user", "rate_limited");
+            return new Admission(false, "rate_limited", Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999)));
+        }
+        return Admission.ALLOWED;
+    }
+
+    /** Buckets that have refilled completely carry no state worth keeping. */
+    @Scheduled(fixedDelayString = "${chefbot.llm.user-bucket.evict-interval-ms:300000}")
+    public void evictIdleBuckets() {
+        long now = System.currentTimeMillis();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Pool pool : pools.values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            synchronized (pool) {
+                details.put("limit", pool.limit);
+                details.put("reservedForInteractive", pool.reserved);
+                details.put("inUse", pool.inUse);
+                for (ChatRequestClass requestClass : ChatRequestClass.values()) {
+                    details.put("queued." + requestClass.name(), pool.queued(requestClass));
+                }
+            }
+            result.put(pool.backend, details);
+        }
+        return result;
+    }
+
+    private boolean isSaturatedFor(ChatRequestClass requestClass) {
+        for (Pool pool : pools.values()) {
+            synchronized (pool) {
+                if (pool.queued(requestClass) < maxQueued(requestClass)) return false;
+            }
+        }
+        return true;
+    }
+
+    private SaturatedException reject(ChatRequestClass requestClass, String backend, String reason) {
+        metrics.recordLlmRejection(requestClass.name(), backend, reason);
+        return new SaturatedException(backend + " is saturated for " + requestClass + " (" + reason + ")");
+    }
+
+    private Pool createPool(String backend) {
+        int limit = env.getProperty("chefbot.llm.concurrency." + backend, Integer.class,
+                env.getProperty("chefbot.llm.concurrency.default", Integer.class, 4));
+        int reserved = env.getProperty("chefbot.llm.reserved-for-interactive." + backend, Integer.class,
+                env.getProperty("chefbot.llm.reserved-for-interactive.default", Integer.class, 1));
+        Pool pool = new Pool(backend, limit, reserved);
+        System.out.println("[LlmScheduler] " + backend + ": " + pool.limit + " concurrent call(s), "
+                + pool.reserved + " reserved for interactive");
+        return pool;
+    }
+
+    private int maxQueued(ChatRequestClass requestClass) {
+        return env.getProperty("chefbot.llm.max-queued." + propertyName(requestClass), Integer.class,
+                requestClass == ChatRequestClass.ETL_EXTRACTION ? 1000 : 50);
+    }
+
+    private long maxWaitMillis(ChatRequestClass requestClass) {
+        return env.getProperty("chefbot.llm.max-wait-ms." + propertyName(requestClass), Long.class,
+                requestClass.priority() == 0 ? 30_000L : 600_000L);
+    }
+
+    private static String propertyName(ChatRequestClass requestClass) {
+        return requestClass.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
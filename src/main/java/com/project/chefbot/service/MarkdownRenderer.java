@@ -0,0 +1,48 @@
+package com.project.chefbot.service;
+
+import org.commonmark.Extension;
+import org.commonmark.ext.autolink.AutolinkExtension;
+import org.commonmark.ext.gfm.tables.TablesExtension;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.owasp.html.HtmlPolicyBuilder;
+import org.owasp.html.PolicyFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Markdown to safe HTML for chat messages, done once when a message is saved instead of in every browser
+ * on every page view. Raw HTML in the markdown is escaped by the renderer, and the output is additionally
+ * run through an allow-list sanitizer, so model output (which may echo scraped pages) cannot inject script.
+ */
+@Component
+public class MarkdownRenderer {
+
+    private static final List<Extension> EXTENSIONS = List.of(TablesExtension.create(), AutolinkExtension.create());
+
+    private static final PolicyFactory POLICY = new HtmlPolicyBuilder()
+            .allowElements("p", "br", "hr", "h1", "h2", "h3", "h4", "h5", "h6",
+                    "strong", "em", "del", "code", "pre", "blockquote",
+                    "ul", "ol", "li", "table", "thead", "tbody", "tr", "th", "td", "a")
+            .allowAttributes("start").onElements("ol")
+            .allowAttributes("align").onElements("th", "td")
+            .allowAttributes("href").onElements("a")
+            .allowStandardUrlProtocols()
+            .requireRelsOnLinks("nofollow", "noopener", "noreferrer")
+            .toFactory();
+
+    // Both are immutable and thread-safe
+    private final Parser parser = Parser.builder().extensions(EXTENSIONS).build();
+    private final HtmlRenderer renderer = HtmlRenderer.builder()
+            .extensions(EXTENSIONS)
+            .escapeHtml(true)
+            .sanitizeUrls(true)
+            .build();
+
+    public String render(String markdown) {
+        if (markdown == null || markdown.isEmpty()) return "";
+        String html = renderer.render(parser.parse(markdown));
+        return POLICY.sanitize(html);
+    }
+}
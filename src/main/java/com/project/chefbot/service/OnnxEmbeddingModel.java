@@ -0,0 +1,172 @@
+package com.project.chefbot.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an in-process embedding model (ONNX Runtime on the CPU, via Spring AI's TransformersEmbeddingModel)
+ * behind a micro-batcher: texts from concurrent callers are queued and a fixed number of worker threads
+ * embed them in batches of up to batchSize, waiting at most lingerMillis to fill a batch. The bounded
+ * queue and worker count cap CPU use, so a burst of ETL chunks cannot starve the chat turns' embeddings.
+ */
+public class OnnxEmbeddingModel implements EmbeddingModel {
+
+    private record Pending(String text, CompletableFuture<float[]> result) {}
+
+    private static final String WARM_UP_TEXT = "Preheat the oven to 180C and roast the vegetables for 25 minutes.";
+
+    private final EmbeddingModel delegate;
+    private final int dimensions;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long timeoutMillis;
+    private final ChefMetrics metrics;
+    private final BlockingQueue<Pending> queue;
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public OnnxEmbeddingModel(EmbeddingModel delegate, int dimensions, int threads, int batchSize, int queueCapacity,
+                              long lingerMillis, long timeoutMillis, ChefMetrics metrics) {
+        this.delegate = delegate;
+        this.dimensions = dimensions;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "onnx-embed-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.submit(this::workerLoop);
+        }
+    }
+
+    /** Runs one full batch and one single text, and fails startup if the model's dimensions do not match. */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        embed(Collections.nCopies(batchSize, WARM_UP_TEXT));
+        float[] vector = embed(WARM_UP_TEXT);
+        if (vector.length != dimensions) {
+            throw new IllegalStateException("Embedding model returns " + vector.length + " dimensions, expected " + dimensions);
+        }
+        System.out.println("[Embedding] ONNX model warmed up in " + (System.currentTimeMillis() - start) + " ms ("
+                + dimensions + " dims, batch " + batchSize + ")");
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> inputs = request.getInstructions();
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(inputs.size());
+        try {
+            for (String input : inputs) {
+                CompletableFuture<float[]> future = new CompletableFuture<>();
+                if (!running || !queue.offer(new Pending(input == null ? "" : input, future), timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Embedding queue is full");
+                }
+                futures.add(future);
+            }
+
+            List<Embedding> embeddings = new ArrayList<>(futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                embeddings.add(new Embedding(futures.get(i).get(timeoutMillis, TimeUnit.MILLISECONDS), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while embedding", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Embedding timed out after " + timeoutMillis + " ms", e);
+        } finally {
+            // Texts of a failed request that are still queued are skipped by the workers
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private void workerLoop() {
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                List<Pending> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runBatch(List<Pending> batch) {
+        List<Pending> live = batch.stream().filter(pending -> !pending.result().isDone()).toList();
+        if (live.isEmpty()) return;
+
+        long start = System.currentTimeMillis();
+        try {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(live.stream().map(Pending::text).toList(), null));
+            List<Embedding> results = response.getResults();
+            if (results.size() != live.size()) {
+                throw new IllegalStateException("Embedding model returned " + results.size() + " vectors for " + live.size() + " texts");
+            }
+            for (int i = 0; i < live.size(); i++) {
+                live.get(i).result().complete(results.get(i).getOutput());
+            }
+            metrics.recordEmbeddingBatch("onnx", live.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            live.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        workers.shutdownNow();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Embedding model is shutting down"));
+        }
+    }
+}
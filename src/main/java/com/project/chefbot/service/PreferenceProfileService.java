@@ -0,0 +1,275 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.chefbot.model.ChatMessage;
+import com.project.chefbot.model.UserPreferenceProfile;
+import com.project.chefbot.repository.ChatMessageRepository;
+import com.project.chefbot.repository.UserPreferenceProfileRepository;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Maintains a small structured profile per user (liked cuisines, dislikes, skill level, equipment),
+ * distilled in the background from sessions the user has stopped chatting in. The chat prompt gets the
+ * pre-rendered profile, a primary key lookup, instead of a vector search over raw transcripts every turn.
+ */
+@Service
+public class PreferenceProfileService {
+
+    public record Profile(List<String> likedCuisines, List<String> dislikes, String skillLevel, List<String> equipment) {
+
+        static final Profile EMPTY = new Profile(List.of(), List.of(), "unknown", List.of());
+
+        public boolean isEmpty() {
+            return likedCuisines.isEmpty() && dislikes.isEmpty() && equipment.isEmpty() && "unknown".equals(skillLevel);
+        }
+    }
+
+    static final Set<String> SKILL_LEVELS = Set.of("beginner", "intermediate", "advanced", "unknown");
+    static final int MAX_ITEMS = 8;
+    static final int MAX_ITEM_LENGTH = 40;
+    private static final String SEPARATOR = "; ";
+
+    private final UserPreferenceProfileRepository profileRepo;
+    private final ChatMessageRepository messageRepo;
+    private final RoutingChatModel chatModel;
+    private final ObjectMapper objectMapper;
+    private final ChefMetrics metrics;
+    private final JobLeases jobLeases;
+
+    @Value("${chefbot.profile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chefbot.profile.idle-minutes:30}")
+    private int idleMinutes;
+
+    @Value("${chefbot.profile.users-per-run:20}")
+    private int usersPerRun;
+
+    @Value("${chefbot.profile.max-messages-per-run:200}")
+    private int maxMessagesPerRun;
+
+    @Value("${chefbot.profile.max-transcript-chars:12000}")
+    private int maxTranscriptChars;
+
+    @Value("${chefbot.profile.max-prompt-chars:600}")
+    private int maxPromptChars;
+
+    @Value("${chefbot.profile.lease-seconds:600}")
+    private long leaseSeconds;
+
+    public PreferenceProfileService(UserPreferenceProfileRepository profileRepo,
+                                    ChatMessageRepository messageRepo,
+                                    RoutingChatModel chatModel,
+                                    ObjectMapper objectMapper,
+                                    ChefMetrics metrics,
+                                    JobLeases jobLeases) {
+        this.profileRepo = profileRepo;
+        this.messageRepo = messageRepo;
+        this.chatModel = chatModel;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.jobLeases = jobLeases;
+    }
+
+    /** The profile block for the system prompt, or "" if nothing has been learned about this user yet. */
+    public String getPromptBlock(Long userId) {
+        if (userId == null) return "";
+        return profileRepo.findById(userId)
+                .map(UserPreferenceProfile::getRendered)
+                .orElse("");
+    }
+
+    public int getMaxPromptChars() {
+        return maxPromptChars;
+    }
+
+    @Scheduled(initialDelayString = "${chefbot.profile.initial-delay-ms:120000}", fixedDelayString = "${chefbot.profile.interval-ms:600000}")
+    public void distillIdleUsers() {
+        if (!enabled) return;
+        // One node at a time, so a user is never distilled twice from the same messages
+        try (JobLeases.Lease lease = jobLeases.tryAcquire("profile-distillation", leaseSeconds)) {
+            if (lease != null) distillDueUsers();
+        }
+    }
+
+    private void distillDueUsers() {
+        List<Long> userIds = profileRepo.findUsersToDistill(LocalDateTime.now().minusMinutes(idleMinutes), usersPerRun);
+        for (Long userId : userIds) {
+            try {
+                distill(userId);
+            } catch (Exception e) {
+                // Left unchanged, so the same messages are retried on the next run
+                metrics.recordProfileDistillation("failed");
+                System.err.println("[Profile] Distillation failed for user " + userId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    void distill(Long userId) throws Exception {
+        UserPreferenceProfile stored = profileRepo.findById(userId).orElseGet(() -> {
+            UserPreferenceProfile created = new UserPreferenceProfile();
+            created.setUserId(userId);
+            return created;
+        });
+
+        List<ChatMessage> messages = messageRepo.findByUserAfterId(userId, stored.getLastMessageId(), PageRequest.of(0, maxMessagesPerRun));
+        if (messages.isEmpty()) return;
+
+        Profile current = toProfile(stored);
+        String reply = chatModel.call(ChatRequestClass.SUMMARIZATION,
+                new Prompt(buildPrompt(current, transcript(messages)))).getResult().getOutput().getText();
+
+        Profile updated = parseProfile(reply);
+        if (updated == null) {
+            metrics.recordProfileDistillation("unparsable");
+            System.err.println("[Profile] No profile JSON for user " + userId + ". Response: " + reply);
+            return;
+        }
+
+        stored.setLikedCuisines(String.join(SEPARATOR, updated.likedCuisines()));
+        stored.setDislikes(String.join(SEPARATOR, updated.dislikes()));
+        stored.setSkillLevel(updated.skillLevel());
+        stored.setEquipment(String.join(SEPARATOR, updated.equipment()));
+        stored.setRendered(render(updated, maxPromptChars));
+        stored.setLastMessageId(messages.get(messages.size() - 1).getId());
+        stored.setUpdatedAt(LocalDateTime.now());
+        profileRepo.save(stored);
+
+        metrics.recordProfileDistillation("updated");
+        System.out.println("[Profile] User " + userId + " distilled from " + messages.size() + " message(s): " + updated);
+    }
+
+    // Newest messages win when the transcript has to be cut; assistant replies only matter as context
+    private String transcript(List<ChatMessage> messages) {
+        List<String> lines = new ArrayList<>();
+        int chars = 0;
+        for (int i = messages.size() - 1; i >= 0 && chars < maxTranscriptChars; i--) {
+            ChatMessage message = messages.get(i);
+            boolean user = "USER".equalsIgnoreCase(message.getSender());
+            String line = (user ? "USER: " : "CHEF: ") + truncate(message.getContent(), user ? 500 : 200);
+            lines.add(0, line);
+            chars += line.length();
+        }
+        return String.join("\n", lines);
+    }
+
+    private String buildPrompt(Profile current, String transcript) throws Exception {
+        LinkedHashMap<String, Object> currentJson = new LinkedHashMap<>();
+        currentJson.put("likedCuisines", current.likedCuisines());
+        currentJson.put("dislikes", current.dislikes());
+        currentJson.put("skillLevel", current.skillLevel());
+        currentJson.put("equipment", current.equipment());
+
+        return String.format("""
+            You maintain a cooking preference profile for one user.
+            Update the CURRENT PROFILE with what the NEW CONVERSATIONS reveal about the user (not about the chef).
+
+            RULES:
+            - likedCuisines: cuisines or dishes the user enjoys or asks for repeatedly.
+            - dislikes: ingredients or dishes the user rejects. Allergies are handled elsewhere - do not list them.
+            - skillLevel: one of beginner, intermediate, advanced, unknown.
+            - equipment: kitchen equipment the user has or mentions using (e.g. air fryer, wok).
+            - Keep existing entries unless the user contradicts them. At most %d short entries per list.
+            - Never include names, email addresses or other personal data.
+
+            CURRENT PROFILE:
+            %s
+
+            NEW CONVERSATIONS:
+            %s
+
+            Output ONLY the updated profile as raw JSON with exactly the keys likedCuisines, dislikes, skillLevel, equipment.
+            No markdown formatting, no explanation.
+            """, MAX_ITEMS, objectMapper.writeValueAsString(currentJson), transcript);
+    }
+
+    /**
+     * Slices the JSON object out of the model's reply and normalizes it: trimmed, de-duplicated and bounded
+     * lists, a known skill level. Null if the reply has no usable JSON object.
+     */
+    Profile parseProfile(String reply) {
+        if (reply == null) return null;
+        int start = reply.indexOf('{');
+        int end = reply.lastIndexOf('}');
+        if (start == -1 || end <= start) return null;
+
+        try {
+            JsonNode root = objectMapper.readTree(reply.substring(start, end + 1));
+            if (!root.isObject()) return null;
+            String skill = root.path("skillLevel").asText("unknown").trim().toLowerCase(Locale.ROOT);
+            return new Profile(
+                    items(root.get("likedCuisines")),
+                    items(root.get("dislikes")),
+                    SKILL_LEVELS.contains(skill) ? skill : "unknown",
+                    items(root.get("equipment")));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static List<String> items(JsonNode node) {
+        List<String> raw = new ArrayList<>();
+        if (node == null || node.isNull()) return raw;
+        if (node.isArray()) {
+            node.forEach(item -> raw.add(item.asText()));
+        } else {
+            raw.addAll(Arrays.asList(node.asText().split("[,;]")));
+        }
+        return normalize(raw);
+    }
+
+    static List<String> normalize(List<String> raw) {
+        LinkedHashMap<String, String> unique = new LinkedHashMap<>();
+        for (String item : raw) {
+            String value = item == null ? "" : item.trim();
+            // Never carry anything that looks like an address into the prompt
+            if (value.isEmpty() || value.contains("@")) continue;
+            unique.putIfAbsent(value.toLowerCase(Locale.ROOT), truncate(value, MAX_ITEM_LENGTH));
+            if (unique.size() == MAX_ITEMS) break;
+        }
+        return List.copyOf(unique.values());
+    }
+
+    private Profile toProfile(UserPreferenceProfile stored) {
+        if (stored.getUpdatedAt() == null) return Profile.EMPTY;
+        return new Profile(split(stored.getLikedCuisines()), split(stored.getDislikes()),
+                stored.getSkillLevel() == null ? "unknown" : stored.getSkillLevel(), split(stored.getEquipment()));
+    }
+
+    private static List<String> split(String joined) {
+        return joined == null || joined.isBlank() ? List.of() : normalize(Arrays.asList(joined.split(";")));
+    }
+
+    /** Renders the prompt block, bounded to maxChars; "" for an empty profile. */
+    static String render(Profile profile, int maxChars) {
+        if (profile.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("USER PROFILE (learned from past sessions; this session's diet and allergies always take priority):");
+        appendLine(sb, "Likes", profile.likedCuisines());
+        appendLine(sb, "Dislikes", profile.dislikes());
+        if (!"unknown".equals(profile.skillLevel())) sb.append("\nSkill level: ").append(profile.skillLevel());
+        appendLine(sb, "Equipment", profile.equipment());
+        return truncate(sb.toString(), maxChars);
+    }
+
+    private static void appendLine(StringBuilder sb, String label, List<String> items) {
+        if (!items.isEmpty()) sb.append('\n').append(label).append(": ").append(String.join(", ", items));
+    }
+
+    private static String truncate(String text, int max) {
+        if (text == null) return "";
+        return text.length() <= max ? text : text.substring(0, max);
+    }
+}
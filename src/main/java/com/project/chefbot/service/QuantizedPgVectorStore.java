@@ -0,0 +1,393 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * pgvector store whose HNSW index is built over a compact expression of the full-precision column:
+ * halfvec (2 bytes per dimension) or binary_quantize (1 bit per dimension). The index only produces
+ * candidates; they are re-ranked with exact cosine distance on the stored float vectors, so precision
+ * is lost in the graph, not in the answer.
+ *
+ * Uses the same table layout as Spring AI's PgVectorStore (id, content, metadata json, embedding vector(n))
+ * and the same jsonpath metadata filters, so it can take over an existing table. A collection can also be
+ * hash-partitioned on one metadata key (e.g. userId): each partition gets its own, smaller HNSW graph and
+ * an equality filter on that key only searches one partition.
+ *
+ * The table can be switched at runtime ({@link #switchTable}) to a rebuilt copy with the same layout; every
+ * operation reads the current table once, so it runs entirely against the old or the new one.
+ */
+public class QuantizedPgVectorStore implements VectorStore {
+
+    public enum Mode {
+        /** Plain HNSW on the float vectors, no re-ranking. */
+        FLOAT,
+        /** HNSW on embedding::halfvec(n), re-ranked on the float vectors. */
+        HALFVEC,
+        /** HNSW (Hamming) on binary_quantize(embedding)::bit(n), re-ranked on the float vectors. */
+        BINARY
+    }
+
+    /**
+     * @param partitionKey metadata key the table is hash-partitioned on (used when partitions > 0)
+     * @param iterativeScan lets filtered HNSW scans continue past ef_search until enough rows match (pgvector 0.8+)
+     */
+    public record Settings(String table, int dimensions, Mode mode, int m, int efConstruction, int efSearch, int rerankFactor,
+                           String partitionKey, int partitions, boolean iterativeScan) {
+
+        public boolean partitioned() {
+            return partitions > 0 && partitionKey != null && !partitionKey.isBlank();
+        }
+
+        public Settings withTable(String newTable) {
+            return new Settings(newTable, dimensions, mode, m, efConstruction, efSearch, rerankFactor, partitionKey, partitions, iterativeScan);
+        }
+    }
+
+    private static final String TABLE_NAME = "[a-z_][a-z0-9_]*";
+    // pgvector rejects larger values; beyond it iterative scans (or the exact re-rank) have to make up the difference
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper;
+    private volatile Settings settings;
+    private final PgVectorFilterExpressionConverter filterConverter = new PgVectorFilterExpressionConverter();
+
+    private volatile Map<String, Object> lastRecall = Map.of();
+
+    public QuantizedPgVectorStore(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  EmbeddingModel embeddingModel,
+                                  ObjectMapper objectMapper,
+                                  Settings settings) {
+        if (!settings.table().matches(TABLE_NAME)) {
+            throw new IllegalArgumentException("Invalid vector table name: " + settings.table());
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.embeddingModel = embeddingModel;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /** Same model, mapper and tuning on another table, e.g. the one a re-index job builds. */
+    public QuantizedPgVectorStore withTable(String table) {
+        return new QuantizedPgVectorStore(jdbcTemplate, transactionTemplate.getTransactionManager(), embeddingModel, objectMapper,
+                settings.withTable(table));
+    }
+
+    /** Points reads and writes at another table with the same layout; operations already running finish on the old one. */
+    public void switchTable(String table) {
+        if (!table.matches(TABLE_NAME)) {
+            throw new IllegalArgumentException("Invalid vector table name: " + table);
+        }
+        settings = settings.withTable(table);
+    }
+
+    @Override
+    public String getName() {
+        return "QuantizedPgVectorStore[" + settings.table() + "]";
+    }
+
+    /** Creates the table (if missing), its partitions, a metadata index and the HNSW index for the configured mode. */
+    public void initialize() {
+        createTable();
+        createIndexes();
+        System.out.println("[VectorStore] " + settings.table() + ": mode=" + settings.mode()
+                + ", index=" + indexName() + ", ef_search=" + settings.efSearch() + ", rerank x" + settings.rerankFactor()
+                + (settings.partitioned() ? ", " + settings.partitions() + " partitions by " + settings.partitionKey() : ""));
+    }
+
+    /** Table and partitions only; a bulk load is faster with {@link #createIndexes} afterwards. */
+    public void createTable() {
+        Settings settings = this.settings;
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS \"uuid-ossp\"");
+        if (settings.partitioned()) {
+            // The partition key has to be part of the primary key; documents without it go to ''
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + settings.table() + " ("
+                    + "id uuid DEFAULT uuid_generate_v4(), content text, metadata json, "
+                    + "embedding vector(" + settings.dimensions() + "), partition_key text NOT NULL DEFAULT '', "
+                    + "PRIMARY KEY (id, partition_key)) PARTITION BY HASH (partition_key)");
+            for (int i = 0; i < settings.partitions(); i++) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + settings.table() + "_p" + i + " PARTITION OF " + settings.table()
+                        + " FOR VALUES WITH (MODULUS " + settings.partitions() + ", REMAINDER " + i + ")");
+            }
+        } else {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + settings.table() + " ("
+                    + "id uuid DEFAULT uuid_generate_v4() PRIMARY KEY, content text, metadata json, "
+                    + "embedding vector(" + settings.dimensions() + "))");
+        }
+    }
+
+    public void createIndexes() {
+        Settings settings = this.settings;
+        // Metadata filters (deletes by url / sessionId, jsonpath searches) are jsonpath matches
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + settings.table() + "_metadata_gin ON " + settings.table()
+                + " USING gin ((metadata::jsonb) jsonb_path_ops)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + indexName(settings) + " ON " + settings.table()
+                + " USING hnsw (" + indexExpression() + ") WITH (m = " + settings.m()
+                + ", ef_construction = " + settings.efConstruction() + ")");
+    }
+
+    private String indexName() {
+        return indexName(settings);
+    }
+
+    private static String indexName(Settings settings) {
+        return settings.table() + "_" + settings.mode().name().toLowerCase(Locale.ROOT) + "_hnsw";
+    }
+
+    private String indexExpression() {
+        int n = settings.dimensions();
+        return switch (settings.mode()) {
+            case FLOAT -> "embedding vector_cosine_ops";
+            case HALFVEC -> "(embedding::halfvec(" + n + ")) halfvec_cosine_ops";
+            case BINARY -> "(binary_quantize(embedding)::bit(" + n + ")) bit_hamming_ops";
+        };
+    }
+
+    // Same expression as the index, so the planner can use it
+    private String candidateOrder() {
+        int n = settings.dimensions();
+        return switch (settings.mode()) {
+            case FLOAT -> "embedding <=> ?::vector";
+            case HALFVEC -> "embedding::halfvec(" + n + ") <=> ?::halfvec(" + n + ")";
+            case BINARY -> "binary_quantize(embedding)::bit(" + n + ") <~> binary_quantize(?::vector)";
+        };
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) return;
+        List<float[]> embeddings = embeddingModel.embed(documents.stream().map(Document::getText).toList());
+
+        List<Object[]> rows = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            String id = document.getId();
+            String json = toJson(document.getMetadata());
+            String vector = toVectorLiteral(embeddings.get(i));
+            rows.add(settings.partitioned()
+                    ? new Object[]{id, document.getText(), json, vector, partitionValue(document.getMetadata().get(settings.partitionKey()))}
+                    : new Object[]{id, document.getText(), json, vector});
+        }
+
+        String sql = settings.partitioned()
+                ? "INSERT INTO " + settings.table() + " (id, content, metadata, embedding, partition_key) "
+                        + "VALUES (?::uuid, ?, ?::json, ?::vector, ?) ON CONFLICT (id, partition_key) "
+                : "INSERT INTO " + settings.table() + " (id, content, metadata, embedding) "
+                        + "VALUES (?::uuid, ?, ?::json, ?::vector) ON CONFLICT (id) ";
+        jdbcTemplate.batchUpdate(sql + "DO UPDATE SET content = EXCLUDED.content, metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding", rows);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        if (idList.isEmpty()) return;
+        jdbcTemplate.batchUpdate("DELETE FROM " + settings.table() + " WHERE id = ?::uuid",
+                idList.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        jdbcTemplate.update("DELETE FROM " + settings.table() + " WHERE metadata::jsonb @@ ?::jsonpath",
+                filterConverter.convertExpression(filterExpression));
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = embeddingModel.embed(request.getQuery());
+        Filter.Expression filter = request.getFilterExpression();
+
+        // An equality on the partition key becomes a plain column predicate so the planner prunes to one partition
+        String partition = partitionFilter(filter);
+        String jsonPath = partition == null && filter != null ? filterConverter.convertExpression(filter) : null;
+
+        List<Document> results = search(toVectorLiteral(query), jsonPath, partition, request.getTopK());
+        return results.stream()
+                .filter(document -> document.getScore() != null && document.getScore() >= request.getSimilarityThreshold())
+                .toList();
+    }
+
+    private String partitionFilter(Filter.Expression filter) {
+        if (!settings.partitioned() || filter == null || filter.type() != Filter.ExpressionType.EQ) return null;
+        if (filter.left() instanceof Filter.Key key && filter.right() instanceof Filter.Value value
+                && settings.partitionKey().equals(stripQuotes(key.key()))) {
+            return partitionValue(value.value());
+        }
+        return null;
+    }
+
+    private static String stripQuotes(String key) {
+        return key.length() > 1 && (key.startsWith("\"") || key.startsWith("'")) ? key.substring(1, key.length() - 1) : key;
+    }
+
+    private static String partitionValue(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private List<Document> search(String vector, String jsonPath, String partition, int topK) {
+        int candidates = settings.mode() == Mode.FLOAT ? topK : topK * Math.max(1, settings.rerankFactor());
+        String where = jsonPath != null ? " WHERE metadata::jsonb @@ ?::jsonpath"
+                : partition != null ? " WHERE partition_key = ?"
+                : "";
+
+        String sql = "SELECT id, content, metadata, embedding <=> ?::vector AS distance FROM ("
+                + " SELECT id, content, metadata, embedding FROM " + settings.table() + where
+                + " ORDER BY " + candidateOrder() + " LIMIT ?"
+                + ") candidates ORDER BY distance LIMIT ?";
+
+        List<Object> args = new ArrayList<>();
+        args.add(vector);
+        if (jsonPath != null) args.add(jsonPath);
+        if (partition != null) args.add(partition);
+        args.add(vector);
+        args.add(candidates);
+        args.add(topK);
+
+        return transactionTemplate.execute(status -> {
+            // ef_search bounds how many candidates the graph can return, so it must cover the candidate limit
+            jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + Math.min(MAX_EF_SEARCH, Math.max(settings.efSearch(), candidates)));
+            if (settings.iterativeScan() && !where.isEmpty()) {
+                jdbcTemplate.execute("SET LOCAL hnsw.iterative_scan = relaxed_order");
+            }
+            return jdbcTemplate.query(sql, (rs, rowNum) -> {
+                double distance = rs.getDouble("distance");
+                Map<String, Object> metadata = fromJson(rs.getString("metadata"));
+                metadata.put("distance", distance);
+                return Document.builder()
+                        .id(rs.getString("id"))
+                        .text(rs.getString("content"))
+                        .metadata(metadata)
+                        .score(1.0 - distance)
+                        .build();
+            }, args.toArray());
+        });
+    }
+
+    /**
+     * Recall@k of the index path against an exact scan, using stored vectors as sample queries.
+     */
+    public Map<String, Object> measureRecall(int samples, int k) {
+        Settings settings = this.settings;
+        List<String> queries = jdbcTemplate.queryForList(
+                "SELECT embedding::text FROM " + settings.table() + " ORDER BY random() LIMIT ?", String.class, samples);
+
+        double recallSum = 0;
+        for (String query : queries) {
+            Set<String> approximate = new HashSet<>();
+            for (Document document : search(query, null, null, k)) approximate.add(document.getId());
+
+            List<String> exact = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+                return jdbcTemplate.queryForList("SELECT id::text FROM " + settings.table()
+                        + " ORDER BY embedding <=> ?::vector LIMIT ?", String.class, query, k);
+            });
+            if (exact == null || exact.isEmpty()) continue;
+            long found = exact.stream().filter(approximate::contains).count();
+            recallSum += (double) found / exact.size();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("samples", queries.size());
+        result.put("k", k);
+        result.put("recall", queries.isEmpty() ? null : recallSum / queries.size());
+        result.put("measuredAt", System.currentTimeMillis());
+        lastRecall = result;
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Settings settings = this.settings;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("table", settings.table());
+        stats.put("mode", settings.mode());
+        stats.put("dimensions", settings.dimensions());
+        stats.put("m", settings.m());
+        stats.put("efConstruction", settings.efConstruction());
+        stats.put("efSearch", settings.efSearch());
+        stats.put("rerankFactor", settings.rerankFactor());
+        stats.put("partitions", settings.partitioned() ? settings.partitions() : 0);
+        stats.put("rows", jdbcTemplate.queryForObject("SELECT count(*) FROM " + settings.table(), Long.class));
+
+        // A partitioned table holds no data itself; sizes are summed over the table and its partitions
+        String relations = "SELECT ?::regclass AS rel UNION ALL SELECT inhrelid FROM pg_inherits WHERE inhparent = ?::regclass";
+        stats.put("tableBytes", jdbcTemplate.queryForObject(
+                "SELECT COALESCE(sum(pg_relation_size(rel)), 0) FROM (" + relations + ") r", Long.class, settings.table(), settings.table()));
+
+        Map<String, Long> indexes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT indexrelid::regclass::text AS name, pg_relation_size(indexrelid) AS bytes "
+                        + "FROM pg_index WHERE indrelid IN (SELECT rel FROM (" + relations + ") r) ORDER BY 1",
+                rs -> { indexes.put(rs.getString("name"), rs.getLong("bytes")); }, settings.table(), settings.table());
+        stats.put("indexBytes", indexes);
+        stats.put("lastRecall", lastRecall);
+        return stats;
+    }
+
+    /**
+     * Copies rows of another vector table (same dimensions) into this collection without re-embedding.
+     * Rows already present are skipped. Returns the number of rows copied.
+     */
+    public int importRows(String sourceTable, String condition) {
+        if (!sourceTable.matches(TABLE_NAME)) {
+            throw new IllegalArgumentException("Invalid source table name: " + sourceTable);
+        }
+        String columns = "id, content, metadata, embedding";
+        String select = "id, content, metadata, embedding";
+        if (settings.partitioned()) {
+            columns += ", partition_key";
+            select += ", COALESCE(metadata ->> '" + settings.partitionKey().replace("'", "''") + "', '')";
+        }
+        return jdbcTemplate.update("INSERT INTO " + settings.table() + " (" + columns + ") SELECT " + select
+                + " FROM " + sourceTable + " WHERE " + condition + " ON CONFLICT DO NOTHING");
+    }
+
+    private static String toVectorLiteral(float[] vector) {
+        StringBuilder sb = new StringBuilder(vector.length * 10).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not serialize document metadata", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        if (json == null) return new LinkedHashMap<>();
+        try {
+            return objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not parse document metadata", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.project.chefbot.model.CookingSession;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Screens recipe tool results (KB search and fetched web pages) against the session's allergies
+ * before they reach the model. Structured result lists have unsafe recipes dropped; free text
+ * (a fetched page) is tagged with the allergens found so the model does not have to discover them.
+ */
+@Service
+public class RecipeSafetyFilter {
+
+    private static final int MAX_CACHED_MATCHERS = 512;
+    private static final Set<String> SCREENED_FIELDS = Set.of("title", "name", "ingredients", "ingredient");
+    private static final List<String> LIST_FIELDS = List.of("recipes", "results", "items");
+    private static final Set<String> LINK_FIELDS = Set.of("url", "link", "href", "source", "sourceurl", "image", "imageurl", "id");
+
+    private final ObjectMapper objectMapper;
+    private final Set<String> screenedTools;
+    private final Map<String, AllergenMatcher> matcherCache = new ConcurrentHashMap<>();
+
+    public RecipeSafetyFilter(ObjectMapper objectMapper,
+                              @Value("${chefbot.safety.screened-tools:searchRecipes,fetch_content}") String screenedTools) {
+        this.objectMapper = objectMapper;
+        this.screenedTools = Arrays.stream(screenedTools.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    public AllergenMatcher matcherFor(CookingSession session) {
+        String key = session.getExcludedIngredients() + "|" + session.getDietType();
+        if (matcherCache.size() > MAX_CACHED_MATCHERS) {
+            matcherCache.clear();
+        }
+        return matcherCache.computeIfAbsent(key,
+                k -> AllergenMatcher.forSession(session.getExcludedIngredients(), session.getDietType()));
+    }
+
+    public List<ToolCallback> wrap(List<ToolCallback> callbacks, CookingSession session) {
+        AllergenMatcher matcher = matcherFor(session);
+        if (matcher.isEmpty()) return callbacks;
+
+        return callbacks.stream()
+                .map(tc -> screenedTools.contains(tc.getToolDefinition().name()) ? new ScreenedToolCallback(tc, matcher) : tc)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Screens a raw tool result. MCP results are a JSON array of content blocks whose "text" is a JSON
+     * list of recipes, a single recipe or plain page text; anything else is screened as plain text.
+     */
+    String screen(String result, AllergenMatcher matcher) {
+        if (result == null || result.isBlank()) return result;
+
+        try {
+            JsonNode root = objectMapper.readTree(result);
+            if (root.isArray()) {
+                for (JsonNode block : root) {
+                    if (block.isObject() && block.has("text")) {
+                        ((ObjectNode) block).put("text", screenText(block.get("text").asText(), matcher));
+                    }
+                }
+                return objectMapper.writeValueAsString(root);
+            }
+        } catch (Exception e) {
+            // Not JSON - fall through to plain text screening
+        }
+        return screenText(result, matcher);
+    }
+
+    private String screenText(String text, AllergenMatcher matcher) {
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            ArrayNode recipes = findRecipeList(node);
+            if (recipes != null) {
+                int removed = 0;
+                Set<String> removedFor = new TreeSet<>();
+                Iterator<JsonNode> it = recipes.elements();
+                while (it.hasNext()) {
+                    JsonNode recipe = it.next();
+                    Set<AllergenMatcher.Match> allergens = matcher.findAllergens(screenableText(recipe));
+                    if (!allergens.isEmpty()) {
+                        it.remove();
+                        removed++;
+                        allergens.forEach(m -> removedFor.add(m.restriction()));
+                    } else {
+                        Set<AllergenMatcher.Match> dietConflicts = matcher.findDietConflicts(screenableText(recipe));
+                        if (!dietConflicts.isEmpty()) {
+                            ((ObjectNode) recipe).put("dietWarning", describe(dietConflicts));
+                        }
+                    }
+                }
+                if (removed > 0) {
+                    System.out.println("[SafetyFilter] Dropped " + removed + " recipe(s) containing: " + removedFor);
+                    if (node.isObject()) {
+                        ((ObjectNode) node).put("allergenScreen", "Removed " + removed + " recipe(s) containing " + String.join(", ", removedFor));
+                    }
+                }
+                return objectMapper.writeValueAsString(node);
+            }
+            if (node.isObject()) {
+                return screenSingle((ObjectNode) node, matcher);
+            }
+        } catch (Exception e) {
+            // Not a JSON recipe list - tag as plain text below
+        }
+
+        Set<AllergenMatcher.Match> allergens = matcher.findAllergens(text);
+        if (allergens.isEmpty()) return text;
+
+        System.out.println("[SafetyFilter] Tagged result containing: " + describe(allergens));
+        return "ALLERGEN SCREEN: UNSAFE - this content contains " + describe(allergens)
+                + ". Do NOT present it unless every one of these ingredients is substituted.\n\n" + text;
+    }
+
+    // One recipe (or any other object): nothing to drop, so it is tagged like plain text, but on its screenable fields
+    private String screenSingle(ObjectNode recipe, AllergenMatcher matcher) throws Exception {
+        String screenable = screenableText(recipe);
+        Set<AllergenMatcher.Match> allergens = matcher.findAllergens(screenable);
+        if (!allergens.isEmpty()) {
+            System.out.println("[SafetyFilter] Tagged recipe containing: " + describe(allergens));
+            return "ALLERGEN SCREEN: UNSAFE - this recipe contains " + describe(allergens)
+                    + ". Do NOT present it unless every one of these ingredients is substituted.\n\n" + objectMapper.writeValueAsString(recipe);
+        }
+        Set<AllergenMatcher.Match> dietConflicts = matcher.findDietConflicts(screenable);
+        if (!dietConflicts.isEmpty()) {
+            recipe.put("dietWarning", describe(dietConflicts));
+        }
+        return objectMapper.writeValueAsString(recipe);
+    }
+
+    /**
+     * Title and ingredients of a recipe entry. URLs and other metadata are left out: a link such as
+     * .../peanut-free-cookies must neither drop nor flag a recipe. Entries without an ingredient list
+     * are screened on all their text fields except links.
+     */
+    static String screenableText(JsonNode recipe) {
+        if (!recipe.isObject()) return recipe.isTextual() ? recipe.asText() : recipe.toString();
+        StringBuilder text = new StringBuilder();
+        boolean hasIngredients = recipe.has("ingredients") || recipe.has("ingredient");
+        recipe.fields().forEachRemaining(field -> {
+            String key = field.getKey().toLowerCase(Locale.ROOT);
+            boolean include = hasIngredients
+                    ? SCREENED_FIELDS.contains(key)
+                    : !LINK_FIELDS.contains(key) && !field.getValue().asText().startsWith("http");
+            if (include) appendText(field.getValue(), text);
+        });
+        return text.toString();
+    }
+
+    private static void appendText(JsonNode value, StringBuilder text) {
+        if (value.isValueNode()) {
+            text.append(value.asText()).append('\n');
+        } else {
+            value.forEach(child -> appendText(child, text));
+        }
+    }
+
+    /**
+     * A bare array of recipe objects, or one under a known list key. Any other array (an ingredient
+     * list, tags) is part of a recipe, never a list whose elements may be dropped.
+     */
+    private static ArrayNode findRecipeList(JsonNode node) {
+        if (isRecipeList(node)) return (ArrayNode) node;
+        if (node.isObject()) {
+            for (String field : LIST_FIELDS) {
+                if (isRecipeList(node.get(field))) return (ArrayNode) node.get(field);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRecipeList(JsonNode node) {
+        if (node == null || !node.isArray()) return false;
+        for (JsonNode element : node) {
+            if (!element.isObject()) return false;
+        }
+        return true;
+    }
+
+    private String describe(Set<AllergenMatcher.Match> matches) {
+        return matches.stream()
+                .map(m -> m.term().equals(m.restriction()) ? m.term() : m.term() + " (" + m.restriction() + ")")
+                .distinct()
+                .collect(Collectors.joining(", "));
+    }
+
+    private class ScreenedToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+        private final AllergenMatcher matcher;
+
+        private ScreenedToolCallback(ToolCallback delegate, AllergenMatcher matcher) {
+            this.delegate = delegate;
+            this.matcher = matcher;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return screen(delegate.call(toolInput), matcher);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return screen(delegate.call(toolInput, toolContext), matcher);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.project.chefbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ChatModel that routes each call to one of the configured backends (local Ollama, Gemini) according to
+ * the request class. Each class has an ordered preference list; a backend is moved to the back while it is
+ * degraded (consecutive failures, high error rate or EWMA latency above the limit open its circuit for a
+ * while, after which live traffic probes it again) and a failed call is retried once on the next candidate.
+ * Plain {@link #call(Prompt)} is treated as an interactive request.
+ *
+ * Each call first takes a slot on its backend from the {@link LlmScheduler}; a backend whose queue is
+ * saturated for the class is skipped in favour of the next candidate without counting as a failure.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private static final class BackendStats {
+        private final String name;
+        private volatile double ewmaLatencyMs;
+        private volatile double ewmaErrorRate;
+        private volatile int consecutiveFailures;
+        private volatile long openUntil;
+        private volatile long calls;
+        private volatile long failures;
+
+        private BackendStats(String name) {
+            this.name = name;
+        }
+
+        private synchronized void recordSuccess(long latencyMs, long degradedLatencyMs, long openMillis) {
+            calls++;
+            consecutiveFailures = 0;
+            ewmaLatencyMs = ewmaLatencyMs == 0 ? latencyMs : EWMA_ALPHA * latencyMs + (1 - EWMA_ALPHA) * ewmaLatencyMs;
+            ewmaErrorRate = (1 - EWMA_ALPHA) * ewmaErrorRate;
+            if (degradedLatencyMs > 0 && ewmaLatencyMs > degradedLatencyMs) {
+                // Too slow: route around it for a while, then let traffic probe it again
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+
+        private synchronized void recordFailure(long latencyMs, int failureThreshold, long openMillis) {
+            calls++;
+            failures++;
+            consecutiveFailures++;
+            ewmaLatencyMs = ewmaLatencyMs == 0 ? latencyMs : EWMA_ALPHA * latencyMs + (1 - EWMA_ALPHA) * ewmaLatencyMs;
+            ewmaErrorRate = EWMA_ALPHA + (1 - EWMA_ALPHA) * ewmaErrorRate;
+            if (consecutiveFailures >= failureThreshold || ewmaErrorRate > 0.5) {
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+    }
+
+    private final Map<String, ChatModel> backends;
+    private final Map<ChatRequestClass, List<String>> routes;
+    private final Map<String, BackendStats> stats = new LinkedHashMap<>();
+    private final long degradedLatencyMs;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final MeterRegistry meterRegistry;
+    private final LlmScheduler scheduler;
+
+    public RoutingChatModel(Map<String, ChatModel> backends,
+                            Map<ChatRequestClass, List<String>> routes,
+                            long degradedLatencyMs,
+                            int failureThreshold,
+                            long openMillis,
+                            MeterRegistry meterRegistry,
+                            LlmScheduler scheduler) {
+        if (backends.isEmpty()) {
+            throw new IllegalStateException("No chat model backend available");
+        }
+        this.backends = backends;
+        this.routes = routes;
+        this.degradedLatencyMs = degradedLatencyMs;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = scheduler;
+        backends.keySet().forEach(name -> stats.put(name, new BackendStats(name)));
+        System.out.println("[ModelRouter] Backends: " + backends.keySet() + ", routes: " + routes);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return call(ChatRequestClass.INTERACTIVE, prompt);
+    }
+
+    public ChatResponse call(ChatRequestClass requestClass, Prompt prompt) {
+        List<String> candidates = rankCandidates(requestClass);
+        RuntimeException lastError = null;
+
+        // The preferred backend plus one failover attempt
+        for (String name : candidates.subList(0, Math.min(2, candidates.size()))) {
+            BackendStats backendStats = stats.get(name);
+            LlmScheduler.Permit permit;
+            try {
+                permit = acquire(name, requestClass);
+            } catch (LlmScheduler.SaturatedException e) {
+                lastError = e;
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            try (permit) {
+                ChatResponse response = backends.get(name).call(prompt);
+                long latency = System.currentTimeMillis() - start;
+                backendStats.recordSuccess(latency, degradedLatencyMs, openMillis);
+                recordMetrics(name, requestClass, "success", latency, response);
+                return response;
+            } catch (RuntimeException e) {
+                long latency = System.currentTimeMillis() - start;
+                backendStats.recordFailure(latency, failureThreshold, openMillis);
+                recordMetrics(name, requestClass, "error", latency, null);
+                System.err.println("[ModelRouter] " + requestClass + " call failed on " + name + ": " + e.getMessage());
+                lastError = e;
+            }
+        }
+        if (lastError == null) {
+            throw new IllegalStateException("No chat model available for " + requestClass);
+        }
+        throw lastError;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return stream(ChatRequestClass.INTERACTIVE, prompt);
+    }
+
+    /**
+     * Streams from the best backend. If it fails before emitting anything the stream fails over once,
+     * like {@link #call(ChatRequestClass, Prompt)}; time to first token is recorded per backend.
+     */
+    public Flux<ChatResponse> stream(ChatRequestClass requestClass, Prompt prompt) {
+        List<String> candidates = rankCandidates(requestClass);
+        if (candidates.isEmpty()) {
+            return Flux.error(new IllegalStateException("No chat model available for " + requestClass));
+        }
+        return streamFrom(candidates.subList(0, Math.min(2, candidates.size())), 0, requestClass, prompt);
+    }
+
+    private Flux<ChatResponse> streamFrom(List<String> candidates, int index, ChatRequestClass requestClass, Prompt prompt) {
+        String name = candidates.get(index);
+        BackendStats backendStats = stats.get(name);
+
+        return Flux.defer(() -> {
+            LlmScheduler.Permit permit;
+            try {
+                permit = acquire(name, requestClass);
+            } catch (LlmScheduler.SaturatedException e) {
+                return index + 1 < candidates.size() ? streamFrom(candidates, index + 1, requestClass, prompt) : Flux.error(e);
+            }
+            long start = System.currentTimeMillis();
+            AtomicBoolean emitted = new AtomicBoolean();
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+
+            return backends.get(name).stream(prompt)
+                    .doFinally(signal -> permit.close())
+                    .doOnNext(response -> {
+                        if (emitted.compareAndSet(false, true)) {
+                            recordTimeToFirstToken(name, requestClass, System.currentTimeMillis() - start);
+                        }
+                        last.set(response);
+                    })
+                    .doOnComplete(() -> {
+                        long latency = System.currentTimeMillis() - start;
+                        backendStats.recordSuccess(latency, degradedLatencyMs, openMillis);
+                        recordMetrics(name, requestClass, "success", latency, last.get());
+                    })
+                    // A caller that stops reading early (e.g. an aborted extraction) is neither success nor failure
+                    .doOnCancel(() -> recordMetrics(name, requestClass, "cancelled", System.currentTimeMillis() - start, last.get()))
+                    .onErrorResume(e -> {
+                        // doFinally only runs once the fallback below has been subscribed; free the slot first
+                        permit.close();
+                        long latency = System.currentTimeMillis() - start;
+                        backendStats.recordFailure(latency, failureThreshold, openMillis);
+                        recordMetrics(name, requestClass, "error", latency, null);
+                        System.err.println("[ModelRouter] " + requestClass + " stream failed on " + name + ": " + e.getMessage());
+                        if (!emitted.get() && index + 1 < candidates.size()) {
+                            return streamFrom(candidates, index + 1, requestClass, prompt);
+                        }
+                        return Flux.error(e);
+                    });
+        });
+    }
+
+    private LlmScheduler.Permit acquire(String backend, ChatRequestClass requestClass) {
+        return scheduler == null ? LlmScheduler.Permit.NONE : scheduler.acquire(backend, requestClass);
+    }
+
+    private void recordMetrics(String backend, ChatRequestClass requestClass, String outcome, long latencyMs, ChatResponse response) {
+        if (meterRegistry == null) return;
+
+        Timer.builder("chefbot.llm.latency")
+                .description("LLM call latency per backend and request class")
+                .tag("model", backend)
+                .tag("class", requestClass.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(latencyMs, TimeUnit.MILLISECONDS);
+
+        if (response != null && response.getMetadata() != null && response.getMetadata().getUsage() != null) {
+            Usage usage = response.getMetadata().getUsage();
+            if (usage.getPromptTokens() != null) {
+                tokenCounter(backend, requestClass, "in").increment(usage.getPromptTokens());
+            }
+            if (usage.getCompletionTokens() != null) {
+                tokenCounter(backend, requestClass, "out").increment(usage.getCompletionTokens());
+            }
+        }
+    }
+
+    private void recordTimeToFirstToken(String backend, ChatRequestClass requestClass, long millis) {
+        if (meterRegistry == null) return;
+        Timer.builder("chefbot.llm.ttft")
+                .description("Time to first streamed token")
+                .tag("model", backend)
+                .tag("class", requestClass.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private Counter tokenCounter(String backend, ChatRequestClass requestClass, String direction) {
+        return Counter.builder("chefbot.llm.tokens")
+                .description("Prompt (in) and completion (out) tokens")
+                .tag("model", backend)
+                .tag("class", requestClass.name())
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return backends.values().iterator().next().getDefaultOptions();
+    }
+
+    /**
+     * Orders the backends for a request class: configured preference first, degraded backends pushed to
+     * the end (sorted by score), and backends not listed for the class excluded unless nothing else exists.
+     */
+    List<String> rankCandidates(ChatRequestClass requestClass) {
+        List<String> preferred = new ArrayList<>();
+        for (String name : routes.getOrDefault(requestClass, List.of())) {
+            if (backends.containsKey(name)) {
+                preferred.add(name);
+            }
+        }
+        if (preferred.isEmpty()) {
+            preferred.addAll(backends.keySet());
+        }
+
+        List<String> healthy = new ArrayList<>();
+        List<String> degraded = new ArrayList<>();
+        for (String name : preferred) {
+            (isDegraded(stats.get(name)) ? degraded : healthy).add(name);
+        }
+        degraded.sort((a, b) -> Double.compare(score(stats.get(a)), score(stats.get(b))));
+        healthy.addAll(degraded);
+        return healthy;
+    }
+
+    private boolean isDegraded(BackendStats backendStats) {
+        return System.currentTimeMillis() < backendStats.openUntil;
+    }
+
+    private double score(BackendStats backendStats) {
+        return backendStats.ewmaLatencyMs * (1 + 4 * backendStats.ewmaErrorRate);
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (BackendStats backendStats : stats.values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("calls", backendStats.calls);
+            details.put("failures", backendStats.failures);
+            details.put("ewmaLatencyMs", Math.round(backendStats.ewmaLatencyMs));
+            details.put("ewmaErrorRate", backendStats.ewmaErrorRate);
+            details.put("degraded", isDegraded(backendStats));
+            result.put(backendStats.name, details);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.project.chefbot.service;
+
+import com.project.chefbot.model.CookingSession;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Opt-in cache of first-turn answers. A cached answer is reused only when the session settings
+ * (persona, diet, allergies) match exactly and the question embedding is close enough to a question
+ * answered before. An answer generated with a user's profile or past conversations in the prompt is
+ * keyed to that user and that exact context, so it is never shown to anyone else. Turns that mention
+ * email are never cached or served from cache.
+ */
+@Service
+public class SemanticAnswerCache {
+
+    private static final Pattern EMAIL_INTENT = Pattern.compile("(?i)\\b(send|e-?mail|mail)\\b|@");
+
+    /** Result of a lookup; carries the question embedding so a miss can be stored without embedding twice. */
+    public record Lookup(String settingsKey, float[] embedding, String answer, long savedMillis) {
+        public boolean isHit() { return answer != null; }
+    }
+
+    private record Entry(float[] embedding, String answer, long latencyMillis, long createdAt) {}
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntriesPerSettings;
+    private final long ttlMillis;
+
+    private final Map<String, List<Entry>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    public SemanticAnswerCache(@Autowired(required = false) EmbeddingModel embeddingModel,
+                               @Value("${chefbot.answer-cache.enabled:false}") boolean enabled,
+                               @Value("${chefbot.answer-cache.similarity-threshold:0.95}") double similarityThreshold,
+                               @Value("${chefbot.answer-cache.max-entries-per-settings:200}") int maxEntriesPerSettings,
+                               @Value("${chefbot.answer-cache.ttl-minutes:1440}") long ttlMinutes) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled && embeddingModel != null;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntriesPerSettings = maxEntriesPerSettings;
+        this.ttlMillis = ttlMinutes * 60_000;
+    }
+
+    public boolean isEligible(boolean firstTurn, String question) {
+        return enabled && firstTurn && question != null && !question.isBlank() && !EMAIL_INTENT.matcher(question).find();
+    }
+
+    /** personalContext is the profile / memory block the answer's prompt carries ("" when none). */
+    public Lookup lookup(CookingSession session, String question, String personalContext) {
+        String key = settingsKey(session, personalContext);
+        float[] embedding = normalize(embeddingModel.embed(question.trim()));
+        lookups.incrementAndGet();
+
+        long now = System.currentTimeMillis();
+        Entry best = null;
+        double bestScore = similarityThreshold;
+        for (Entry entry : entries.getOrDefault(key, List.of())) {
+            if (now - entry.createdAt() > ttlMillis) continue;
+            double score = dot(embedding, entry.embedding());
+            if (score >= bestScore) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+
+        if (best == null) {
+            return new Lookup(key, embedding, null, 0);
+        }
+
+        hits.incrementAndGet();
+        savedMillis.addAndGet(best.latencyMillis());
+        System.out.println("[AnswerCache] Hit (similarity=" + String.format("%.3f", bestScore) + ", saved ~" + best.latencyMillis() + "ms). " + getStats());
+        return new Lookup(key, embedding, best.answer(), best.latencyMillis());
+    }
+
+    public void store(Lookup lookup, String answer, long latencyMillis) {
+        if (lookup == null || lookup.isHit() || answer == null || answer.isBlank()) return;
+
+        List<Entry> list = entries.computeIfAbsent(lookup.settingsKey(), k -> new CopyOnWriteArrayList<>());
+        long now = System.currentTimeMillis();
+        list.removeIf(entry -> now - entry.createdAt() > ttlMillis);
+        if (list.size() >= maxEntriesPerSettings) {
+            list.remove(0);
+        }
+        list.add(new Entry(lookup.embedding(), answer, latencyMillis, now));
+    }
+
+    public Map<String, Object> getStats() {
+        long lookupCount = lookups.get();
+        long hitCount = hits.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("lookups", lookupCount);
+        stats.put("hits", hitCount);
+        stats.put("hitRate", lookupCount == 0 ? 0.0 : (double) hitCount / lookupCount);
+        stats.put("latencySavedMillis", savedMillis.get());
+        stats.put("entries", entries.values().stream().mapToInt(List::size).sum());
+        return stats;
+    }
+
+    static String settingsKey(CookingSession session, String personalContext) {
+        String key = session.getChefPersonality() + "\u0000" + session.getDietType() + "\u0000" + session.getExcludedIngredients();
+        if (personalContext == null || personalContext.isBlank()) return key;
+        Long userId = session.getUser() != null ? session.getUser().getId() : null;
+        return key + "\u0000user:" + userId + "\u0000" + Integer.toHexString(personalContext.hashCode());
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        norm = Math.sqrt(norm);
+        if (norm == 0) return vector;
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) result[i] = (float) (vector[i] / norm);
+        return result;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) return -1;
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+}
@@ -0,0 +1,213 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.Zstd;
+import com.project.chefbot.model.ArchivedSession;
+import com.project.chefbot.model.ChatMessage;
+import com.project.chefbot.model.CookingSession;
+import com.project.chefbot.repository.ArchivedSessionRepository;
+import com.project.chefbot.repository.ChatMessageRepository;
+import com.project.chefbot.repository.CookingSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves sessions without activity for chefbot.archive.inactive-days out of chat_message into one
+ * zstd-compressed JSON blob per session (chat_session_archive), keeping the hot table and its
+ * (session_id, id) index small. An archived session is rehydrated the first time it is opened again.
+ */
+@Service
+public class SessionArchiveService {
+
+    static final String CODEC = "zstd-json-v1";
+    private static final int ZSTD_LEVEL = 6;
+
+    // What is archived per message; ids are reassigned on rehydration, in the same order
+    record ArchivedMessage(String sender, String content, String contentHtml, LocalDateTime timestamp) {}
+
+    private final CookingSessionRepository sessionRepo;
+    private final ChatMessageRepository messageRepo;
+    private final ArchivedSessionRepository archiveRepo;
+    private final ObjectMapper objectMapper;
+    private final ChefMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeases jobLeases;
+
+    @Value("${chefbot.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chefbot.archive.inactive-days:30}")
+    private int inactiveDays;
+
+    @Value("${chefbot.archive.batch-size:50}")
+    private int batchSize;
+
+    @Value("${chefbot.archive.lease-seconds:3600}")
+    private long leaseSeconds;
+
+    public SessionArchiveService(CookingSessionRepository sessionRepo,
+                                 ChatMessageRepository messageRepo,
+                                 ArchivedSessionRepository archiveRepo,
+                                 ObjectMapper objectMapper,
+                                 ChefMetrics metrics,
+                                 PlatformTransactionManager transactionManager,
+                                 JobLeases jobLeases) {
+        this.sessionRepo = sessionRepo;
+        this.messageRepo = messageRepo;
+        this.archiveRepo = archiveRepo;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLeases = jobLeases;
+    }
+
+    @Scheduled(initialDelayString = "${chefbot.archive.initial-delay-ms:300000}", fixedDelayString = "${chefbot.archive.interval-ms:3600000}")
+    public void archiveInactiveSessions() {
+        if (!enabled) return;
+        // One node at a time; the others skip this run
+        try (JobLeases.Lease lease = jobLeases.tryAcquire("session-archive", leaseSeconds)) {
+            if (lease != null) archive();
+        }
+    }
+
+    private void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(inactiveDays);
+        int archived = 0;
+        int failed = 0;
+        // Keyset paging: sessions that fail or are skipped stay candidates, so the run moves past them by id
+        long afterId = 0;
+        List<Long> batch;
+        do {
+            batch = sessionRepo.findInactiveSessionIds(cutoff, afterId, PageRequest.of(0, batchSize));
+            for (Long sessionId : batch) {
+                afterId = sessionId;
+                try {
+                    // One transaction per session so a failure never leaves a half-moved conversation
+                    Boolean done = transactionTemplate.execute(status -> archiveSession(sessionId, cutoff));
+                    if (Boolean.TRUE.equals(done)) archived++;
+                } catch (Exception e) {
+                    failed++;
+                    System.err.println("[Archive] Session " + sessionId + " failed: " + e.getMessage());
+                }
+            }
+        } while (batch.size() == batchSize);
+
+        if (archived > 0 || failed > 0) {
+            System.out.println("[Archive] Archived " + archived + " inactive session(s), " + failed + " failed");
+        }
+    }
+
+    private boolean archiveSession(Long sessionId, LocalDateTime cutoff) {
+        CookingSession session = sessionRepo.findByIdForUpdate(sessionId).orElse(null);
+        if (session == null || archiveRepo.existsById(sessionId)) return false;
+
+        List<ChatMessage> messages = messageRepo.findBySessionIdOrderByTimestampAsc(sessionId);
+        // Re-checked under the lock: a message may have arrived since the candidate query
+        if (messages.isEmpty() || messages.stream().anyMatch(m -> m.getTimestamp() != null && !m.getTimestamp().isBefore(cutoff))) {
+            return false;
+        }
+
+        List<ArchivedMessage> archivedMessages = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            archivedMessages.add(new ArchivedMessage(message.getSender(), message.getContent(), message.getContentHtml(), message.getTimestamp()));
+        }
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(archivedMessages);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize session " + sessionId, e);
+        }
+        byte[] compressed = Zstd.compress(json, ZSTD_LEVEL);
+
+        ArchivedSession archive = new ArchivedSession();
+        archive.setSessionId(sessionId);
+        archive.setCodec(CODEC);
+        archive.setPayload(compressed);
+        archive.setMessageCount(messages.size());
+        archive.setRawBytes(json.length);
+        archive.setCompressedBytes(compressed.length);
+        archive.setArchivedAt(LocalDateTime.now());
+        archiveRepo.save(archive);
+
+        messageRepo.deleteBySessionId(sessionId);
+        metrics.recordArchive("archived", json.length, compressed.length);
+        return true;
+    }
+
+    public boolean isArchived(Long sessionId) {
+        return archiveRepo.existsById(sessionId);
+    }
+
+    /** Moves an archived session's messages back into chat_message; a no-op for sessions that are not archived. */
+    public void rehydrateIfArchived(Long sessionId) {
+        if (!isArchived(sessionId)) return;
+        transactionTemplate.executeWithoutResult(status -> rehydrate(sessionId));
+    }
+
+    private void rehydrate(Long sessionId) {
+        CookingSession session = sessionRepo.findByIdForUpdate(sessionId).orElse(null);
+        ArchivedSession archive = archiveRepo.findById(sessionId).orElse(null);
+        // Another request may have rehydrated it while we waited for the lock
+        if (session == null || archive == null) return;
+
+        List<ArchivedMessage> archivedMessages = decode(archive);
+        List<ChatMessage> messages = new ArrayList<>(archivedMessages.size());
+        for (ArchivedMessage archived : archivedMessages) {
+            ChatMessage message = new ChatMessage();
+            message.setSender(archived.sender());
+            message.setContent(archived.content());
+            message.setContentHtml(archived.contentHtml());
+            message.setTimestamp(archived.timestamp());
+            message.setSession(session);
+            messages.add(message);
+        }
+        messageRepo.saveAll(messages);
+        archiveRepo.delete(archive);
+
+        metrics.recordArchive("rehydrated", archive.getRawBytes(), archive.getCompressedBytes());
+        System.out.println("[Archive] Rehydrated session " + sessionId + " (" + messages.size() + " messages)");
+    }
+
+    List<ArchivedMessage> decode(ArchivedSession archive) {
+        if (!CODEC.equals(archive.getCodec())) {
+            throw new IllegalStateException("Unknown archive codec " + archive.getCodec() + " for session " + archive.getSessionId());
+        }
+        try {
+            byte[] json = Zstd.decompress(archive.getPayload(), (int) archive.getRawBytes());
+            return objectMapper.readValue(json, new TypeReference<List<ArchivedMessage>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not decode archive of session " + archive.getSessionId(), e);
+        }
+    }
+
+    public void discard(Long sessionId) {
+        if (archiveRepo.existsById(sessionId)) archiveRepo.deleteById(sessionId);
+    }
+
+    public Map<String, Object> getStats() {
+        Object[] row = archiveRepo.summarize();
+        // Spring Data wraps a single multi-column row in an outer array
+        if (row.length == 1 && row[0] instanceof Object[] inner) row = inner;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inactiveDays", inactiveDays);
+        stats.put("archivedSessions", row[0]);
+        stats.put("archivedMessages", row[1]);
+        stats.put("rawBytes", row[2]);
+        stats.put("compressedBytes", row[3]);
+        return stats;
+    }
+}
@@ -0,0 +1,198 @@
+package com.project.chefbot.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs chat turns in the background, strictly one at a time per session and in submission order,
+ * while different sessions proceed in parallel on virtual threads.
+ *
+ * Every submission carries an idempotency key (rendered into the chat form), so a double click or a
+ * resubmitted form is dropped instead of paying for a second model call. Submissions without a key are
+ * deduplicated on their text while an identical message is still queued or running.
+ *
+ * New turns are admitted through the {@link LlmScheduler}: a user who has used up their token bucket, or
+ * a submission arriving while the interactive LLM queue is full, is turned away with a retry hint.
+ */
+@Service
+public class SessionTurnQueue {
+
+    public enum Outcome { ACCEPTED, DUPLICATE, QUEUE_FULL, RATE_LIMITED, BUSY }
+
+    public record Submission(Outcome outcome, String key, int position, long retryAfterSeconds) {
+
+        public Submission(Outcome outcome, String key, int position) {
+            this(outcome, key, position, 0);
+        }
+
+        public boolean isAccepted() {
+            return outcome == Outcome.ACCEPTED;
+        }
+
+        /** Not queued because of load; the same message can be sent again later. */
+        public boolean isThrottled() {
+            return outcome == Outcome.QUEUE_FULL || outcome == Outcome.RATE_LIMITED || outcome == Outcome.BUSY;
+        }
+    }
+
+    private enum TurnState { QUEUED, RUNNING, DONE }
+
+    private static final class Turn {
+        final Long sessionId;
+        final String message;
+        final long sequence;
+        final long submittedAt = System.currentTimeMillis();
+        volatile TurnState state = TurnState.QUEUED;
+        // Set once ChefAiService has committed the user message; until then the page shows it as pending
+        volatile boolean messageSaved;
+        volatile long finishedAt;
+
+        Turn(Long sessionId, String message, long sequence) {
+            this.sessionId = sessionId;
+            this.message = message;
+            this.sequence = sequence;
+        }
+    }
+
+    private final ChefAiService aiService;
+    private final ChefMetrics metrics;
+    private final LlmScheduler scheduler;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Tail of each session's chain; a new turn starts when the previous one has finished
+    private final Map<Long, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+    private final Map<String, Turn> turnsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Value("${chefbot.turns.max-queued-per-session:5}")
+    private int maxQueuedPerSession;
+
+    @Value("${chefbot.turns.dedup-ttl-ms:600000}")
+    private long dedupTtlMillis;
+
+    @Value("${chefbot.turns.busy-retry-after-seconds:15}")
+    private long busyRetryAfterSeconds;
+
+    public SessionTurnQueue(ChefAiService aiService, ChefMetrics metrics, LlmScheduler scheduler) {
+        this.aiService = aiService;
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+    }
+
+    public Submission submit(Long sessionId, String idempotencyKey, String message) {
+        return submit(sessionId, null, idempotencyKey, message);
+    }
+
+    public Submission submit(Long sessionId, Long userId, String idempotencyKey, String message) {
+        evictExpired();
+
+        String key = (idempotencyKey == null || idempotencyKey.isBlank())
+                ? "text:" + message.trim().hashCode()
+                : idempotencyKey.trim();
+        String scopedKey = sessionId + ":" + key;
+
+        synchronized (this) {
+            Turn existing = turnsByKey.get(scopedKey);
+            // Text-derived keys only deduplicate while the identical message is still in flight
+            boolean textKeyExpired = existing != null && key.startsWith("text:") && existing.state == TurnState.DONE;
+            if (existing != null && !textKeyExpired) {
+                metrics.recordTurnSubmission("duplicate");
+                return new Submission(Outcome.DUPLICATE, key, 0);
+            }
+
+            int queued = countQueued(sessionId);
+            if (queued >= maxQueuedPerSession) {
+                metrics.recordTurnSubmission("queue_full");
+                return new Submission(Outcome.QUEUE_FULL, key, queued);
+            }
+
+            if (scheduler.isSaturated(ChatRequestClass.INTERACTIVE)) {
+                metrics.recordTurnSubmission("busy");
+                return new Submission(Outcome.BUSY, key, queued, busyRetryAfterSeconds);
+            }
+            // Charged last, so duplicates and rejected submissions do not cost the user a token
+            LlmScheduler.Admission admission = scheduler.admitUser(userId);
+            if (!admission.allowed()) {
+                metrics.recordTurnSubmission("rate_limited");
+                return new Submission(Outcome.RATE_LIMITED, key, queued, admission.retryAfterSeconds());
+            }
+
+            Turn turn = new Turn(sessionId, message, sequence.incrementAndGet());
+            turnsByKey.put(scopedKey, turn);
+            enqueue(turn);
+            metrics.recordTurnSubmission("accepted");
+            return new Submission(Outcome.ACCEPTED, key, queued + 1);
+        }
+    }
+
+    private void enqueue(Turn turn) {
+        CompletableFuture<Void> tail = lanes.compute(turn.sessionId, (id, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .thenRunAsync(() -> runTurn(turn), executor));
+        tail.whenComplete((ignored, error) -> lanes.remove(turn.sessionId, tail));
+    }
+
+    private void runTurn(Turn turn) {
+        turn.state = TurnState.RUNNING;
+        metrics.recordTurnQueueWait(System.currentTimeMillis() - turn.submittedAt);
+        try {
+            aiService.sendMessage(turn.sessionId, turn.message, () -> turn.messageSaved = true);
+        } catch (Exception e) {
+            // Never break the chain: later turns of this session must still run
+            System.err.println("[SessionTurnQueue] Turn failed for session " + turn.sessionId + ": " + e.getMessage());
+        } finally {
+            turn.finishedAt = System.currentTimeMillis();
+            turn.state = TurnState.DONE;
+        }
+    }
+
+    /** Messages accepted but not saved yet, oldest first: queued turns and a running one still loading the session. */
+    public List<String> getQueuedMessages(Long sessionId) {
+        List<Turn> queued = new ArrayList<>();
+        for (Turn turn : turnsByKey.values()) {
+            boolean unsaved = turn.state == TurnState.QUEUED || (turn.state == TurnState.RUNNING && !turn.messageSaved);
+            if (turn.sessionId.equals(sessionId) && unsaved) queued.add(turn);
+        }
+        queued.sort(Comparator.comparingLong(turn -> turn.sequence));
+        return queued.stream().map(turn -> turn.message).toList();
+    }
+
+    public boolean isBusy(Long sessionId) {
+        return lanes.containsKey(sessionId);
+    }
+
+    private int countQueued(Long sessionId) {
+        int count = 0;
+        for (Turn turn : turnsByKey.values()) {
+            if (turn.sessionId.equals(sessionId) && turn.state == TurnState.QUEUED) count++;
+        }
+        return count;
+    }
+
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - dedupTtlMillis;
+        turnsByKey.values().removeIf(turn -> turn.state == TurnState.DONE && turn.finishedAt < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Tool-call bookkeeping for a single chat turn.
+ * Identical (tool, arguments) pairs return the memoized result instead of calling the server again,
+ * and once the turn has used up its call or time budget the model is told to answer with what it has.
+ */
+public class TurnToolBudget {
+
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    static final String BUDGET_EXHAUSTED = "TOOL BUDGET EXHAUSTED for this message. Do not call any more tools - answer now using the information you already have.";
+
+    private final int maxCalls;
+    private final long maxToolMillis;
+    private final ChefMetrics metrics;
+
+    private final Map<String, String> memo = new ConcurrentHashMap<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger memoHits = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicLong toolMillis = new AtomicLong();
+
+    public TurnToolBudget(int maxCalls, long maxToolMillis) {
+        this(maxCalls, maxToolMillis, null);
+    }
+
+    public TurnToolBudget(int maxCalls, long maxToolMillis, ChefMetrics metrics) {
+        this.maxCalls = maxCalls;
+        this.maxToolMillis = maxToolMillis;
+        this.metrics = metrics;
+    }
+
+    public List<ToolCallback> wrap(List<ToolCallback> callbacks) {
+        return callbacks.stream()
+                .map(BudgetedToolCallback::new)
+                .collect(Collectors.toList());
+    }
+
+    public int getCalls() { return calls.get(); }
+    public int getMemoHits() { return memoHits.get(); }
+    public int getRejected() { return rejected.get(); }
+    public long getToolMillis() { return toolMillis.get(); }
+
+    public String summary() {
+        return "calls=" + calls.get() + "/" + maxCalls
+                + ", memoHits=" + memoHits.get()
+                + ", rejected=" + rejected.get()
+                + ", toolTime=" + toolMillis.get() + "/" + maxToolMillis + "ms";
+    }
+
+    String execute(ToolCallback delegate, String toolInput, ToolContext toolContext) {
+        String toolName = delegate.getToolDefinition().name();
+        String key = toolName + "|" + canonicalArguments(toolInput);
+
+        String cached = memo.get(key);
+        if (cached != null) {
+            memoHits.incrementAndGet();
+            record(toolName, "memoized", 0);
+            System.out.println("[ToolBudget] Memoized result for " + delegate.getToolDefinition().name());
+            return cached;
+        }
+
+        if (toolMillis.get() >= maxToolMillis || !reserveCall()) {
+            rejected.incrementAndGet();
+            record(toolName, "rejected", 0);
+            System.out.println("[ToolBudget] Rejected " + delegate.getToolDefinition().name() + " (" + summary() + ")");
+            return BUDGET_EXHAUSTED;
+        }
+
+        long start = System.currentTimeMillis();
+        String outcome = "error";
+        try {
+            String result = toolContext != null ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+            if (result != null) {
+                memo.put(key, result);
+            }
+            outcome = "success";
+            return result;
+        } finally {
+            long elapsed = System.currentTimeMillis() - start;
+            toolMillis.addAndGet(elapsed);
+            record(toolName, outcome, elapsed);
+        }
+    }
+
+    // The model may run several tool calls of one response in parallel: a slot is taken atomically
+    private boolean reserveCall() {
+        while (true) {
+            int used = calls.get();
+            if (used >= maxCalls) return false;
+            if (calls.compareAndSet(used, used + 1)) return true;
+        }
+    }
+
+    private void record(String toolName, String outcome, long millis) {
+        if (metrics != null) {
+            metrics.recordToolCall(toolName, outcome, millis);
+        }
+    }
+
+    /**
+     * Normalizes JSON arguments so that key order and whitespace do not defeat memoization.
+     */
+    static String canonicalArguments(String toolInput) {
+        if (toolInput == null) return "";
+        try {
+            return CANONICAL_MAPPER.writeValueAsString(CANONICAL_MAPPER.readValue(toolInput, Object.class));
+        } catch (Exception e) {
+            return toolInput.trim();
+        }
+    }
+
+    private class BudgetedToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+
+        private BudgetedToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return execute(delegate, toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return execute(delegate, toolInput, toolContext);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.project.chefbot.service;
+
+import com.project.chefbot.config.VectorStoreConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copies the rows of the old shared vector_store table into the recipe and memory collections, reusing the
+ * stored embeddings. Recipe chunks are recognised by metadata type "web-recipe", conversation chunks by a
+ * sessionId. Rows matching neither are reported and left where they are.
+ */
+@Service
+@Profile("!loadtest")
+public class VectorCollectionMigrator {
+
+    static final String LEGACY_TABLE = "vector_store";
+    static final String RECIPE_ROWS = "metadata ->> 'type' = 'web-recipe'";
+    static final String MEMORY_ROWS = "metadata ->> 'sessionId' IS NOT NULL AND coalesce(metadata ->> 'type', '') <> 'web-recipe'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final QuantizedPgVectorStore recipeStore;
+    private final QuantizedPgVectorStore memoryStore;
+
+    @Value("${chefbot.vector.migrate-legacy.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chefbot.vector.migrate-legacy.delete-source:false}")
+    private boolean deleteSource;
+
+    public VectorCollectionMigrator(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Qualifier(VectorStoreConfig.RECIPES) QuantizedPgVectorStore recipeStore,
+                                    @Qualifier(VectorStoreConfig.MEMORY) QuantizedPgVectorStore memoryStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recipeStore = recipeStore;
+        this.memoryStore = memoryStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) return;
+        try {
+            System.out.println("[VectorMigration] " + migrate(deleteSource));
+        } catch (Exception e) {
+            System.err.println("[VectorMigration] Failed: " + e.getMessage());
+        }
+    }
+
+    /** Idempotent: rows already copied are skipped, so it can be re-run after a partial failure. */
+    public Map<String, Object> migrate(boolean deleteMigrated) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        String legacy = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, LEGACY_TABLE);
+        if (legacy == null) {
+            result.put("status", "no legacy table");
+            return result;
+        }
+
+        // One transaction, so a source row is never deleted without its copy
+        transactionTemplate.executeWithoutResult(status -> {
+            result.put("recipes", recipeStore.importRows(LEGACY_TABLE, RECIPE_ROWS));
+            result.put("memory", memoryStore.importRows(LEGACY_TABLE, MEMORY_ROWS));
+            if (deleteMigrated) {
+                result.put("deleted", jdbcTemplate.update("DELETE FROM " + LEGACY_TABLE
+                        + " WHERE (" + RECIPE_ROWS + ") OR (" + MEMORY_ROWS + ")"));
+            }
+        });
+        result.put("remaining", jdbcTemplate.queryForObject("SELECT count(*) FROM " + LEGACY_TABLE, Long.class));
+        result.put("status", "done");
+        return result;
+    }
+}
@@ -0,0 +1,238 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SQL behind {@link VectorReindexService}: generation rows in vector_generation, the tables each node
+ * reads (vector_reader), and the source data a rebuild re-embeds from (stored_recipe, chat_message and
+ * the previous vector table). Table names come from validated store settings, never from requests.
+ */
+@Component
+@Profile("!loadtest")
+public class VectorGenerations {
+
+    /** A recipe with the document text it was embedded from. */
+    public record RecipeSource(long id, String url, String title, String diet, String document) {}
+
+    static final String RECIPES = "recipes";
+
+    private static final String FIRST_UUID = "00000000-0000-0000-0000-000000000000";
+    // Catch-up windows start a little early: scanned_at and chat timestamps come from the nodes' clocks
+    private static final long CLOCK_MARGIN_SECONDS = 60;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public VectorGenerations(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Newest READY generation table for this embedding model and dimensions, or null to use the configured table. */
+    public static String activeTable(JdbcTemplate jdbcTemplate, String collection, String embeddingModel, int dimensions) {
+        List<String> tables = jdbcTemplate.queryForList("""
+                SELECT table_name FROM vector_generation
+                WHERE collection = ? AND state = 'READY' AND embedding_model = ? AND dimensions = ?
+                ORDER BY ready_at DESC LIMIT 1
+                """, String.class, collection, embeddingModel, dimensions);
+        return tables.isEmpty() ? null : tables.get(0);
+    }
+
+    public String activeTable(String collection, String embeddingModel, int dimensions) {
+        return activeTable(jdbcTemplate, collection, embeddingModel, dimensions);
+    }
+
+    // --- Generation rows ---
+
+    /** Registers a BUILDING generation; fails if the collection already has one (on any node). */
+    public void insert(String collection, String table, String previous, String embeddingModel, int dimensions, int chunkSize) {
+        try {
+            jdbcTemplate.update("""
+                    INSERT INTO vector_generation (collection, table_name, previous_table, embedding_model, dimensions, chunk_size)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    """, collection, table, previous, embeddingModel, dimensions, chunkSize);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("A rebuild of " + collection + " is already running");
+        }
+    }
+
+    /** Marks BUILDING generations that stopped reporting progress FAILED and drops their tables. */
+    public List<String> abandonStale(String collection, long staleMinutes) {
+        List<String> stale = jdbcTemplate.queryForList("""
+                SELECT table_name FROM vector_generation
+                WHERE collection = ? AND state = 'BUILDING' AND updated_at < now() - make_interval(mins => ?)
+                """, String.class, collection, staleMinutes);
+        for (String table : stale) {
+            dropTable(table);
+            jdbcTemplate.update("UPDATE vector_generation SET state = 'FAILED', message = 'abandoned', updated_at = now() WHERE table_name = ?", table);
+        }
+        return stale;
+    }
+
+    public void updateProgress(String table, long done, long total) {
+        jdbcTemplate.update("UPDATE vector_generation SET done = ?, total = ?, updated_at = now() WHERE table_name = ?", done, total, table);
+    }
+
+    public void markReady(String table) {
+        jdbcTemplate.update("UPDATE vector_generation SET state = 'READY', ready_at = now(), updated_at = now() WHERE table_name = ?", table);
+    }
+
+    public void markFailed(String table, String message) {
+        jdbcTemplate.update("UPDATE vector_generation SET state = 'FAILED', message = left(?, 1000), updated_at = now() WHERE table_name = ?",
+                message, table);
+    }
+
+    public void setMessage(String table, String message) {
+        jdbcTemplate.update("UPDATE vector_generation SET message = left(?, 1000), updated_at = now() WHERE table_name = ?", message, table);
+    }
+
+    /** Retires the previous generation only if it served the same model: other models still select it. */
+    public void retire(String table, String embeddingModel, int dimensions) {
+        jdbcTemplate.update("""
+                UPDATE vector_generation SET state = 'RETIRED', updated_at = now()
+                WHERE table_name = ? AND state = 'READY' AND embedding_model = ? AND dimensions = ?
+                """, table, embeddingModel, dimensions);
+    }
+
+    public void dropTable(String table) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table + " CASCADE");
+    }
+
+    public List<Map<String, Object>> recent(int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT collection, table_name, previous_table, embedding_model, dimensions, chunk_size, state, done, total,
+                       message, started_at, updated_at, ready_at
+                FROM vector_generation ORDER BY id DESC LIMIT ?
+                """, limit);
+    }
+
+    // --- Readers ---
+
+    /** Records which table this node reads for the collection; refreshed on every sync. */
+    public void registerReader(String node, String collection, String table, String embeddingModel) {
+        jdbcTemplate.update("""
+                INSERT INTO vector_reader (node, collection, table_name, embedding_model, seen_at) VALUES (?, ?, ?, ?, now())
+                ON CONFLICT (node, collection) DO UPDATE
+                SET table_name = EXCLUDED.table_name, embedding_model = EXCLUDED.embedding_model, seen_at = now()
+                """, node, collection, table, embeddingModel);
+    }
+
+    /**
+     * Who still depends on a table: READY generations (of another model, or not yet retired) and nodes
+     * other than this one that reported reading it within freshSeconds.
+     */
+    public List<String> dependentsOf(String table, String exceptNode, long freshSeconds) {
+        jdbcTemplate.update("DELETE FROM vector_reader WHERE seen_at < now() - make_interval(days => 1)");
+        return jdbcTemplate.queryForList("""
+                SELECT 'generation for ' || embedding_model FROM vector_generation WHERE table_name = ? AND state = 'READY'
+                UNION ALL
+                SELECT 'node ' || node || ' (' || embedding_model || ')' FROM vector_reader
+                WHERE table_name = ? AND node <> ? AND seen_at > now() - make_interval(secs => ?)
+                """, String.class, table, table, exceptNode, freshSeconds);
+    }
+
+    // --- Source data ---
+
+    /** The database clock, moved back by a margin for the nodes' clocks: the start of a catch-up window. */
+    public Timestamp catchUpStart() {
+        return jdbcTemplate.queryForObject("SELECT now() - make_interval(secs => ?)", Timestamp.class, CLOCK_MARGIN_SECONDS);
+    }
+
+    /** Units of work of a bulk pass: recipes or sessions to rebuild plus chunks to carry over. */
+    public long countUnits(String collection, String previous) {
+        Long count = RECIPES.equals(collection)
+                ? jdbcTemplate.queryForObject("SELECT (SELECT count(*) FROM stored_recipe WHERE document IS NOT NULL) + "
+                        + "(SELECT count(*) FROM " + previous + " v WHERE " + recipeCarryOver() + ")", Long.class)
+                : jdbcTemplate.queryForObject("SELECT (SELECT count(*) FROM cooking_session s WHERE " + rebuildableSession(previous) + ") + "
+                        + "(SELECT count(*) FROM " + previous + " v WHERE " + memoryCarryOver() + ")", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public List<RecipeSource> recipesWithDocument(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT id, url, title, diet, document FROM stored_recipe WHERE document IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new RecipeSource(rs.getLong("id"), rs.getString("url"), rs.getString("title"), rs.getString("diet"),
+                        rs.getString("document")),
+                afterId, limit);
+    }
+
+    /** Sessions with memory in the previous table and messages to rebuild it from. */
+    public List<Long> rebuildableSessions(String previous, long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT s.id FROM cooking_session s WHERE s.id > ? AND " + rebuildableSession(previous)
+                + " ORDER BY s.id LIMIT ?", Long.class, afterId, limit);
+    }
+
+    /**
+     * Chunks of the previous table that have no source to rebuild from (recipes stored before documents
+     * were kept, archived sessions), by id after afterId ("" for the first page).
+     */
+    public List<Document> carryOver(String collection, String previous, String afterId, int limit) {
+        String condition = RECIPES.equals(collection) ? recipeCarryOver() : memoryCarryOver();
+        return jdbcTemplate.query("SELECT id::text AS id, content, metadata FROM " + previous + " v WHERE "
+                        + condition + " AND v.id > ?::uuid ORDER BY v.id LIMIT ?",
+                (rs, rowNum) -> Document.builder()
+                        .id(rs.getString("id"))
+                        .text(rs.getString("content"))
+                        .metadata(fromJson(rs.getString("metadata")))
+                        .build(),
+                afterId.isEmpty() ? FIRST_UUID : afterId, limit);
+    }
+
+    public List<RecipeSource> recipesChangedSince(Timestamp since) {
+        return jdbcTemplate.query("SELECT id, url, title, diet, document FROM stored_recipe WHERE document IS NOT NULL AND scanned_at >= ?",
+                (rs, rowNum) -> new RecipeSource(rs.getLong("id"), rs.getString("url"), rs.getString("title"), rs.getString("diet"),
+                        rs.getString("document")),
+                since);
+    }
+
+    /** Sessions with messages since then whose memory is in either table; a session in neither has no memory yet. */
+    public List<Long> sessionsChangedSince(String previous, String table, Timestamp since) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT m.session_id FROM chat_message m WHERE m.timestamp >= ? AND ("
+                + storedSession(previous, "m.session_id") + " OR " + storedSession(table, "m.session_id") + ")", Long.class, since);
+    }
+
+    /** Deletes chunks of the table whose recipe or session no longer exists; returns the number deleted. */
+    public int deleteRemoved(String collection, String table) {
+        return RECIPES.equals(collection)
+                ? jdbcTemplate.update("DELETE FROM " + table + " v WHERE NOT EXISTS (SELECT 1 FROM stored_recipe r WHERE r.url = v.metadata ->> 'url')")
+                : jdbcTemplate.update("DELETE FROM " + table + " v WHERE v.metadata ->> 'sessionId' IS NOT NULL "
+                        + "AND NOT EXISTS (SELECT 1 FROM cooking_session s WHERE s.id::text = v.metadata ->> 'sessionId')");
+    }
+
+    // Recipes stored before their document was kept
+    private static String recipeCarryOver() {
+        return "v.metadata ->> 'url' IN (SELECT url FROM stored_recipe WHERE document IS NULL)";
+    }
+
+    private static String rebuildableSession(String previous) {
+        return "EXISTS (SELECT 1 FROM chat_message m WHERE m.session_id = s.id) AND " + storedSession(previous, "s.id");
+    }
+
+    // Memory chunks whose messages are gone from chat_message (archived sessions)
+    private static String memoryCarryOver() {
+        return "NOT EXISTS (SELECT 1 FROM chat_message m WHERE m.session_id::text = v.metadata ->> 'sessionId')";
+    }
+
+    private static String storedSession(String table, String sessionId) {
+        return "EXISTS (SELECT 1 FROM " + table + " w WHERE w.metadata::jsonb @> jsonb_build_object('sessionId', " + sessionId + "))";
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        if (json == null) return new LinkedHashMap<>();
+        try {
+            return objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not parse document metadata", e);
+        }
+    }
+}
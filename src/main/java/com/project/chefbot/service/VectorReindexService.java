@@ -0,0 +1,402 @@
+package com.project.chefbot.service;
+
+import com.project.chefbot.config.VectorStoreConfig;
+import com.project.chefbot.etl.KnowledgeBaseService;
+import com.project.chefbot.model.ChatMessage;
+import com.project.chefbot.model.CookingSession;
+import com.project.chefbot.repository.ChatMessageRepository;
+import com.project.chefbot.repository.CookingSessionRepository;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blue/green rebuild of a vector collection (recipes or memory) after a change of embedding model, chunk
+ * size or dimensions, while chat keeps reading the current table. The job writes a new generation table:
+ * recipes are re-split from the document kept in stored_recipe, conversations from chat_message; chunks
+ * without such a source (recipes stored before documents were kept, archived sessions) are re-embedded as
+ * they are. It pauses while interactive chat calls are queueing and is paced to max-chunks-per-second.
+ *
+ * Writes that reach the old table during the build are caught up from stored_recipe.scanned_at and
+ * chat_message.timestamp. The new table then gets its indexes, is marked READY and every node whose
+ * embedding model and dimensions match switches its store to it (this one at once, the others on their
+ * next sync); a last catch-up covers the nodes that were still writing to the old table. A model or
+ * dimension change is run from a node started with the new settings and kept out of traffic; nodes with
+ * the old settings keep the old table until they are redeployed, so dropPrevious only drops it once no
+ * READY generation selects it and no node reported reading it (vector_reader) in the last few syncs.
+ */
+@Service
+@Profile("!loadtest")
+public class VectorReindexService {
+
+    static final String RECIPES = VectorGenerations.RECIPES;
+    static final String MEMORY = "memory";
+
+    private static final long STALE_BUILD_MINUTES = 15;
+
+    private static final class Job {
+        final String collection;
+        final String table;
+        final String previous;
+        final boolean dropPrevious;
+        final long startedAt = System.currentTimeMillis();
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong chunks = new AtomicLong();
+        final AtomicLong pausedMs = new AtomicLong();
+        volatile String phase = "building";
+        volatile String error;
+        volatile boolean cancelled;
+        long lastBatchAt;
+
+        Job(String collection, String table, String previous, boolean dropPrevious) {
+            this.collection = collection;
+            this.table = table;
+            this.previous = previous;
+            this.dropPrevious = dropPrevious;
+        }
+
+        boolean active() {
+            return !phase.equals("done") && !phase.equals("failed");
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long elapsed = System.currentTimeMillis() - startedAt;
+            map.put("collection", collection);
+            map.put("table", table);
+            map.put("previousTable", previous);
+            map.put("phase", phase);
+            map.put("done", done.get());
+            map.put("total", total.get());
+            map.put("chunks", chunks.get());
+            map.put("elapsedMs", elapsed);
+            map.put("pausedForTrafficMs", pausedMs.get());
+            long remaining = total.get() - done.get();
+            map.put("etaSeconds", done.get() == 0 || remaining <= 0 ? null : elapsed * remaining / done.get() / 1000);
+            map.put("error", error);
+            return map;
+        }
+    }
+
+    private final VectorGenerations generations;
+    private final Map<String, QuantizedPgVectorStore> stores = new LinkedHashMap<>();
+    private final KnowledgeBaseService kbService;
+    private final ConversationVectorService conversationService;
+    private final CookingSessionRepository sessionRepo;
+    private final ChatMessageRepository messageRepo;
+    private final LlmScheduler llmScheduler;
+    private final String embeddingModel;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // The hostname keeps replicas restored from one checkpoint apart in vector_reader
+    private final String node = System.getenv().getOrDefault("HOSTNAME", "node") + "-" + UUID.randomUUID();
+    private Executor runner = task -> Thread.ofVirtual().name("reindex").start(task);
+
+    @Value("${chefbot.vector.chunk-size:800}")
+    private int chunkSize;
+
+    @Value("${chefbot.reindex.batch-size:32}")
+    private int batchSize;
+
+    @Value("${chefbot.reindex.max-chunks-per-second:20}")
+    private int maxChunksPerSecond;
+
+    @Value("${chefbot.reindex.busy-pause-ms:2000}")
+    private long busyPauseMillis;
+
+    @Value("${chefbot.reindex.switch-grace-ms:15000}")
+    private long switchGraceMillis;
+
+    @Value("${chefbot.reindex.sync-ms:5000}")
+    private long syncMillis;
+
+    // Well under STALE_BUILD_MINUTES: a build paused for chat or inside a long index build must not look abandoned
+    @Value("${chefbot.reindex.heartbeat-ms:60000}")
+    private long heartbeatMillis;
+
+    public VectorReindexService(VectorGenerations generations,
+                                @Qualifier(VectorStoreConfig.RECIPES) QuantizedPgVectorStore recipeStore,
+                                @Qualifier(VectorStoreConfig.MEMORY) QuantizedPgVectorStore memoryStore,
+                                KnowledgeBaseService kbService,
+                                ConversationVectorService conversationService,
+                                CookingSessionRepository sessionRepo,
+                                ChatMessageRepository messageRepo,
+                                LlmScheduler llmScheduler,
+                                Environment env) {
+        this.generations = generations;
+        this.stores.put(RECIPES, recipeStore);
+        this.stores.put(MEMORY, memoryStore);
+        this.kbService = kbService;
+        this.conversationService = conversationService;
+        this.sessionRepo = sessionRepo;
+        this.messageRepo = messageRepo;
+        this.llmScheduler = llmScheduler;
+        this.embeddingModel = VectorStoreConfig.embeddingModelTag(env);
+    }
+
+    /** The configured table name of a generation table, e.g. recipe_vectors for recipe_vectors_g1760000000. */
+    public static String baseTable(String table) {
+        return table.replaceFirst("_g\\d+$", "");
+    }
+
+    static String generationTable(String current, long epochSeconds) {
+        return baseTable(current) + "_g" + epochSeconds;
+    }
+
+    /** Starts a rebuild in the background; at most one per collection across all nodes. */
+    public synchronized Map<String, Object> start(String collection, boolean dropPrevious) {
+        QuantizedPgVectorStore store = stores.get(collection);
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown collection " + collection + " (expected " + stores.keySet() + ")");
+        }
+        Job current = jobs.get(collection);
+        if (current != null && current.active()) {
+            throw new IllegalStateException("A rebuild of " + collection + " is already running on this node");
+        }
+        // A node that died mid-build stops updating its row; its table is dropped so a new build can start
+        for (String stale : generations.abandonStale(collection, STALE_BUILD_MINUTES)) {
+            System.out.println("[Reindex] Abandoned stale build " + stale);
+        }
+
+        String previous = store.getSettings().table();
+        String table = generationTable(previous, Instant.now().getEpochSecond());
+        generations.insert(collection, table, previous, embeddingModel, store.getSettings().dimensions(), chunkSize);
+
+        Job job = new Job(collection, table, previous, dropPrevious);
+        jobs.put(collection, job);
+        System.out.println("[Reindex] " + collection + ": building " + table + " from " + previous + " (" + embeddingModel + ")");
+        runner.execute(() -> run(job, store));
+        return job.toMap();
+    }
+
+    public boolean cancel(String collection) {
+        Job job = jobs.get(collection);
+        if (job == null || !job.active()) return false;
+        job.cancelled = true;
+        return true;
+    }
+
+    /** Follows switches made by a rebuild on another node and reports the table this node reads. */
+    @Scheduled(initialDelayString = "${chefbot.reindex.sync-ms:5000}", fixedDelayString = "${chefbot.reindex.sync-ms:5000}")
+    public void sync() {
+        for (Map.Entry<String, QuantizedPgVectorStore> entry : stores.entrySet()) {
+            QuantizedPgVectorStore store = entry.getValue();
+            try {
+                String active = generations.activeTable(entry.getKey(), embeddingModel, store.getSettings().dimensions());
+                if (active != null && !active.equals(store.getSettings().table())) {
+                    System.out.println("[Reindex] " + entry.getKey() + ": switching reads from " + store.getSettings().table() + " to " + active);
+                    store.switchTable(active);
+                }
+                generations.registerReader(node, entry.getKey(), store.getSettings().table(), embeddingModel);
+            } catch (Exception e) {
+                System.err.println("[Reindex] Sync of " + entry.getKey() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> local = new LinkedHashMap<>();
+        stores.forEach((collection, store) -> local.put(collection, store.getSettings().table()));
+        stats.put("activeTables", local);
+        Map<String, Object> running = new LinkedHashMap<>();
+        jobs.forEach((collection, job) -> running.put(collection, job.toMap()));
+        stats.put("jobs", running);
+        stats.put("generations", generations.recent(20));
+        return stats;
+    }
+
+    private void run(Job job, QuantizedPgVectorStore live) {
+        QuantizedPgVectorStore green = live.withTable(job.table);
+        Thread heartbeat = Thread.ofVirtual().name("reindex-heartbeat").start(() -> heartbeat(job));
+        boolean switched = false;
+        try {
+            Timestamp since = generations.catchUpStart();
+            green.createTable();
+            job.total.set(generations.countUnits(job.collection, job.previous));
+            updateProgress(job);
+            if (job.collection.equals(RECIPES)) buildRecipes(job, green);
+            else buildMemory(job, green);
+
+            // Writes that went to the old table during the bulk pass; indexes are built once, afterwards
+            Timestamp next = generations.catchUpStart();
+            catchUp(job, green, since);
+            job.phase = "indexing";
+            green.createIndexes();
+            since = next;
+            next = generations.catchUpStart();
+            catchUp(job, green, since);
+
+            job.phase = "switching";
+            generations.markReady(job.table);
+            live.switchTable(job.table);
+            switched = true;
+            System.out.println("[Reindex] " + job.collection + ": reads switched to " + job.table);
+            // Other nodes switch on their next sync; then nothing writes to the old table any more
+            Thread.sleep(switchGraceMillis);
+            catchUp(job, green, next);
+
+            generations.retire(job.previous, embeddingModel, live.getSettings().dimensions());
+            String outcome = job.chunks.get() + " chunks in " + (System.currentTimeMillis() - job.startedAt) / 1000 + "s";
+            if (job.dropPrevious) outcome += dropPrevious(job);
+            job.phase = "done";
+            generations.setMessage(job.table, outcome);
+            System.out.println("[Reindex] " + job.collection + ": done, " + job.toMap());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            job.error = job.cancelled ? "cancelled" : String.valueOf(e.getMessage());
+            job.phase = "failed";
+            System.err.println("[Reindex] " + job.collection + " failed: " + job.error);
+            try {
+                if (switched) {
+                    // Already serving from the new table: keep it, only the last catch-up is incomplete
+                    generations.setMessage(job.table, "final catch-up failed: " + job.error);
+                } else {
+                    generations.markFailed(job.table, job.error);
+                    generations.dropTable(job.table);
+                }
+            } catch (Exception cleanup) {
+                System.err.println("[Reindex] Cleanup of " + job.table + " failed: " + cleanup.getMessage());
+            }
+        } finally {
+            heartbeat.interrupt();
+        }
+    }
+
+    /** Touches the generation row while the job runs, so no node abandons it as stale. */
+    private void heartbeat(Job job) {
+        while (true) {
+            try {
+                Thread.sleep(heartbeatMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                updateProgress(job);
+            } catch (Exception e) {
+                System.err.println("[Reindex] Heartbeat of " + job.table + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Only once nothing selects the old table: a READY generation of another model, or a node that has not switched
+    private String dropPrevious(Job job) {
+        List<String> dependents = generations.dependentsOf(job.previous, node, Math.max(60, syncMillis * 6 / 1000));
+        if (!dependents.isEmpty()) {
+            System.out.println("[Reindex] " + job.collection + ": keeping " + job.previous + ", still used by " + dependents);
+            return ", kept " + job.previous + " (still used by " + String.join(", ", dependents) + ")";
+        }
+        generations.dropTable(job.previous);
+        return ", dropped " + job.previous;
+    }
+
+    private void buildRecipes(Job job, QuantizedPgVectorStore green) throws InterruptedException {
+        long afterId = 0;
+        while (true) {
+            List<VectorGenerations.RecipeSource> recipes = generations.recipesWithDocument(afterId, batchSize);
+            if (recipes.isEmpty()) break;
+            write(job, green, recipeChunks(recipes), recipes.size());
+            afterId = recipes.get(recipes.size() - 1).id();
+        }
+        carryOver(job, green);
+    }
+
+    private void buildMemory(Job job, QuantizedPgVectorStore green) throws InterruptedException {
+        long afterId = 0;
+        while (true) {
+            List<Long> sessionIds = generations.rebuildableSessions(job.previous, afterId, batchSize);
+            if (sessionIds.isEmpty()) break;
+            List<Document> documents = new ArrayList<>();
+            for (Long sessionId : sessionIds) documents.addAll(sessionChunks(sessionId));
+            write(job, green, documents, sessionIds.size());
+            afterId = sessionIds.get(sessionIds.size() - 1);
+        }
+        carryOver(job, green);
+    }
+
+    /** Re-embeds chunks of the old table unchanged, keeping their ids and metadata. */
+    private void carryOver(Job job, QuantizedPgVectorStore green) throws InterruptedException {
+        String afterId = "";
+        while (true) {
+            List<Document> documents = generations.carryOver(job.collection, job.previous, afterId, batchSize);
+            if (documents.isEmpty()) break;
+            write(job, green, documents, documents.size());
+            afterId = documents.get(documents.size() - 1).getId();
+        }
+    }
+
+    private void catchUp(Job job, QuantizedPgVectorStore green, Timestamp since) throws InterruptedException {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        if (job.collection.equals(RECIPES)) {
+            List<VectorGenerations.RecipeSource> recipes = generations.recipesChangedSince(since);
+            for (int i = 0; i < recipes.size(); i += batchSize) {
+                List<VectorGenerations.RecipeSource> batch = recipes.subList(i, Math.min(recipes.size(), i + batchSize));
+                green.delete(b.in("url", batch.stream().map(VectorGenerations.RecipeSource::url).toArray()).build());
+                write(job, green, recipeChunks(batch), 0);
+            }
+        } else {
+            for (Long sessionId : generations.sessionsChangedSince(job.previous, job.table, since)) {
+                green.delete(b.eq("sessionId", sessionId).build());
+                write(job, green, sessionChunks(sessionId), 0);
+            }
+        }
+        generations.deleteRemoved(job.collection, job.table);
+    }
+
+    private void write(Job job, QuantizedPgVectorStore green, List<Document> documents, int units) throws InterruptedException {
+        throttle(job, documents.size());
+        if (!documents.isEmpty()) green.add(documents);
+        job.done.addAndGet(units);
+        job.chunks.addAndGet(documents.size());
+        updateProgress(job);
+    }
+
+    // Live traffic first: wait while interactive chat calls are queueing, then pace to max-chunks-per-second
+    private void throttle(Job job, int chunks) throws InterruptedException {
+        while (llmScheduler.hasWaiters(ChatRequestClass.INTERACTIVE)) {
+            if (job.cancelled) throw new InterruptedException("cancelled");
+            Thread.sleep(busyPauseMillis);
+            job.pausedMs.addAndGet(busyPauseMillis);
+        }
+        if (job.cancelled) throw new InterruptedException("cancelled");
+        long minInterval = chunks * 1000L / Math.max(1, maxChunksPerSecond);
+        long wait = job.lastBatchAt + minInterval - System.currentTimeMillis();
+        if (wait > 0) Thread.sleep(wait);
+        job.lastBatchAt = System.currentTimeMillis();
+    }
+
+    private void updateProgress(Job job) {
+        generations.updateProgress(job.table, job.done.get(), job.total.get());
+    }
+
+    private List<Document> recipeChunks(List<VectorGenerations.RecipeSource> recipes) {
+        List<Document> documents = new ArrayList<>();
+        for (VectorGenerations.RecipeSource recipe : recipes) {
+            documents.addAll(kbService.chunks(recipe.url(), recipe.title(), recipe.diet(), recipe.document()));
+        }
+        return documents;
+    }
+
+    private List<Document> sessionChunks(Long sessionId) {
+        CookingSession session = sessionRepo.findById(sessionId).orElse(null);
+        List<ChatMessage> messages = messageRepo.findBySessionIdOrderByTimestampAsc(sessionId);
+        if (session == null || messages.isEmpty()) return List.of();
+        return conversationService.toDocuments(session, messages);
+    }
+}
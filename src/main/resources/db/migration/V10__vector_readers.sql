@@ -0,0 +1,12 @@
+-- The vector table each node reads per collection, refreshed on every sync (VectorReindexService). A rebuild
+-- keeps the previous table while a recently seen node, e.g. one still on the old embedding model, reads it.
+CREATE TABLE IF NOT EXISTS vector_reader (
+    node            VARCHAR(255) NOT NULL,
+    collection      VARCHAR(32)  NOT NULL,
+    table_name      VARCHAR(63)  NOT NULL,
+    embedding_model VARCHAR(255) NOT NULL,
+    seen_at         TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (node, collection)
+);
+
+CREATE INDEX IF NOT EXISTS idx_vector_reader_table ON vector_reader (table_name, seen_at);
@@ -0,0 +1,11 @@
+-- Recipes without any words in their ingredients and instructions were indexed with an all-max MinHash
+-- signature, which put every one of them in the same LSH buckets as a duplicate of the others. They are no
+-- longer indexed (RecipeDeduplicator); drop the rows written before.
+DELETE FROM recipe_lsh_band
+WHERE recipe_id IN (
+    SELECT recipe_id FROM recipe_minhash
+    WHERE signature = decode(repeat('7fffffffffffffff', length(signature) / 8), 'hex')
+);
+
+DELETE FROM recipe_minhash
+WHERE signature = decode(repeat('7fffffffffffffff', length(signature) / 8), 'hex');
@@ -0,0 +1,48 @@
+-- Schema as previously generated by spring.jpa.hibernate.ddl-auto=update.
+-- Idempotent so it also applies cleanly to databases created that way (baseline-on-migrate, version 0).
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255),
+    password VARCHAR(255),
+    role     VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS cooking_session (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_name         VARCHAR(255),
+    diet_type            VARCHAR(255),
+    excluded_ingredients VARCHAR(255),
+    chef_personality     VARCHAR(255),
+    created_at           TIMESTAMP(6) NOT NULL,
+    user_id              BIGINT REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS chat_message (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    content    TEXT,
+    sender     VARCHAR(255),
+    timestamp  TIMESTAMP(6),
+    session_id BIGINT REFERENCES cooking_session (id)
+);
+
+-- Added after the first releases; older ddl-auto databases may not have it yet
+ALTER TABLE chat_message ADD COLUMN IF NOT EXISTS content_html TEXT;
+
+CREATE TABLE IF NOT EXISTS stored_recipe (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title      VARCHAR(255),
+    diet       VARCHAR(255),
+    url        VARCHAR(1000),
+    scanned_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS chat_session_archive (
+    session_id       BIGINT PRIMARY KEY,
+    codec            VARCHAR(255) NOT NULL,
+    payload          BYTEA        NOT NULL,
+    message_count    INTEGER      NOT NULL,
+    raw_bytes        BIGINT       NOT NULL,
+    compressed_bytes BIGINT       NOT NULL,
+    archived_at      TIMESTAMP(6)
+);
@@ -0,0 +1,16 @@
+-- One index per hot repository query.
+
+-- ChatMessageRepository keyset pages (findBySessionIdAndIdGreaterThan..., findBySessionIdOrderByIdDesc)
+CREATE INDEX IF NOT EXISTS idx_chat_message_session_id ON chat_message (session_id, id);
+
+-- findBySessionIdOrderByTimestampAsc, and the per-session NOT EXISTS in the archive candidate query
+CREATE INDEX IF NOT EXISTS idx_chat_message_session_timestamp ON chat_message (session_id, timestamp);
+
+-- CookingSessionRepository.findByUserId (sidebar, newest first)
+CREATE INDEX IF NOT EXISTS idx_cooking_session_user_created ON cooking_session (user_id, created_at DESC);
+
+-- StoredRecipeRepository.findByUrl (duplicate check on every scraped URL)
+CREATE INDEX IF NOT EXISTS idx_stored_recipe_url ON stored_recipe (url);
+
+-- UserRepository.findByUsername (every authenticated request)
+CREATE UNIQUE INDEX IF NOT EXISTS idx_users_username ON users (username);
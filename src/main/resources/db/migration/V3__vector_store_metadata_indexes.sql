@@ -0,0 +1,26 @@
+-- Metadata filters on the pgvector store.
+-- The table layout matches what PgVectorStore creates with initialize-schema=true (both use IF NOT EXISTS),
+-- so the indexes can be created whichever runs first.
+
+CREATE EXTENSION IF NOT EXISTS vector;
+CREATE EXTENSION IF NOT EXISTS hstore;
+CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
+
+CREATE TABLE IF NOT EXISTS vector_store (
+    id        UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    content   TEXT,
+    metadata  JSON,
+    embedding VECTOR(768)
+);
+
+-- PgVectorStore turns filter expressions (userId == '1', sessionId == 5, url == '...') into
+-- "metadata::jsonb @@ '<jsonpath>'", which a jsonb_path_ops GIN index on the same expression serves.
+CREATE INDEX IF NOT EXISTS idx_vector_store_metadata_path ON vector_store USING GIN ((metadata::jsonb) jsonb_path_ops);
+
+-- Direct lookups by key for the document types that carry them (memory per user/session, recipes per URL)
+CREATE INDEX IF NOT EXISTS idx_vector_store_user_id ON vector_store ((metadata ->> 'userId'))
+    WHERE metadata ->> 'userId' IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_vector_store_session_id ON vector_store ((metadata ->> 'sessionId'))
+    WHERE metadata ->> 'sessionId' IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_vector_store_recipe_url ON vector_store ((metadata ->> 'url'))
+    WHERE metadata ->> 'type' = 'web-recipe';
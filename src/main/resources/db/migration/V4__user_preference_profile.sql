@@ -0,0 +1,12 @@
+-- Distilled per-user preferences (PreferenceProfileService), injected into the system prompt instead of
+-- retrieving raw transcript chunks on every turn.
+CREATE TABLE IF NOT EXISTS user_preference_profile (
+    user_id         BIGINT PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    liked_cuisines  TEXT,
+    dislikes        TEXT,
+    skill_level     VARCHAR(32),
+    equipment       TEXT,
+    rendered        TEXT,
+    last_message_id BIGINT       NOT NULL DEFAULT 0,
+    updated_at      TIMESTAMP(6)
+);
@@ -0,0 +1,15 @@
+-- Near-duplicate detection for ingested recipes (RecipeDeduplicator): one MinHash signature per stored
+-- recipe and its LSH band keys. Two recipes sharing any (band, bucket) pair are compared by signature.
+CREATE TABLE IF NOT EXISTS recipe_minhash (
+    recipe_id BIGINT PRIMARY KEY REFERENCES stored_recipe (id) ON DELETE CASCADE,
+    signature BYTEA NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS recipe_lsh_band (
+    band      SMALLINT NOT NULL,
+    bucket    BIGINT   NOT NULL,
+    recipe_id BIGINT   NOT NULL REFERENCES stored_recipe (id) ON DELETE CASCADE,
+    PRIMARY KEY (band, bucket, recipe_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_recipe_lsh_band_recipe ON recipe_lsh_band (recipe_id);
@@ -0,0 +1,29 @@
+-- Sitemap crawl mode (CrawlService): seeds re-read periodically, a persistent frontier of discovered
+-- page URLs, and per-recipe HTTP validators so re-scans are conditional requests.
+CREATE TABLE IF NOT EXISTS crawl_seed (
+    url             VARCHAR(1000) PRIMARY KEY,
+    include_pattern VARCHAR(255),
+    added_at        TIMESTAMP(6) NOT NULL DEFAULT now(),
+    last_read_at    TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS crawl_frontier (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    url           VARCHAR(1000) NOT NULL UNIQUE,
+    seed          VARCHAR(1000),
+    state         VARCHAR(16)   NOT NULL DEFAULT 'PENDING',
+    lastmod       TIMESTAMP(6),
+    attempts      INTEGER       NOT NULL DEFAULT 0,
+    discovered_at TIMESTAMP(6)  NOT NULL DEFAULT now(),
+    visited_at    TIMESTAMP(6)
+);
+
+-- Next pages to visit, oldest discovery first
+CREATE INDEX IF NOT EXISTS idx_crawl_frontier_pending ON crawl_frontier (discovered_at) WHERE state = 'PENDING';
+
+ALTER TABLE stored_recipe ADD COLUMN IF NOT EXISTS etag          VARCHAR(255);
+ALTER TABLE stored_recipe ADD COLUMN IF NOT EXISTS last_modified VARCHAR(64);
+ALTER TABLE stored_recipe ADD COLUMN IF NOT EXISTS content_hash  VARCHAR(64);
+
+-- StoredRecipeRepository.findIdsDueForRefresh (oldest scans first)
+CREATE INDEX IF NOT EXISTS idx_stored_recipe_scanned_at ON stored_recipe (scanned_at);
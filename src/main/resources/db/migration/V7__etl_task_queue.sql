@@ -0,0 +1,22 @@
+-- Work queue for URL ingestion (EtlTaskQueue / EtlWorker). Workers on any node claim PENDING tasks with
+-- FOR UPDATE SKIP LOCKED and hold them under a lease renewed by heartbeats; expired leases are reclaimed.
+CREATE TABLE IF NOT EXISTS etl_task (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    url          VARCHAR(1000) NOT NULL,
+    state        VARCHAR(16)   NOT NULL DEFAULT 'PENDING',
+    attempts     INTEGER       NOT NULL DEFAULT 0,
+    worker       VARCHAR(255),
+    lease_until  TIMESTAMP(6),
+    available_at TIMESTAMP(6)  NOT NULL DEFAULT now(),
+    enqueued_at  TIMESTAMP(6)  NOT NULL DEFAULT now(),
+    finished_at  TIMESTAMP(6),
+    outcome      VARCHAR(32),
+    last_error   VARCHAR(1000)
+);
+
+-- A URL is queued at most once until it is finished
+CREATE UNIQUE INDEX IF NOT EXISTS uq_etl_task_open_url ON etl_task (url) WHERE state IN ('PENDING', 'RUNNING');
+
+-- Claim order, and the reclaim scan for expired leases
+CREATE INDEX IF NOT EXISTS idx_etl_task_pending ON etl_task (available_at, id) WHERE state = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_etl_task_lease ON etl_task (lease_until) WHERE state = 'RUNNING';
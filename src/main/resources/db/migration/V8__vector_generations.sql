@@ -0,0 +1,24 @@
+-- Blue/green rebuilds of the vector collections (VectorReindexService). Each rebuild writes a new table;
+-- nodes read the newest READY generation whose embedding model and dimensions match their own.
+CREATE TABLE IF NOT EXISTS vector_generation (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    collection      VARCHAR(32)  NOT NULL,
+    table_name      VARCHAR(63)  NOT NULL UNIQUE,
+    previous_table  VARCHAR(63),
+    embedding_model VARCHAR(255) NOT NULL,
+    dimensions      INTEGER      NOT NULL,
+    chunk_size      INTEGER      NOT NULL,
+    state           VARCHAR(16)  NOT NULL DEFAULT 'BUILDING',
+    total           BIGINT       NOT NULL DEFAULT 0,
+    done            BIGINT       NOT NULL DEFAULT 0,
+    message         VARCHAR(1000),
+    started_at      TIMESTAMP(6) NOT NULL DEFAULT now(),
+    updated_at      TIMESTAMP(6) NOT NULL DEFAULT now(),
+    ready_at        TIMESTAMP(6)
+);
+
+-- One rebuild per collection at a time, across all nodes
+CREATE UNIQUE INDEX IF NOT EXISTS uq_vector_generation_building ON vector_generation (collection) WHERE state = 'BUILDING';
+
+-- The text each recipe was embedded from, so a rebuild can re-split and re-embed it without re-scraping
+ALTER TABLE stored_recipe ADD COLUMN IF NOT EXISTS document TEXT;
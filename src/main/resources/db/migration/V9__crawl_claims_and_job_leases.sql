@@ -0,0 +1,11 @@
+-- Several nodes crawl the same frontier (CrawlService): a page or a due re-check is claimed with
+-- FOR UPDATE SKIP LOCKED under a lease, so each is fetched by one node; an expired lease makes it claimable again.
+ALTER TABLE crawl_frontier ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP(6);
+ALTER TABLE stored_recipe ADD COLUMN IF NOT EXISTS refresh_lease_until TIMESTAMP(6);
+
+-- Scheduled jobs that run on one node at a time (JobLeases): archiving, profile distillation
+CREATE TABLE IF NOT EXISTS job_lease (
+    name        VARCHAR(64)  PRIMARY KEY,
+    owner       VARCHAR(255) NOT NULL,
+    lease_until TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,83 @@
+package com.project.chefbot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class McpConnectionRegistryTests {
+
+    /** A connector whose handshake blocks until released, counting how often it is closed. */
+    private static final class SlowConnector implements Callable<List<ToolCallback>>, AutoCloseable {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger closes = new AtomicInteger();
+
+        @Override
+        public List<ToolCallback> call() throws Exception {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        }
+
+        @Override
+        public void close() {
+            closes.incrementAndGet();
+        }
+    }
+
+    private McpConnectionRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    // Test 1: A handshake that finishes after a disconnect is discarded and closed instead of marked READY
+    @Test
+    void testLateHandshakeDoesNotResurrectClosedServer() throws Exception {
+        SlowConnector connector = new SlowConnector();
+        registry = new McpConnectionRegistry(Map.of("recipes", connector), 50, 60_000);
+
+        registry.connectAll();
+        registry.disconnectAll();
+        assertEquals(1, connector.closes.get());
+
+        connector.release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (connector.closes.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, connector.closes.get());
+        assertFalse(registry.isReady("recipes"));
+        assertEquals("PENDING", registry.getStatus().get("recipes").get("status"));
+    }
+
+    // Test 2: After a reconnect the late handshake leaves the shared connector open for the new attempt
+    @Test
+    void testLateHandshakeAfterReconnect() throws Exception {
+        SlowConnector connector = new SlowConnector();
+        registry = new McpConnectionRegistry(Map.of("recipes", connector), 50, 60_000);
+
+        registry.connectAll();
+        registry.disconnectAll();
+        registry.connectAll();
+        connector.release.countDown();
+        registry.getToolCallbacks();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!registry.isReady("recipes") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(registry.isReady("recipes"));
+        assertEquals(1, connector.closes.get());
+    }
+}
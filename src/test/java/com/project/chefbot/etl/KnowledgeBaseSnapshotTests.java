@@ -0,0 +1,72 @@
+package com.project.chefbot.etl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.chefbot.config.VectorStoreConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnowledgeBaseSnapshotTests {
+
+    private static KnowledgeBaseSnapshotService.Manifest manifest(String model, int dimensions, List<KnowledgeBaseSnapshotService.Table> tables) {
+        return new KnowledgeBaseSnapshotService.Manifest(KnowledgeBaseSnapshotService.FORMAT, KnowledgeBaseSnapshotService.VERSION,
+                "2026-01-01T00:00:00Z", model, dimensions, tables);
+    }
+
+    private static final List<KnowledgeBaseSnapshotService.Table> TABLES = List.of(
+            new KnowledgeBaseSnapshotService.Table("stored_recipe", List.of("id", "title", "diet", "url", "scanned_at"), 2),
+            new KnowledgeBaseSnapshotService.Table("vectors", List.of("id", "content", "metadata", "embedding"), 6));
+
+    // Test 1: The embedding model tag includes the backend, and the explicit property wins
+    @Test
+    void testEmbeddingModelTag() {
+        MockEnvironment env = new MockEnvironment().withProperty("spring.ai.ollama.embedding.options.model", "nomic-embed-text");
+        assertEquals("ollama:nomic-embed-text", VectorStoreConfig.embeddingModelTag(env));
+
+        env.setProperty("chefbot.embedding.backend", "ONNX");
+        env.setProperty("chefbot.embedding.onnx.model-uri", "file:/models/nomic.onnx");
+        assertEquals("onnx:file:/models/nomic.onnx", VectorStoreConfig.embeddingModelTag(env));
+
+        env.setProperty("chefbot.embedding.model-tag", "shared-nomic");
+        assertEquals("shared-nomic", VectorStoreConfig.embeddingModelTag(env));
+    }
+
+    // Test 2: Only a snapshot with the same model, dimensions and known tables/columns is accepted
+    @Test
+    void testIncompatibleSnapshotsAreRefused() {
+        assertTrue(KnowledgeBaseSnapshotService.incompatibilities(manifest("ollama:nomic-embed-text", 768, TABLES), "ollama:nomic-embed-text", 768).isEmpty());
+
+        List<String> problems = KnowledgeBaseSnapshotService.incompatibilities(manifest("onnx:model.onnx", 384, TABLES), "ollama:nomic-embed-text", 768);
+        assertEquals(2, problems.size());
+
+        List<KnowledgeBaseSnapshotService.Table> hostile = List.of(
+                new KnowledgeBaseSnapshotService.Table("users", List.of("id", "password"), 1),
+                new KnowledgeBaseSnapshotService.Table("vectors", List.of("id; DROP TABLE stored_recipe"), 1));
+        assertEquals(2, KnowledgeBaseSnapshotService.incompatibilities(manifest("ollama:nomic-embed-text", 768, hostile), "ollama:nomic-embed-text", 768).size());
+
+        KnowledgeBaseSnapshotService.Manifest otherFormat = new KnowledgeBaseSnapshotService.Manifest("something-else", 1, null, null, 0, null);
+        assertEquals(1, KnowledgeBaseSnapshotService.incompatibilities(otherFormat, "ollama:nomic-embed-text", 768).size());
+    }
+
+    // Test 3: The manifest survives the JSON round trip
+    @Test
+    void testManifestRoundTrip() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        KnowledgeBaseSnapshotService.Manifest original = manifest("ollama:nomic-embed-text", 768, TABLES);
+
+        assertEquals(original, mapper.readValue(mapper.writeValueAsBytes(original), KnowledgeBaseSnapshotService.Manifest.class));
+    }
+
+    // Test 4: Index definitions of partitioned tables are recreated for the whole table
+    @Test
+    void testRebuildableIndexDefinition() {
+        assertEquals("CREATE INDEX memory_vectors_metadata_gin ON public.memory_vectors USING gin (((metadata)::jsonb) jsonb_path_ops)",
+                KnowledgeBaseSnapshotService.rebuildable(
+                        "CREATE INDEX memory_vectors_metadata_gin ON ONLY public.memory_vectors USING gin (((metadata)::jsonb) jsonb_path_ops)"));
+        assertEquals("CREATE INDEX idx_recipe_lsh_band_recipe ON public.recipe_lsh_band USING btree (recipe_id)",
+                KnowledgeBaseSnapshotService.rebuildable("CREATE INDEX idx_recipe_lsh_band_recipe ON public.recipe_lsh_band USING btree (recipe_id)"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.chefbot.etl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHasherTests {
+
+    private final MinHasher hasher = new MinHasher(16, 8, 3);
+
+    private static final ExtractedRecipe CAKE = new ExtractedRecipe("Chocolate Cake",
+            "- 200g flour\n- 2 eggs\n- 150g sugar\n- 100g dark chocolate\n- 1 tsp baking powder\n",
+            "- Preheat the oven to 180C.\n- Melt the chocolate over a water bath.\n- Whisk the eggs and sugar until pale.\n"
+                    + "- Fold in the flour, baking powder and melted chocolate.\n- Bake for 30 minutes and let it cool.\n",
+            "Vegetarian");
+
+    // Test 1: The same recipe with different formatting, case and accents has the same signature
+    @Test
+    void testFormattingDoesNotChangeSignature() {
+        ExtractedRecipe reformatted = new ExtractedRecipe("CHOCOLATE CAKE!",
+                "• 200G FLOUR\n• 2 Eggs\n• 150g Sugar\n• 100g dark chocolate\n• 1 tsp baking powder",
+                "Preheat the oven to 180C. Melt the chocolate over a water bath! Whisk the eggs and sugar until pale; "
+                        + "fold in the flour, baking powder and melted chocolate. Bake for 30 minutes and let it cool.",
+                "Vegetarian");
+
+        assertEquals(1.0, MinHasher.similarity(hasher.signature(CAKE), hasher.signature(reformatted)));
+        assertEquals("creme brulee a la minute", MinHasher.normalize("Crème Brûlée — à la minute!"));
+    }
+
+    // Test 2: A lightly edited copy shares a band key and stays above the threshold; an unrelated recipe does not
+    @Test
+    void testNearDuplicateIsCandidateUnrelatedIsNot() {
+        ExtractedRecipe edited = new ExtractedRecipe("Chocolate Cake", CAKE.ingredients(),
+                CAKE.instructions().replace("let it cool", "let it cool completely before serving"), "Vegetarian");
+        ExtractedRecipe soup = new ExtractedRecipe("Tomato Soup",
+                "- 1kg tomatoes\n- 1 onion\n- 2 cloves garlic\n- 500ml vegetable stock\n",
+                "- Chop the onion and garlic.\n- Fry them in olive oil until soft.\n- Add the tomatoes and stock and simmer for 20 minutes.\n"
+                        + "- Blend until smooth and season to taste.\n",
+                "Vegan");
+
+        long[] cake = hasher.signature(CAKE);
+        long[] near = hasher.signature(edited);
+        long[] other = hasher.signature(soup);
+
+        assertTrue(MinHasher.similarity(cake, near) >= 0.8, "similarity " + MinHasher.similarity(cake, near));
+        assertTrue(sharesBand(hasher.bandKeys(cake), hasher.bandKeys(near)));
+        assertTrue(MinHasher.similarity(cake, other) < 0.2);
+        assertFalse(sharesBand(hasher.bandKeys(cake), hasher.bandKeys(other)));
+    }
+
+    // Test 3: Signatures survive the database round trip and stay stable across instances
+    @Test
+    void testSignatureIsStableAndEncodable() {
+        long[] signature = hasher.signature(CAKE);
+
+        assertEquals(128, signature.length);
+        assertArrayEquals(signature, new MinHasher(16, 8, 3).signature(CAKE));
+        assertArrayEquals(signature, RecipeDeduplicator.decode(RecipeDeduplicator.encode(signature)));
+        assertEquals(0.0, MinHasher.similarity(signature, new MinHasher(8, 8, 3).signature(CAKE)));
+    }
+
+    // Test 4: Tracking parameters, fragments, case of the host and trailing slashes do not make a new URL
+    @Test
+    void testCanonicalUrl() {
+        assertEquals("https://example.com/recipes/cake?id=5",
+                RecipeDeduplicator.canonicalUrl("HTTPS://Example.COM/recipes/cake/?utm_source=x&id=5&fbclid=abc#comments"));
+        assertEquals("https://example.com/recipes/cake", RecipeDeduplicator.canonicalUrl("https://example.com/recipes/cake?utm_medium=mail"));
+        assertEquals("not a url", RecipeDeduplicator.canonicalUrl("not a url"));
+    }
+
+    // Test 5: Recipes without words have no signature instead of one shared by all of them
+    @Test
+    void testEmptyRecipeHasNoSignature() {
+        assertNull(hasher.signature(new ExtractedRecipe("Mystery", "", "", "Omnivore")));
+        assertNull(hasher.signature(new ExtractedRecipe("Mystery", "- \n- ", "...", "Omnivore")));
+        assertNotNull(hasher.signature(new ExtractedRecipe("Toast", "bread", "", "Vegan")));
+    }
+
+    private static boolean sharesBand(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) return true;
+        }
+        return false;
+    }
+}
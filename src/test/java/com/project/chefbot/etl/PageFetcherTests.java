@@ -0,0 +1,18 @@
+package com.project.chefbot.etl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageFetcherTests {
+
+    // Test 1: The content hash ignores markup, scripts and whitespace, but not the visible text
+    @Test
+    void testContentHashIgnoresMarkup() {
+        String page = "<html><body><h1>Cake</h1><p>Bake   for 30 minutes.</p></body></html>";
+        String restyled = "<html><head><script>var nonce='abc';</script></head><body>\n<h1 class=\"t\">Cake</h1>\n<div>Bake for 30 minutes.</div></body></html>";
+
+        assertEquals(PageFetcher.contentHash(page), PageFetcher.contentHash(restyled));
+        assertNotEquals(PageFetcher.contentHash(page), PageFetcher.contentHash(page.replace("30", "40")));
+    }
+}
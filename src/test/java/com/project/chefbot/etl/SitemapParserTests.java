@@ -0,0 +1,89 @@
+package com.project.chefbot.etl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SitemapParserTests {
+
+    private static SitemapParser.Sitemap parse(String xml, int maxEntries) throws Exception {
+        return SitemapParser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), maxEntries);
+    }
+
+    // Test 1: A urlset yields its pages with lastmod; missing or malformed lastmod is null
+    @Test
+    void testUrlset() throws Exception {
+        SitemapParser.Sitemap sitemap = parse("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <url><loc> https://example.com/recipes/cake </loc><lastmod>2024-05-01</lastmod></url>
+                  <url><loc>https://example.com/recipes/soup</loc></url>
+                  <url><loc>https://example.com/recipes/bread</loc><lastmod>yesterday</lastmod></url>
+                </urlset>
+                """, 100);
+
+        assertTrue(sitemap.sitemaps().isEmpty());
+        assertEquals(3, sitemap.pages().size());
+        assertEquals("https://example.com/recipes/cake", sitemap.pages().get(0).loc());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 0, 0), sitemap.pages().get(0).lastmod());
+        assertNull(sitemap.pages().get(1).lastmod());
+        assertNull(sitemap.pages().get(2).lastmod());
+    }
+
+    // Test 2: A sitemap index yields nested sitemaps, not pages; the entry limit is respected
+    @Test
+    void testIndexAndLimit() throws Exception {
+        SitemapParser.Sitemap index = parse("""
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>https://example.com/sitemap-recipes.xml</loc><lastmod>2024-05-01T10:00:00+00:00</lastmod></sitemap>
+                  <sitemap><loc>https://example.com/sitemap-blog.xml.gz</loc></sitemap>
+                </sitemapindex>
+                """, 100);
+        assertTrue(index.pages().isEmpty());
+        assertEquals(2, index.sitemaps().size());
+
+        StringBuilder xml = new StringBuilder("<urlset>");
+        for (int i = 0; i < 50; i++) xml.append("<url><loc>https://example.com/r/").append(i).append("</loc></url>");
+        assertEquals(10, parse(xml.append("</urlset>").toString(), 10).pages().size());
+    }
+
+    // Test 3: DTDs are not processed, so entity expansion cannot be used against the crawler
+    @Test
+    void testDoctypeIsRejected() {
+        assertThrows(Exception.class, () -> parse("""
+                <?xml version="1.0"?>
+                <!DOCTYPE urlset [<!ENTITY x "boom">]>
+                <urlset><url><loc>https://example.com/&x;</loc></url></urlset>
+                """, 100));
+    }
+
+    // Test 4: Image and video extension locs are media, not pages, and never replace the page URL
+    @Test
+    void testImageExtensionIsIgnored() throws Exception {
+        SitemapParser.Sitemap sitemap = parse("""
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9"
+                        xmlns:image="http://www.google.com/schemas/sitemap-image/1.1"
+                        xmlns:video="http://www.google.com/schemas/sitemap-video/1.1">
+                  <url>
+                    <loc>https://example.com/recipes/lasagna</loc>
+                    <image:image><image:loc>https://cdn.example.com/lasagna.jpg</image:loc></image:image>
+                    <lastmod>2024-05-01</lastmod>
+                  </url>
+                  <url>
+                    <video:video><video:loc>https://cdn.example.com/soup.mp4</video:loc></video:video>
+                    <loc>https://example.com/recipes/soup</loc>
+                  </url>
+                  <url><image:image><image:loc>https://cdn.example.com/orphan.jpg</image:loc></image:image></url>
+                </urlset>
+                """, 100);
+
+        assertEquals(2, sitemap.pages().size());
+        assertEquals("https://example.com/recipes/lasagna", sitemap.pages().get(0).loc());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 0, 0), sitemap.pages().get(0).lastmod());
+        assertEquals("https://example.com/recipes/soup", sitemap.pages().get(1).loc());
+    }
+}
@@ -0,0 +1,84 @@
+package com.project.chefbot.etl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingRecipeParserTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String RECIPE = "{\"title\": \"Chocolate Cake\", \"ingredients\": [\"200g flour\", \"2 eggs\"], "
+            + "\"instructions\": [\"Preheat the oven to 180C.\", \"Bake for 30 minutes.\"], \"diet\": \"Vegetarian\"}";
+
+    private StreamingRecipeParser.State feedInChunks(StreamingRecipeParser parser, String reply, int chunkSize) {
+        StreamingRecipeParser.State state = StreamingRecipeParser.State.PARSING;
+        for (int i = 0; i < reply.length() && state == StreamingRecipeParser.State.PARSING; i += chunkSize) {
+            state = parser.feed(reply.substring(i, Math.min(reply.length(), i + chunkSize)));
+        }
+        return state;
+    }
+
+    // Test 1: A recipe split into tiny chunks (mid-token, mid-string) parses like the whole reply
+    @Test
+    void testChunkedRecipeParses() {
+        StreamingRecipeParser parser = new StreamingRecipeParser(objectMapper);
+
+        assertEquals(StreamingRecipeParser.State.COMPLETE, feedInChunks(parser, RECIPE, 3));
+        ExtractedRecipe recipe = parser.getResult();
+        assertNotNull(recipe);
+        assertEquals("Chocolate Cake", recipe.title());
+        assertEquals("- 200g flour\n- 2 eggs\n", recipe.ingredients());
+        assertEquals("- Preheat the oven to 180C.\n- Bake for 30 minutes.\n", recipe.instructions());
+        assertEquals("Vegetarian", recipe.diet());
+    }
+
+    // Test 2: A null title aborts right away, before the rest of the object is generated
+    @Test
+    void testNullTitleAbortsEarly() {
+        StreamingRecipeParser parser = new StreamingRecipeParser(objectMapper);
+
+        assertEquals(StreamingRecipeParser.State.PARSING, parser.feed("{\"title\": "));
+        assertEquals(StreamingRecipeParser.State.ABORTED, parser.feed("null, \"ingredients\": ["));
+        assertEquals("not a recipe", parser.getAbortReason());
+        assertNull(parser.getResult());
+
+        StreamingRecipeParser quoted = new StreamingRecipeParser(objectMapper);
+        assertEquals(StreamingRecipeParser.State.ABORTED, quoted.feed("{\"title\": \"null\","));
+    }
+
+    // Test 3: Prose instead of JSON, and broken JSON, abort without waiting for the end of the reply
+    @Test
+    void testInvalidOutputAborts() {
+        StreamingRecipeParser prose = new StreamingRecipeParser(objectMapper);
+        assertEquals(StreamingRecipeParser.State.ABORTED,
+                feedInChunks(prose, "I'm sorry, but this page does not seem to contain a recipe. ".repeat(5), 10));
+        assertEquals("no JSON object", prose.getAbortReason());
+
+        StreamingRecipeParser broken = new StreamingRecipeParser(objectMapper);
+        assertEquals(StreamingRecipeParser.State.ABORTED, broken.feed("{\"title\": \"Soup\" \"ingredients\""));
+        assertTrue(broken.getAbortReason().startsWith("invalid JSON"));
+    }
+
+    // Test 4: A short preamble or markdown fence is skipped; trailing text after the object is ignored
+    @Test
+    void testFencedReplyParses() {
+        StreamingRecipeParser parser = new StreamingRecipeParser(objectMapper);
+
+        assertEquals(StreamingRecipeParser.State.COMPLETE, feedInChunks(parser, "Here it is:\n```json\n" + RECIPE + "\n```\nEnjoy!", 7));
+        assertEquals("Chocolate Cake", parser.getResult().title());
+    }
+
+    // Test 5: A truncated reply, or one without a diet, is not a recipe
+    @Test
+    void testIncompleteReplyHasNoResult() {
+        StreamingRecipeParser truncated = new StreamingRecipeParser(objectMapper);
+        assertEquals(StreamingRecipeParser.State.PARSING, truncated.feed(RECIPE.substring(0, RECIPE.length() / 2)));
+        assertNull(truncated.getResult());
+
+        StreamingRecipeParser noDiet = new StreamingRecipeParser(objectMapper);
+        assertEquals(StreamingRecipeParser.State.COMPLETE, noDiet.feed("{\"title\": \"Soup\", \"ingredients\": \"water\"}"));
+        assertNull(noDiet.getResult());
+    }
+}
@@ -0,0 +1,60 @@
+package com.project.chefbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllergenMatcherTests {
+
+    // Test 1: Derivatives of an allergen are matched
+    @Test
+    void testDerivativesAreMatched() {
+        AllergenMatcher matcher = AllergenMatcher.forSession("milk", "Omnivore");
+
+        var matches = matcher.findAllergens("Melt 2 tbsp Butter, then add the whey protein.");
+
+        assertTrue(matches.contains(new AllergenMatcher.Match("milk", "butter")));
+        assertTrue(matches.contains(new AllergenMatcher.Match("milk", "whey")));
+    }
+
+    // Test 2: Word boundaries and plurals
+    @Test
+    void testWordBoundariesAndPlurals() {
+        AllergenMatcher matcher = AllergenMatcher.forSession("eggs", "Omnivore");
+
+        assertTrue(matcher.findAllergens("Roast the eggplant slices").isEmpty());
+        assertFalse(matcher.findAllergens("Whisk 3 eggs").isEmpty());
+    }
+
+    // Test 3: Safe phrases mask only the term they neutralize
+    @Test
+    void testSafePhrases() {
+        AllergenMatcher milk = AllergenMatcher.forSession("dairy", "Omnivore");
+        AllergenMatcher peanut = AllergenMatcher.forSession("peanuts", "Omnivore");
+
+        assertTrue(milk.findAllergens("Stir in the coconut milk and peanut butter").isEmpty());
+        assertFalse(peanut.findAllergens("Stir in the peanut butter").isEmpty());
+    }
+
+    // Test 4: No restrictions never matches, diet conflicts are separate from allergies
+    @Test
+    void testNoRestrictionsAndDiet() {
+        assertTrue(AllergenMatcher.forSession("No restrictions", "Omnivore").isEmpty());
+
+        AllergenMatcher vegetarian = AllergenMatcher.forSession("No restrictions", "Vegetarian");
+        assertTrue(vegetarian.findAllergens("Fry the bacon").isEmpty());
+        assertFalse(vegetarian.findDietConflicts("Fry the bacon").isEmpty());
+    }
+
+    // Test 5: "gluten-free" and "nut-free" restrictions resolve to the allergen and its derivatives
+    @Test
+    void testFreeSuffixRestrictions() {
+        assertEquals(List.of("gluten", "nut"), AllergenMatcher.parseRestrictions("Gluten-free, nut-free!"));
+
+        AllergenMatcher matcher = AllergenMatcher.forSession("gluten-free, nut-free", "Omnivore");
+        assertFalse(matcher.findAllergens("Toss the noodles with crushed walnuts").isEmpty());
+        assertTrue(matcher.findAllergens("Serve with steamed rice").isEmpty());
+    }
+}
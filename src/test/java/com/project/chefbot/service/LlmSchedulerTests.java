@@ -0,0 +1,169 @@
+package com.project.chefbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmSchedulerTests {
+
+    private MockEnvironment env;
+    private LlmScheduler scheduler;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        env = new MockEnvironment()
+                .withProperty("chefbot.llm.concurrency.ollama", "2")
+                .withProperty("chefbot.llm.reserved-for-interactive.ollama", "1")
+                .withProperty("chefbot.llm.max-wait-ms.interactive", "5000")
+                .withProperty("chefbot.llm.max-wait-ms.etl-extraction", "5000")
+                .withProperty("chefbot.llm.max-wait-ms.summarization", "5000");
+        scheduler = new LlmScheduler(env, new ChefMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(scheduler, "bucketCapacity", 2);
+        ReflectionTestUtils.setField(scheduler, "bucketRefillPerMinute", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Future<?> acquireAndRecord(ChatRequestClass requestClass, List<ChatRequestClass> order) {
+        return executor.submit(() -> {
+            try (LlmScheduler.Permit permit = scheduler.acquire("ollama", requestClass)) {
+                order.add(requestClass);
+            }
+        });
+    }
+
+    private void awaitQueued(ChatRequestClass requestClass, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline
+                && !Integer.valueOf(count).equals(scheduler.getStats().get("ollama").get("queued." + requestClass.name()))) {
+            Thread.sleep(5);
+        }
+    }
+
+    // Test 1: Background work never takes the slot reserved for interactive calls
+    @Test
+    void testBackgroundClassesLeaveReservedSlotFree() throws Exception {
+        LlmScheduler.Permit etl = scheduler.acquire("ollama", ChatRequestClass.ETL_EXTRACTION);
+        env.setProperty("chefbot.llm.max-wait-ms.summarization", "50");
+
+        assertThrows(LlmScheduler.SaturatedException.class,
+                () -> scheduler.acquire("ollama", ChatRequestClass.SUMMARIZATION));
+        try (LlmScheduler.Permit chat = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE)) {
+            assertEquals(2, scheduler.getStats().get("ollama").get("inUse"));
+        }
+        etl.close();
+        etl.close();
+        assertEquals(0, scheduler.getStats().get("ollama").get("inUse"), "Closing twice must release only once");
+    }
+
+    // Test 2: A freed slot goes to the most urgent waiter, not the one that waited longest
+    @Test
+    void testWaitersAreServedByPriority() throws Exception {
+        LlmScheduler.Permit first = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE);
+        LlmScheduler.Permit second = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE);
+        List<ChatRequestClass> order = new CopyOnWriteArrayList<>();
+
+        Future<?> etl = acquireAndRecord(ChatRequestClass.ETL_EXTRACTION, order);
+        awaitQueued(ChatRequestClass.ETL_EXTRACTION, 1);
+        Future<?> summary = acquireAndRecord(ChatRequestClass.SUMMARIZATION, order);
+        awaitQueued(ChatRequestClass.SUMMARIZATION, 1);
+        Future<?> chat = acquireAndRecord(ChatRequestClass.INTERACTIVE, order);
+        awaitQueued(ChatRequestClass.INTERACTIVE, 1);
+
+        first.close();
+        chat.get(5, TimeUnit.SECONDS);
+        second.close();
+        summary.get(5, TimeUnit.SECONDS);
+        etl.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(ChatRequestClass.INTERACTIVE, ChatRequestClass.SUMMARIZATION, ChatRequestClass.ETL_EXTRACTION), order);
+        assertEquals(0, scheduler.getStats().get("ollama").get("inUse"));
+    }
+
+    // Test 3: A full class queue rejects immediately and counts as saturated
+    @Test
+    void testFullQueueIsRejected() throws Exception {
+        env.setProperty("chefbot.llm.max-queued.interactive", "1");
+        LlmScheduler.Permit first = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE);
+        LlmScheduler.Permit second = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE);
+        assertFalse(scheduler.isSaturated(ChatRequestClass.INTERACTIVE));
+
+        Future<?> waiting = acquireAndRecord(ChatRequestClass.INTERACTIVE, new CopyOnWriteArrayList<>());
+        awaitQueued(ChatRequestClass.INTERACTIVE, 1);
+
+        assertTrue(scheduler.isSaturated(ChatRequestClass.INTERACTIVE));
+        assertThrows(LlmScheduler.SaturatedException.class, () -> scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE));
+
+        first.close();
+        waiting.get(5, TimeUnit.SECONDS);
+        second.close();
+        assertFalse(scheduler.isSaturated(ChatRequestClass.INTERACTIVE));
+    }
+
+    // Test 4: A waiter that times out leaves the queue and does not leak a slot
+    @Test
+    void testTimedOutWaiterLeavesQueue() {
+        env.setProperty("chefbot.llm.max-wait-ms.interactive", "50");
+        LlmScheduler.Permit first = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE);
+        LlmScheduler.Permit second = scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE);
+
+        assertThrows(LlmScheduler.SaturatedException.class, () -> scheduler.acquire("ollama", ChatRequestClass.INTERACTIVE));
+        assertEquals(0, scheduler.getStats().get("ollama").get("queued.INTERACTIVE"));
+
+        first.close();
+        second.close();
+        assertEquals(0, scheduler.getStats().get("ollama").get("inUse"));
+    }
+
+    // Test 5: The per-user bucket allows a burst, then rejects with a retry hint; users are independent
+    @Test
+    void testUserTokenBucket() {
+        assertTrue(scheduler.admitUser(1L).allowed());
+        assertTrue(scheduler.admitUser(1L).allowed());
+
+        LlmScheduler.Admission rejected = scheduler.admitUser(1L);
+        assertFalse(rejected.allowed());
+        assertTrue(rejected.retryAfterSeconds() > 0 && rejected.retryAfterSeconds() <= 60);
+
+        assertTrue(scheduler.admitUser(2L).allowed());
+        assertTrue(scheduler.admitUser(null).allowed());
+    }
+
+    // Test 6: Turns that run as TOOL_HEAVY saturate and pause background work like INTERACTIVE ones
+    @Test
+    void testToolHeavyTurnsCountAsChatTraffic() throws Exception {
+        env.setProperty("chefbot.llm.max-queued.tool-heavy", "1");
+        env.setProperty("chefbot.llm.max-wait-ms.tool-heavy", "5000");
+        LlmScheduler.Permit first = scheduler.acquire("ollama", ChatRequestClass.TOOL_HEAVY);
+        LlmScheduler.Permit second = scheduler.acquire("ollama", ChatRequestClass.TOOL_HEAVY);
+        assertFalse(scheduler.hasWaiters(ChatRequestClass.INTERACTIVE));
+
+        Future<?> waiting = acquireAndRecord(ChatRequestClass.TOOL_HEAVY, new CopyOnWriteArrayList<>());
+        awaitQueued(ChatRequestClass.TOOL_HEAVY, 1);
+
+        assertTrue(scheduler.hasWaiters(ChatRequestClass.INTERACTIVE));
+        assertTrue(scheduler.isSaturated(ChatRequestClass.INTERACTIVE));
+        assertFalse(scheduler.hasWaiters(ChatRequestClass.SUMMARIZATION));
+
+        first.close();
+        waiting.get(5, TimeUnit.SECONDS);
+        second.close();
+        assertFalse(scheduler.isSaturated(ChatRequestClass.INTERACTIVE));
+    }
+}
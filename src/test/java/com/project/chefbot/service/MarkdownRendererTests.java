@@ -0,0 +1,40 @@
+package com.project.chefbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkdownRendererTests {
+
+    private final MarkdownRenderer renderer = new MarkdownRenderer();
+
+    // Test 1: Recipe markdown renders to headings, lists and emphasis
+    @Test
+    void testRendersRecipeMarkdown() {
+        String html = renderer.render("## Ingredients\n- 200g **spaghetti**\n- 2 eggs\n\n1. Boil\n2. Toss");
+
+        assertTrue(html.contains("<h2>Ingredients</h2>"));
+        assertTrue(html.contains("<li>200g <strong>spaghetti</strong></li>"));
+        assertTrue(html.contains("<ol>"));
+    }
+
+    // Test 2: Raw HTML and script URLs from model output never survive
+    @Test
+    void testStripsScriptAndJavascriptLinks() {
+        String html = renderer.render("<script>alert(1)</script>\n\n[click](javascript:alert(1)) <img src=x onerror=alert(1)>");
+
+        assertFalse(html.contains("<script"));
+        assertFalse(html.contains("javascript:"));
+        assertFalse(html.contains("<img"));
+    }
+
+    // Test 3: Links get safe rel attributes, bare URLs are linked
+    @Test
+    void testLinksAreSafe() {
+        String html = renderer.render("Source: https://example.com/carbonara");
+
+        assertTrue(html.contains("href=\"https://example.com/carbonara\""));
+        assertTrue(html.contains("nofollow"));
+        assertTrue(html.contains("noopener"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.project.chefbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnnxEmbeddingModelTests {
+
+    // Stand-in for the ONNX model: the vector encodes the text length, and every batch size is recorded
+    private static class RecordingModel implements EmbeddingModel {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final int dimensions;
+        volatile boolean fail;
+
+        RecordingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            if (fail) throw new IllegalStateException("onnx failure");
+            batchSizes.add(request.getInstructions().size());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                float[] vector = new float[dimensions];
+                vector[0] = request.getInstructions().get(i).length();
+                embeddings.add(new Embedding(vector, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+
+    private OnnxEmbeddingModel model;
+
+    @AfterEach
+    void tearDown() {
+        if (model != null) model.shutdown();
+    }
+
+    // Test 1: Results keep the order of the inputs, and large requests are split into bounded batches
+    @Test
+    void testBatchesAreBoundedAndOrdered() {
+        RecordingModel delegate = new RecordingModel(4);
+        model = new OnnxEmbeddingModel(delegate, 4, 2, 8, 100, 5, 5_000, new ChefMetrics(new SimpleMeterRegistry()));
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) texts.add("x".repeat(i));
+        List<float[]> vectors = model.embed(texts);
+
+        assertEquals(20, vectors.size());
+        for (int i = 0; i < 20; i++) assertEquals(i + 1, (int) vectors.get(i)[0]);
+        assertTrue(delegate.batchSizes.stream().allMatch(size -> size <= 8));
+        assertEquals(20, delegate.batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    // Test 2: Concurrent single-text callers are coalesced into shared batches
+    @Test
+    void testConcurrentCallsAreCoalesced() throws Exception {
+        RecordingModel delegate = new RecordingModel(4);
+        model = new OnnxEmbeddingModel(delegate, 4, 1, 16, 100, 50, 5_000, new ChefMetrics(new SimpleMeterRegistry()));
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<float[]>> results = new ArrayList<>();
+            for (int i = 1; i <= 8; i++) {
+                String text = "y".repeat(i);
+                results.add(callers.submit(() -> model.embed(text)));
+            }
+            for (int i = 0; i < 8; i++) assertEquals(i + 1, (int) results.get(i).get()[0]);
+        } finally {
+            callers.shutdown();
+        }
+        assertTrue(delegate.batchSizes.size() < 8, "expected fewer model calls than callers: " + delegate.batchSizes);
+    }
+
+    // Test 3: Model failures reach the caller, and a dimension mismatch fails the warm-up
+    @Test
+    void testFailuresPropagate() {
+        RecordingModel delegate = new RecordingModel(4);
+        model = new OnnxEmbeddingModel(delegate, 4, 1, 4, 100, 0, 5_000, new ChefMetrics(new SimpleMeterRegistry()));
+        delegate.fail = true;
+        assertThrows(IllegalStateException.class, () -> model.embed("boom"));
+
+        model.shutdown();
+        model = new OnnxEmbeddingModel(new RecordingModel(3), 4, 1, 4, 100, 0, 5_000, new ChefMetrics(new SimpleMeterRegistry()));
+        assertThrows(IllegalStateException.class, () -> model.warmUp());
+    }
+}
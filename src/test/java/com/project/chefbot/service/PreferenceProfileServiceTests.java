@@ -0,0 +1,69 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreferenceProfileServiceTests {
+
+    private final PreferenceProfileService service = new PreferenceProfileService(
+            null, null, null, new ObjectMapper(), new ChefMetrics(new SimpleMeterRegistry()), null);
+
+    // Test 1: The JSON object is sliced out of a chatty reply and normalized
+    @Test
+    void testParseProfileNormalizesModelOutput() {
+        String reply = """
+                Sure! Here is the profile:
+                ```json
+                {"likedCuisines": [" Italian ", "italian", "Thai"], "dislikes": "cilantro, olives",
+                 "skillLevel": "Expert", "equipment": ["wok", "me@example.com"]}
+                ```
+                """;
+
+        PreferenceProfileService.Profile profile = service.parseProfile(reply);
+
+        assertNotNull(profile);
+        assertEquals(List.of("Italian", "Thai"), profile.likedCuisines());
+        assertEquals(List.of("cilantro", "olives"), profile.dislikes());
+        assertEquals("unknown", profile.skillLevel());
+        assertEquals(List.of("wok"), profile.equipment());
+    }
+
+    // Test 2: Replies without a JSON object are rejected
+    @Test
+    void testParseProfileRejectsNonJson() {
+        assertNull(service.parseProfile("I could not find any preferences."));
+        assertNull(service.parseProfile("{not json}"));
+        assertNull(service.parseProfile(null));
+    }
+
+    // Test 3: Lists are bounded in size and item length
+    @Test
+    void testNormalizeBoundsLists() {
+        List<String> many = List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "x".repeat(100));
+        List<String> normalized = PreferenceProfileService.normalize(many);
+
+        assertEquals(PreferenceProfileService.MAX_ITEMS, normalized.size());
+        assertTrue(PreferenceProfileService.normalize(List.of("y".repeat(100))).get(0).length() <= PreferenceProfileService.MAX_ITEM_LENGTH);
+    }
+
+    // Test 4: Rendering skips empty fields, stays within the budget, and is empty for an empty profile
+    @Test
+    void testRenderIsCompactAndBounded() {
+        PreferenceProfileService.Profile profile = new PreferenceProfileService.Profile(
+                List.of("Italian"), List.of(), "beginner", List.of("air fryer"));
+
+        String block = PreferenceProfileService.render(profile, 600);
+        assertTrue(block.contains("Likes: Italian"));
+        assertTrue(block.contains("Skill level: beginner"));
+        assertTrue(block.contains("Equipment: air fryer"));
+        assertFalse(block.contains("Dislikes"));
+
+        assertTrue(PreferenceProfileService.render(profile, 50).length() <= 50);
+        assertEquals("", PreferenceProfileService.render(PreferenceProfileService.Profile.EMPTY, 600));
+    }
+}
@@ -0,0 +1,68 @@
+package com.project.chefbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeSafetyFilterTests {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecipeSafetyFilter filter = new RecipeSafetyFilter(mapper, "searchRecipes");
+
+    // Test 1: Recipes are screened on title and ingredients, not on their source URL
+    @Test
+    void testUrlsDoNotDecideTheScreen() throws Exception {
+        AllergenMatcher eggs = AllergenMatcher.forSession("eggs", "Omnivore");
+        String recipes = mapper.writeValueAsString(mapper.createObjectNode().set("recipes", mapper.createArrayNode()
+                .add(mapper.createObjectNode().put("title", "Rice Noodle Stir Fry").put("ingredients", "rice noodles, tofu, scallions")
+                        .put("url", "https://example.com/egg-noodles"))
+                .add(mapper.createObjectNode().put("title", "Cookies").put("ingredients", "flour, butter, 2 eggs")
+                        .put("url", "https://example.com/egg-free-cookies"))));
+
+        String screened = mapper.readTree(filter.screen(recipes, eggs)).get("recipes").toString();
+
+        assertTrue(screened.contains("Rice Noodle Stir Fry"));
+        assertFalse(screened.contains("Cookies"));
+    }
+
+    // Test 2: Entries without an ingredient list are screened on their text but not their links
+    @Test
+    void testEntriesWithoutIngredients() throws Exception {
+        String text = RecipeSafetyFilter.screenableText(mapper.readTree(
+                "{\"title\":\"Pad Thai\",\"content\":\"Crush the peanuts\",\"url\":\"https://example.com/peanut-free\"}"));
+
+        assertTrue(text.contains("Crush the peanuts"));
+        assertFalse(text.contains("example.com"));
+    }
+
+    // Test 3: A single recipe is tagged as a whole; its ingredient list is never treated as a list of recipes
+    @Test
+    void testSingleRecipeIsTaggedNotStripped() throws Exception {
+        AllergenMatcher peanuts = AllergenMatcher.forSession("peanuts", "Omnivore");
+        String recipe = "{\"title\":\"Satay\",\"ingredients\":[\"chicken thighs\",\"3 tbsp peanut butter\",\"lime\"]}";
+
+        String screened = filter.screen(recipe, peanuts);
+
+        assertTrue(screened.startsWith("ALLERGEN SCREEN: UNSAFE"));
+        assertTrue(screened.contains("3 tbsp peanut butter"));
+        assertEquals("{\"title\":\"Pho\",\"ingredients\":[\"rice noodles\",\"beef\"]}",
+                filter.screen("{\"title\":\"Pho\",\"ingredients\":[\"rice noodles\",\"beef\"]}", peanuts));
+    }
+
+    // Test 4: The recipe list is found under its key even when another array comes first
+    @Test
+    void testRecipeListAfterOtherArrays() throws Exception {
+        AllergenMatcher eggs = AllergenMatcher.forSession("eggs", "Omnivore");
+        String result = "{\"tags\":[\"quick\",\"dinner\"],\"recipes\":["
+                + "{\"title\":\"Carbonara\",\"ingredients\":\"spaghetti, guanciale, eggs\"},"
+                + "{\"title\":\"Aglio e Olio\",\"ingredients\":\"spaghetti, garlic, olive oil\"}]}";
+
+        var screened = mapper.readTree(filter.screen(result, eggs));
+
+        assertEquals(2, screened.get("tags").size());
+        assertEquals(1, screened.get("recipes").size());
+        assertEquals("Aglio e Olio", screened.get("recipes").get(0).get("title").asText());
+        assertTrue(screened.has("allergenScreen"));
+    }
+}
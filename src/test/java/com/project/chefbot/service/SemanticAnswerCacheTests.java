@@ -0,0 +1,75 @@
+package com.project.chefbot.service;
+
+import com.project.chefbot.model.CookingSession;
+import com.project.chefbot.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticAnswerCacheTests {
+
+    // Same text, same vector: every repeated question is a perfect match
+    private static class TextHashModel implements EmbeddingModel {
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                String text = request.getInstructions().get(i);
+                embeddings.add(new Embedding(new float[]{text.hashCode() % 97, text.length(), 1}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+    }
+
+    private final SemanticAnswerCache cache = new SemanticAnswerCache(new TextHashModel(), true, 0.95, 10, 60);
+
+    private static CookingSession session(Long userId) {
+        CookingSession session = new CookingSession();
+        session.setChefPersonality("Gordon");
+        session.setDietType("Omnivore");
+        session.setExcludedIngredients("No restrictions");
+        if (userId != null) {
+            User user = new User();
+            user.setId(userId);
+            session.setUser(user);
+        }
+        return session;
+    }
+
+    // Test 1: Two users with different profiles asking the same question never see each other's answer
+    @Test
+    void testPersonalizedAnswersStayWithTheirUser() {
+        String question = "What should I cook tonight?";
+        SemanticAnswerCache.Lookup alice = cache.lookup(session(1L), question, "PROFILE: dislikes mushrooms, owns an air fryer");
+        cache.store(alice, "Air-fried chicken, no mushrooms", 2_000);
+
+        assertFalse(cache.lookup(session(2L), question, "PROFILE: loves mushrooms, no oven").isHit());
+        assertFalse(cache.lookup(session(2L), question, "").isHit());
+        assertFalse(cache.lookup(session(null), question, "").isHit());
+        assertTrue(cache.lookup(session(1L), question, "PROFILE: dislikes mushrooms, owns an air fryer").isHit());
+    }
+
+    // Test 2: Answers generated without personal context are shared between users with the same settings
+    @Test
+    void testUnpersonalizedAnswersAreShared() {
+        String question = "How long do I boil an egg?";
+        cache.store(cache.lookup(session(1L), question, ""), "Nine minutes for hard-boiled", 1_500);
+
+        SemanticAnswerCache.Lookup other = cache.lookup(session(2L), question, "");
+        assertTrue(other.isHit());
+        assertEquals("Nine minutes for hard-boiled", other.answer());
+    }
+}
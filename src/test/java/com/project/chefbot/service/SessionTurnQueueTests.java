@@ -0,0 +1,163 @@
+package com.project.chefbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SessionTurnQueueTests {
+
+    private ChefAiService aiService;
+    private SessionTurnQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        aiService = mock(ChefAiService.class);
+        ChefMetrics metrics = new ChefMetrics(new SimpleMeterRegistry());
+        queue = new SessionTurnQueue(aiService, metrics, new LlmScheduler(new MockEnvironment(), metrics));
+        ReflectionTestUtils.setField(queue, "maxQueuedPerSession", 3);
+        ReflectionTestUtils.setField(queue, "dedupTtlMillis", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    private static void awaitIdle(SessionTurnQueue queue, Long sessionId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (queue.isBusy(sessionId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // Test 1: Turns of one session never overlap and run in submission order
+    @Test
+    void testTurnsOfOneSessionRunSeriallyInOrder() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            order.add(invocation.getArgument(1));
+            running.decrementAndGet();
+            return null;
+        }).when(aiService).sendMessage(anyLong(), anyString(), any());
+
+        queue.submit(1L, "k1", "first");
+        queue.submit(1L, "k2", "second");
+        queue.submit(1L, "k3", "third");
+        awaitIdle(queue, 1L);
+
+        assertEquals(List.of("first", "second", "third"), order);
+        assertEquals(1, maxRunning.get());
+    }
+
+    // Test 2: A resubmitted form (same idempotency key) is dropped
+    @Test
+    void testDuplicateKeyIsDropped() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> calls.incrementAndGet()).when(aiService).sendMessage(anyLong(), anyString(), any());
+
+        assertTrue(queue.submit(1L, "same", "hello").isAccepted());
+        assertEquals(SessionTurnQueue.Outcome.DUPLICATE, queue.submit(1L, "same", "hello").outcome());
+        awaitIdle(queue, 1L);
+
+        // Still a duplicate after the turn finished, within the TTL
+        assertEquals(SessionTurnQueue.Outcome.DUPLICATE, queue.submit(1L, "same", "hello").outcome());
+        awaitIdle(queue, 1L);
+        assertEquals(1, calls.get());
+
+        // The same key on another session is a different submission
+        assertTrue(queue.submit(2L, "same", "hello").isAccepted());
+    }
+
+    // Test 3: Different sessions run in parallel
+    @Test
+    void testSessionsRunInParallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(2, TimeUnit.SECONDS);
+            return null;
+        }).when(aiService).sendMessage(anyLong(), anyString(), any());
+
+        queue.submit(1L, "a", "hello");
+        queue.submit(2L, "b", "hello");
+
+        assertTrue(bothStarted.await(2, TimeUnit.SECONDS));
+    }
+
+    // Test 4: A failing turn does not block later turns, and a full queue rejects new messages
+    @Test
+    void testFailureDoesNotBlockAndQueueIsBounded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            String message = invocation.getArgument(1);
+            invocation.<Runnable>getArgument(2).run();
+            if (message.equals("blocker")) release.await(2, TimeUnit.SECONDS);
+            if (message.equals("boom")) throw new RuntimeException("model down");
+            handled.add(message);
+            return null;
+        }).when(aiService).sendMessage(anyLong(), anyString(), any());
+
+        queue.submit(1L, "k0", "blocker");
+        Thread.sleep(50);
+        queue.submit(1L, "k1", "boom");
+        queue.submit(1L, "k2", "after");
+        queue.submit(1L, "k3", "queued");
+        assertEquals(List.of("boom", "after", "queued"), queue.getQueuedMessages(1L));
+        assertEquals(SessionTurnQueue.Outcome.QUEUE_FULL, queue.submit(1L, "k4", "overflow").outcome());
+
+        release.countDown();
+        awaitIdle(queue, 1L);
+        assertEquals(List.of("blocker", "after", "queued"), handled);
+    }
+
+    // Test 5: A running turn's message stays pending until it is committed, so the page never loses it
+    @Test
+    void testRunningTurnPendingUntilSaved() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch save = new CountDownLatch(1);
+        CountDownLatch saved = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            save.await(2, TimeUnit.SECONDS);
+            invocation.<Runnable>getArgument(2).run();
+            saved.countDown();
+            // The model call
+            finish.await(2, TimeUnit.SECONDS);
+            return null;
+        }).when(aiService).sendMessage(anyLong(), anyString(), any());
+
+        queue.submit(1L, "k1", "hello");
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("hello"), queue.getQueuedMessages(1L));
+
+        save.countDown();
+        assertTrue(saved.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(), queue.getQueuedMessages(1L));
+        assertTrue(queue.isBusy(1L));
+
+        finish.countDown();
+        awaitIdle(queue, 1L);
+    }
+}
@@ -0,0 +1,93 @@
+package com.project.chefbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TurnToolBudgetTests {
+
+    private static ToolCallback countingTool(String name, AtomicInteger invocations) {
+        ToolDefinition definition = ToolDefinition.builder()
+                .name(name)
+                .description(name)
+                .inputSchema("{}")
+                .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() { return definition; }
+
+            @Override
+            public String call(String toolInput) {
+                return name + "#" + invocations.incrementAndGet();
+            }
+        };
+    }
+
+    // Test 1: Identical calls with reordered arguments are memoized
+    @Test
+    void testIdenticalCallsAreMemoized() {
+        AtomicInteger invocations = new AtomicInteger();
+        TurnToolBudget budget = new TurnToolBudget(5, 60_000);
+        ToolCallback tool = budget.wrap(List.of(countingTool("searchRecipes", invocations))).get(0);
+
+        String first = tool.call("{\"query\":\"carbonara\",\"limit\":3}");
+        String second = tool.call("{ \"limit\": 3, \"query\": \"carbonara\" }");
+
+        assertEquals(first, second);
+        assertEquals(1, invocations.get());
+        assertEquals(1, budget.getCalls());
+        assertEquals(1, budget.getMemoHits());
+    }
+
+    // Test 2: Calls beyond the budget are rejected without reaching the tool
+    @Test
+    void testCallsBeyondBudgetAreRejected() {
+        AtomicInteger invocations = new AtomicInteger();
+        TurnToolBudget budget = new TurnToolBudget(2, 60_000);
+        ToolCallback tool = budget.wrap(List.of(countingTool("search", invocations))).get(0);
+
+        tool.call("{\"query\":\"a\"}");
+        tool.call("{\"query\":\"b\"}");
+        String third = tool.call("{\"query\":\"c\"}");
+
+        assertEquals(TurnToolBudget.BUDGET_EXHAUSTED, third);
+        assertEquals(2, invocations.get());
+        assertEquals(1, budget.getRejected());
+    }
+
+    // Test 3: Parallel tool calls never exceed the call budget
+    @Test
+    void testParallelCallsRespectBudget() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        TurnToolBudget budget = new TurnToolBudget(3, 60_000);
+        ToolCallback tool = budget.wrap(List.of(countingTool("search", invocations))).get(0);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                String input = "{\"query\":\"q" + i + "\"}";
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return tool.call(input);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) result.get();
+        }
+
+        assertEquals(3, invocations.get());
+        assertEquals(3, budget.getCalls());
+        assertEquals(5, budget.getRejected());
+    }
+}
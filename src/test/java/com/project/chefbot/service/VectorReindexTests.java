@@ -0,0 +1,285 @@
+package com.project.chefbot.service;
+
+import com.project.chefbot.etl.KnowledgeBaseService;
+import com.project.chefbot.model.ChatMessage;
+import com.project.chefbot.model.CookingSession;
+import com.project.chefbot.repository.ChatMessageRepository;
+import com.project.chefbot.repository.CookingSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VectorReindexTests {
+
+    private static final String MODEL = "ollama:nomic-embed-text";
+    private static final Timestamp T0 = Timestamp.valueOf("2026-10-01 10:00:00");
+    private static final Timestamp T1 = Timestamp.valueOf("2026-10-01 10:05:00");
+    private static final Timestamp T2 = Timestamp.valueOf("2026-10-01 10:06:00");
+
+    private final VectorGenerations generations = mock(VectorGenerations.class);
+    private final KnowledgeBaseService kbService = mock(KnowledgeBaseService.class);
+    private final ConversationVectorService conversationService = mock(ConversationVectorService.class);
+    private final CookingSessionRepository sessionRepo = mock(CookingSessionRepository.class);
+    private final ChatMessageRepository messageRepo = mock(ChatMessageRepository.class);
+    private final QuantizedPgVectorStore green = mock(QuantizedPgVectorStore.class);
+    private QuantizedPgVectorStore recipeStore;
+    private QuantizedPgVectorStore memoryStore;
+    private VectorReindexService service;
+
+    // A store mock whose settings follow switchTable, like the real store
+    private static QuantizedPgVectorStore store(String table) {
+        AtomicReference<QuantizedPgVectorStore.Settings> settings = new AtomicReference<>(new QuantizedPgVectorStore.Settings(
+                table, 768, QuantizedPgVectorStore.Mode.FLOAT, 16, 64, 40, 4, null, 0, true));
+        QuantizedPgVectorStore store = mock(QuantizedPgVectorStore.class);
+        when(store.getSettings()).thenAnswer(invocation -> settings.get());
+        doAnswer(invocation -> {
+            settings.set(settings.get().withTable(invocation.getArgument(0)));
+            return null;
+        }).when(store).switchTable(anyString());
+        return store;
+    }
+
+    private static Document chunk(String text) {
+        return Document.builder().id("chunk-" + text.hashCode()).text(text).build();
+    }
+
+    private static VectorGenerations.RecipeSource recipe(long id, String url) {
+        return new VectorGenerations.RecipeSource(id, url, "Recipe " + id, "Omnivore", "Document of " + url);
+    }
+
+    @BeforeEach
+    void setUp() {
+        recipeStore = store("recipe_vectors");
+        memoryStore = store("memory_vectors");
+        when(recipeStore.withTable(anyString())).thenReturn(green);
+        when(memoryStore.withTable(anyString())).thenReturn(green);
+        when(generations.catchUpStart()).thenReturn(T0, T1, T2);
+        when(generations.abandonStale(anyString(), anyLong())).thenReturn(List.of());
+        when(kbService.chunks(anyString(), anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> List.of(chunk(invocation.getArgument(3))));
+
+        service = new VectorReindexService(generations, recipeStore, memoryStore, kbService, conversationService, sessionRepo,
+                messageRepo, mock(LlmScheduler.class), new MockEnvironment().withProperty("chefbot.embedding.model-tag", MODEL));
+        // Runs the rebuild on the calling thread, unthrottled and without waiting for other nodes
+        ReflectionTestUtils.setField(service, "runner", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(service, "chunkSize", 800);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxChunksPerSecond", 1_000_000);
+        ReflectionTestUtils.setField(service, "switchGraceMillis", 0L);
+        ReflectionTestUtils.setField(service, "syncMillis", 5_000L);
+        ReflectionTestUtils.setField(service, "heartbeatMillis", 60_000L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> job(String collection) {
+        return (Map<String, Object>) ((Map<String, Object>) service.getStats().get("jobs")).get(collection);
+    }
+
+    private static String generationOf(QuantizedPgVectorStore store) {
+        return store.getSettings().table();
+    }
+
+    // Test 1: Generation tables are named after the configured table, never after a previous generation
+    @Test
+    void testGenerationTableNames() {
+        assertEquals("recipe_vectors_g1760000000", VectorReindexService.generationTable("recipe_vectors", 1760000000L));
+        assertEquals("recipe_vectors_g1760000500", VectorReindexService.generationTable("recipe_vectors_g1760000000", 1760000500L));
+        assertEquals("memory_vectors", VectorReindexService.baseTable("memory_vectors_g1760000000"));
+        assertEquals("memory_vectors_gin", VectorReindexService.baseTable("memory_vectors_gin"));
+    }
+
+    // Test 2: A recipe rebuild re-embeds documents, carries over the rest, catches up changes and deletions, then switches
+    @Test
+    void testRecipeRebuildCatchesUpAndSwitches() {
+        when(generations.recipesWithDocument(0, 2)).thenReturn(List.of(recipe(1, "https://a"), recipe(2, "https://b")));
+        when(generations.recipesWithDocument(2, 2)).thenReturn(List.of(recipe(3, "https://c")));
+        when(generations.recipesWithDocument(3, 2)).thenReturn(List.of());
+        Document old = Document.builder().id("7f000000-0000-0000-0000-000000000001").text("Old recipe").build();
+        when(generations.carryOver("recipes", "recipe_vectors", "", 2)).thenReturn(List.of(old));
+        when(generations.carryOver("recipes", "recipe_vectors", old.getId(), 2)).thenReturn(List.of());
+        when(generations.recipesChangedSince(any())).thenReturn(List.of());
+        // Changed while the bulk pass ran
+        when(generations.recipesChangedSince(T0)).thenReturn(List.of(recipe(2, "https://b")));
+
+        service.start("recipes", false);
+
+        String table = generationOf(recipeStore);
+        assertTrue(table.startsWith("recipe_vectors_g"));
+        assertEquals("done", job("recipes").get("phase"));
+        assertEquals(5L, job("recipes").get("chunks"));
+        verify(generations).insert("recipes", table, "recipe_vectors", MODEL, 768, 800);
+        verify(green).add(List.of(chunk("Document of https://a"), chunk("Document of https://b")));
+        verify(green).add(List.of(old));
+
+        InOrder order = inOrder(green, generations, recipeStore);
+        order.verify(green).createTable();
+        order.verify(green).delete(any(Filter.Expression.class));
+        order.verify(green).add(List.of(chunk("Document of https://b")));
+        order.verify(generations).deleteRemoved("recipes", table);
+        order.verify(green).createIndexes();
+        order.verify(generations).recipesChangedSince(T1);
+        order.verify(generations).markReady(table);
+        order.verify(recipeStore).switchTable(table);
+        order.verify(generations).recipesChangedSince(T2);
+        order.verify(generations).deleteRemoved("recipes", table);
+        order.verify(generations).retire("recipe_vectors", MODEL, 768);
+        verify(generations, times(3)).deleteRemoved("recipes", table);
+        verify(generations, never()).dropTable(anyString());
+        verify(generations, never()).markFailed(anyString(), anyString());
+    }
+
+    // Test 3: A memory catch-up rebuilds the sessions that got new messages from chat_message
+    @Test
+    void testMemoryCatchUpRebuildsChangedSessions() {
+        CookingSession session = new CookingSession();
+        List<ChatMessage> messages = List.of(new ChatMessage());
+        when(generations.rebuildableSessions(anyString(), anyLong(), anyInt())).thenReturn(List.of());
+        when(generations.carryOver(anyString(), anyString(), anyString(), anyInt())).thenReturn(List.of());
+        when(generations.sessionsChangedSince(anyString(), anyString(), any())).thenReturn(List.of());
+        when(generations.sessionsChangedSince(eq("memory_vectors"), anyString(), eq(T1))).thenReturn(List.of(42L));
+        when(sessionRepo.findById(42L)).thenReturn(Optional.of(session));
+        when(messageRepo.findBySessionIdOrderByTimestampAsc(42L)).thenReturn(messages);
+        when(conversationService.toDocuments(session, messages)).thenReturn(List.of(chunk("Session 42")));
+
+        service.start("memory", false);
+
+        String table = generationOf(memoryStore);
+        assertEquals("done", job("memory").get("phase"));
+        InOrder order = inOrder(green, generations);
+        order.verify(green).createIndexes();
+        order.verify(green).delete(any(Filter.Expression.class));
+        order.verify(green).add(List.of(chunk("Session 42")));
+        order.verify(generations).deleteRemoved("memory", table);
+        order.verify(generations).markReady(table);
+    }
+
+    // Test 4: A build that fails before the switch is marked FAILED, its table dropped and reads stay on the old table
+    @Test
+    void testFailedBuildIsCleanedUp() {
+        when(generations.recipesWithDocument(anyLong(), anyInt())).thenReturn(List.of(recipe(1, "https://a")));
+        doThrow(new IllegalStateException("embedding backend down")).when(green).add(anyList());
+
+        service.start("recipes", false);
+
+        assertEquals("recipe_vectors", generationOf(recipeStore));
+        assertEquals("failed", job("recipes").get("phase"));
+        assertEquals("embedding backend down", job("recipes").get("error"));
+        verify(generations).markFailed(startsWith("recipe_vectors_g"), eq("embedding backend down"));
+        verify(generations).dropTable(startsWith("recipe_vectors_g"));
+        verify(generations, never()).markReady(anyString());
+        verify(recipeStore, never()).switchTable(anyString());
+        verify(generations, never()).dropTable("recipe_vectors");
+    }
+
+    // Test 5: A failure after the switch keeps the new table serving and only records the incomplete catch-up
+    @Test
+    void testFailureAfterSwitchKeepsNewTable() {
+        when(generations.recipesWithDocument(anyLong(), anyInt())).thenReturn(List.of());
+        when(generations.carryOver(anyString(), anyString(), anyString(), anyInt())).thenReturn(List.of());
+        when(generations.recipesChangedSince(any())).thenReturn(List.of());
+        when(generations.recipesChangedSince(T2)).thenThrow(new IllegalStateException("connection reset"));
+
+        service.start("recipes", true);
+
+        String table = generationOf(recipeStore);
+        assertNotEquals("recipe_vectors", table);
+        assertEquals("failed", job("recipes").get("phase"));
+        verify(generations).setMessage(table, "final catch-up failed: connection reset");
+        verify(generations, never()).markFailed(anyString(), anyString());
+        verify(generations, never()).dropTable(anyString());
+    }
+
+    // Test 6: dropPrevious drops the old table once nothing else uses it
+    @Test
+    void testDropPreviousWhenUnused() {
+        when(generations.recipesWithDocument(anyLong(), anyInt())).thenReturn(List.of());
+        when(generations.carryOver(anyString(), anyString(), anyString(), anyInt())).thenReturn(List.of());
+        when(generations.recipesChangedSince(any())).thenReturn(List.of());
+        when(generations.dependentsOf(eq("recipe_vectors"), anyString(), anyLong())).thenReturn(List.of());
+
+        service.start("recipes", true);
+
+        InOrder order = inOrder(generations);
+        order.verify(generations).retire("recipe_vectors", MODEL, 768);
+        order.verify(generations).dependentsOf(eq("recipe_vectors"), anyString(), eq(60L));
+        order.verify(generations).dropTable("recipe_vectors");
+        verify(generations).setMessage(eq(generationOf(recipeStore)), endsWith(", dropped recipe_vectors"));
+    }
+
+    // Test 7: dropPrevious keeps the old table while another model's generation or a node that has not switched reads it
+    @Test
+    void testDropPreviousRefusedWhileInUse() {
+        when(generations.recipesWithDocument(anyLong(), anyInt())).thenReturn(List.of());
+        when(generations.carryOver(anyString(), anyString(), anyString(), anyInt())).thenReturn(List.of());
+        when(generations.recipesChangedSince(any())).thenReturn(List.of());
+        when(generations.dependentsOf(eq("recipe_vectors"), anyString(), anyLong()))
+                .thenReturn(List.of("generation for onnx:nomic-embed-text", "node chef-2 (onnx:nomic-embed-text)"));
+
+        service.start("recipes", true);
+
+        assertEquals("done", job("recipes").get("phase"));
+        verify(generations, never()).dropTable(anyString());
+        verify(generations).setMessage(eq(generationOf(recipeStore)),
+                contains("kept recipe_vectors (still used by generation for onnx:nomic-embed-text, node chef-2"));
+    }
+
+    // Test 8: Other nodes follow a switch on their next sync and report the table they read
+    @Test
+    void testSyncFollowsReadyGeneration() {
+        when(generations.activeTable("recipes", MODEL, 768)).thenReturn("recipe_vectors_g1760000000");
+        when(generations.activeTable("memory", MODEL, 768)).thenReturn(null);
+
+        service.sync();
+        service.sync();
+
+        assertEquals("recipe_vectors_g1760000000", generationOf(recipeStore));
+        assertEquals("memory_vectors", generationOf(memoryStore));
+        verify(recipeStore, times(1)).switchTable("recipe_vectors_g1760000000");
+        verify(memoryStore, never()).switchTable(anyString());
+        verify(generations, times(2)).registerReader(anyString(), eq("recipes"), eq("recipe_vectors_g1760000000"), eq(MODEL));
+        verify(generations, times(2)).registerReader(anyString(), eq("memory"), eq("memory_vectors"), eq(MODEL));
+    }
+
+    // Test 9: A second rebuild of a collection is refused while the first is registered
+    @Test
+    void testConcurrentRebuildRefused() {
+        doThrow(new IllegalStateException("A rebuild of recipes is already running"))
+                .when(generations).insert(eq("recipes"), anyString(), anyString(), anyString(), anyInt(), anyInt());
+
+        assertThrows(IllegalStateException.class, () -> service.start("recipes", false));
+        assertThrows(IllegalArgumentException.class, () -> service.start("ingredients", false));
+        verify(green, never()).createTable();
+    }
+
+    // Test 10: A long index build keeps the generation row fresh, so other nodes do not abandon it as stale
+    @Test
+    void testHeartbeatDuringIndexBuild() {
+        ReflectionTestUtils.setField(service, "heartbeatMillis", 10L);
+        AtomicReference<Integer> beats = new AtomicReference<>();
+        doAnswer(invocation -> {
+            int before = mockingDetails(generations).getInvocations().size();
+            Thread.sleep(200);
+            beats.set(mockingDetails(generations).getInvocations().size() - before);
+            return null;
+        }).when(green).createIndexes();
+
+        service.start("recipes", false);
+
+        assertEquals("done", job("recipes").get("phase"));
+        assertTrue(beats.get() >= 3, "heartbeats during the index build: " + beats.get());
+    }
+}